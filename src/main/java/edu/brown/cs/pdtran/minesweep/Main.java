@@ -1,8 +1,15 @@
 package edu.brown.cs.pdtran.minesweep;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
 
 import edu.brown.cs.pdtran.minesweep.metagame.Metagame;
+import edu.brown.cs.pdtran.minesweep.metagame.SessionReaper;
 
 /**
  * The entry-point to the program.
@@ -18,13 +25,30 @@ public final class Main {
   };
 
   /**
-   * Enters the program.
+   * Enters the program. The time-to-lives of idle sessions, finished games
+   * and their results can be set with --idle-ttl and --finished-ttl, in
+   * minutes, and --result-ttl, in hours.
    * @param args Commandline arguments.
    */
   public static void main(String[] args) {
+    OptionParser parser = new OptionParser();
+    OptionSpec<Long> idleTtl = parser.accepts("idle-ttl").withRequiredArg()
+        .ofType(Long.class).defaultsTo(TimeUnit.MILLISECONDS
+            .toMinutes(SessionReaper.DEFAULT_IDLE_TTL_MILLIS));
+    OptionSpec<Long> finishedTtl = parser.accepts("finished-ttl")
+        .withRequiredArg().ofType(Long.class).defaultsTo(TimeUnit
+            .MILLISECONDS.toMinutes(
+                SessionReaper.DEFAULT_FINISHED_TTL_MILLIS));
+    OptionSpec<Long> resultTtl = parser.accepts("result-ttl")
+        .withRequiredArg().ofType(Long.class).defaultsTo(TimeUnit
+            .MILLISECONDS.toHours(SessionReaper.DEFAULT_RESULT_TTL_MILLIS));
     try {
-      Metagame metagame = new Metagame(HTTP_PORT, WEB_SOCKET_PORT);
-    } catch (IOException e) {
+      OptionSet options = parser.parse(args);
+      Metagame metagame = new Metagame(HTTP_PORT, WEB_SOCKET_PORT,
+          TimeUnit.MINUTES.toMillis(options.valueOf(idleTtl)),
+          TimeUnit.MINUTES.toMillis(options.valueOf(finishedTtl)),
+          TimeUnit.HOURS.toMillis(options.valueOf(resultTtl)));
+    } catch (OptionException | IOException e) {
       System.out.println("ERROR: " + e.getMessage());
     }
   }
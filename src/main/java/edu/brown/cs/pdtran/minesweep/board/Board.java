@@ -2,6 +2,7 @@ package edu.brown.cs.pdtran.minesweep.board;
 
 import java.util.List;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import edu.brown.cs.pdtran.minesweep.tile.Tile;
 import edu.brown.cs.pdtran.minesweep.types.MoveResponse;
@@ -20,6 +21,14 @@ public interface Board extends Cloneable {
    */
   MoveResponse makeMove(int row, int col);
 
+  /**
+   * Gets the cells the most recent makeMove turned from hidden to visited,
+   * so callers can describe a move without rescanning the board.
+   * @return The row-major indices (row * width + column) of the newly
+   *         revealed cells; empty if the move was invalid.
+   */
+  int[] getLastRevealed();
+
   /**
    * Tells you if the board is a winning board.
    * @return true if board is winning.
@@ -87,9 +96,24 @@ public interface Board extends Cloneable {
    */
   List<Tile> getAdjacentTiles(int h, int w);
 
+  /**
+   * Gets the adjacency of every cell, indexed by row * width + column.
+   * Walking it allocates nothing, unlike getAdjacentTiles.
+   * @return the neighbor table of the board.
+   */
+  NeighborTable getNeighborTable();
+
   /**
    * Converts the Board object to a JSON object.
    * @return a JSON string representing the board.
    */
   JsonElement toJson();
+
+  /**
+   * Converts some of the board's cells to JSON, in the same form as the
+   * tiles in toJson, so a change can be sent without the whole board.
+   * @param cells The row-major indices of the cells.
+   * @return a JSON array with one object per cell, in the given order.
+   */
+  JsonArray cellsToJson(int[] cells);
 }
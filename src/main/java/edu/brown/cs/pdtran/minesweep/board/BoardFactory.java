@@ -38,4 +38,85 @@ public final class BoardFactory {
         return null;
     }
   }
+
+  /**
+   * Makes a board generated from a seed, optionally one that can be
+   * cleared without guessing. No-guess boards come with their opening
+   * revealed. Rectangular boards are always generated as usual, since
+   * their merged cells show counts that no single cell's neighbors
+   * explain.
+   * @param type The type of the board you wish to make.
+   * @param width An integer representing the width in tiles.
+   * @param height An integer representing the height in tiles.
+   * @param mines The number of mines on the board.
+   * @param seed The seed to generate the board from.
+   * @param noGuess Whether the board must be solvable without guessing.
+   * @return The made board.
+   */
+  public static Board makeBoard(BoardType type,
+      int width,
+      int height,
+      int mines,
+      long seed,
+      boolean noGuess) {
+    return makeBoard(type, width, height, mines, seed, noGuess,
+        Long.MAX_VALUE);
+  }
+
+  /**
+   * Makes a board generated from a seed, optionally one that can be
+   * cleared without guessing, spending at most a given time looking for a
+   * no-guess board. If none is found in time, the plain board for the seed
+   * is made instead.
+   * @param type The type of the board you wish to make.
+   * @param width An integer representing the width in tiles.
+   * @param height An integer representing the height in tiles.
+   * @param mines The number of mines on the board.
+   * @param seed The seed to generate the board from.
+   * @param noGuess Whether the board must be solvable without guessing.
+   * @param maxNanos How long to look for a no-guess board.
+   * @return The made board.
+   */
+  public static Board makeBoard(BoardType type,
+      int width,
+      int height,
+      int mines,
+      long seed,
+      boolean noGuess,
+      long maxNanos) {
+    if (noGuess && type != BoardType.RECTANGULAR) {
+      return NoGuessGenerator.makeBoard(type, width, height, mines, seed,
+          maxNanos);
+    }
+    return makeBoard(type, width, height, mines, seed);
+  }
+
+  /**
+   * Makes a board generated from a seed. The same arguments always give
+   * the same board.
+   * @param type The type of the board you wish to make.
+   * @param width An integer representing the width in tiles.
+   * @param height An integer representing the height in tiles.
+   * @param mines The number of mines on the board.
+   * @param seed The seed to generate the board from.
+   * @return The made board.
+   */
+  public static Board makeBoard(BoardType type,
+      int width,
+      int height,
+      int mines,
+      long seed) {
+    switch (type) {
+      case DEFAULT:
+        return new DefaultBoard(width, height, mines, seed);
+      case RECTANGULAR:
+        return new RectangularBoard(width, height, mines, seed);
+      case TRIANGULAR:
+        return new TriangularBoard(width, height, mines, seed);
+      case HEXAGONAL:
+        return new HexagonalBoard(width, height, mines, seed);
+      default:
+        return null;
+    }
+  }
 }
@@ -1,13 +1,10 @@
 package edu.brown.cs.pdtran.minesweep.board;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -18,17 +15,35 @@ import edu.brown.cs.pdtran.minesweep.types.MoveResponse;
 
 /**
  * DefaultBoard is the classic minesweeper board.
+ * <p>
+ * Cells are not stored as Tile objects. Mines and visited cells are kept
+ * in long[] bitsets and adjacent-mine counts in a nibble-packed byte[],
+ * all indexed by row * width + column. Tiles handed out by the board are
+ * snapshots built on demand from that packed state.
+ * <p>
+ * The mines, counts and neighbor table live in a MineLayout that clones
+ * share, so each clone only owns its visited cells and reveal counters.
+ * Giving every team its own copy of a board therefore costs one bitset
+ * per team rather than a whole board.
  * @author agokasla
  */
 public class DefaultBoard implements Board, Cloneable {
 
-  protected Tile[][] grid;
   protected final int width;
   protected final int height;
   protected final int bombCount;
+  private final long seed;
+  private MineLayout layout;
+  private boolean layoutShared;
+  protected long[] visited;
+  private int[] lastRevealed = NONE_REVEALED;
+  private int revealedSafe;
+  private int revealedMines;
 
   private static final int DEFAULT_SIZE = 16;
   private static final int DEFAULT_MINES = 40;
+  private static final int INITIAL_REVEAL_CAPACITY = 16;
+  private static final int[] NONE_REVEALED = new int[0];
 
   /**
    * The default constructor.
@@ -38,36 +53,71 @@ public class DefaultBoard implements Board, Cloneable {
   }
 
   /**
-   * The constructor that provide the necessary seed information.
+   * The constructor that provide the necessary seed information. The
+   * board is generated from a random seed.
    * @param width The width of the board.
    * @param height Th height of the board.
    * @param bombCount The number of bombs on the board.
    */
   public DefaultBoard(int width, int height, int bombCount) {
+    this(width, height, bombCount, randomSeed());
+  }
+
+  /**
+   * Makes a board whose mines are placed by a seeded generator, so the
+   * same seed always gives the same board.
+   * @param width The width of the board.
+   * @param height Th height of the board.
+   * @param bombCount The number of bombs on the board.
+   * @param seed The seed to generate the board from.
+   */
+  public DefaultBoard(int width, int height, int bombCount, long seed) {
     this.width = width;
     this.height = height;
     this.bombCount = bombCount;
+    this.seed = seed;
+    allocateCells();
     initializeBoard();
   }
 
   /**
    * This board constructor allows you to specify the grid. You may find it
-   * useful for testing.
+   * useful for testing. Each tile is stored at its own row and column.
    * @param grid The grid that you get to specify.
    */
   public DefaultBoard(Tile[][] grid) {
     this.width = grid[0].length;
     this.height = grid.length;
+    allocateCells();
     int bombs = 0;
     for (Tile[] row : grid) {
       for (Tile tile : row) {
         if (tile.isBomb()) {
           bombs++;
         }
+        setTile(tile, tile.getRow(), tile.getColumn());
       }
     }
     this.bombCount = bombs;
-    this.grid = grid;
+    this.seed = 0;
+  }
+
+  /**
+   * Copies another board. Used by clone. The mine layout is shared with
+   * the other board and only the visited cells are copied.
+   * @param other The board to copy.
+   */
+  protected DefaultBoard(DefaultBoard other) {
+    this.width = other.width;
+    this.height = other.height;
+    this.bombCount = other.bombCount;
+    this.seed = other.seed;
+    this.layout = other.layout;
+    this.layoutShared = true;
+    other.layoutShared = true;
+    this.visited = other.visited.clone();
+    this.revealedSafe = other.revealedSafe;
+    this.revealedMines = other.revealedMines;
   }
 
   @Override
@@ -80,61 +130,160 @@ public class DefaultBoard implements Board, Cloneable {
     return width;
   }
 
+  private void allocateCells() {
+    layout = new MineLayout(width, height,
+        NeighborTable.forShape(getBoardType(), width, height));
+    layoutShared = false;
+    visited = PackedCells.newBits(width * height);
+    revealedSafe = 0;
+    revealedMines = 0;
+  }
+
+  /**
+   * Picks a seed for boards that are not given one.
+   * @return A random seed.
+   */
+  static long randomSeed() {
+    return ThreadLocalRandom.current().nextLong();
+  }
+
   private void initializeBoard() {
-    grid = new Tile[height][width];
-    // Initialize all tiles
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        grid[i][j] = new Tile(false, 0, false, i, j);
-      }
+    int cells = width * height;
+    if (bombCount < 0 || bombCount > cells) {
+      throw new IllegalArgumentException("Cannot place " + bombCount
+          + " bombs on " + cells + " tiles.");
     }
-
-    // Choose bombs randomly
-    int numBombs = bombCount;
-    int randomX, randomY;
-    Random rn = new Random();
-    while (numBombs > 0) {
-      randomX = rn.nextInt(width);
-      randomY = rn.nextInt(height);
-
-      if (!grid[randomY][randomX].isBomb()) {
-        grid[randomY][randomX].makeBomb();
-        numBombs--;
-      }
+    // Choose bombs with a partial Fisher-Yates shuffle: after step i the
+    // first i + 1 entries of order are a uniform sample of the cells, so
+    // every draw places a bomb and nothing is retried.
+    SplittableRandom random = new SplittableRandom(seed);
+    int[] order = new int[cells];
+    for (int cell = 0; cell < cells; cell++) {
+      order[cell] = cell;
+    }
+    for (int i = 0; i < bombCount; i++) {
+      int j = i + random.nextInt(cells - i);
+      int chosen = order[j];
+      order[j] = order[i];
+      order[i] = chosen;
+      layout.setMine(chosen, true);
     }
 
     updateBombNumbers();
   }
 
+  /**
+   * Gets the seed the board was generated from. Boards built from a grid
+   * of tiles have a seed of 0.
+   * @return The seed.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
   /**
    * Updates the bomb number. It is protected so it can be overwrriten
    * later.
    */
   protected void updateBombNumbers() {
     // Calculate adjacent bomb values for each tile
-    int adjacentBombCount;
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        adjacentBombCount = 0;
-        for (Tile t : getAdjacentTiles(i, j)) {
-          if (t.isBomb()) {
-            adjacentBombCount++;
-          }
+    NeighborTable table = getNeighborTable();
+    MineLayout writable = writableLayout();
+    int cells = width * height;
+    for (int cell = 0; cell < cells; cell++) {
+      int adjacentBombCount = 0;
+      for (int k = table.start(cell); k < table.end(cell); k++) {
+        if (writable.isMine(table.get(k))) {
+          adjacentBombCount++;
         }
-        grid[i][j].setAdjacentBombs(adjacentBombCount);
       }
+      writable.setAdjacentBombs(cell, adjacentBombCount);
+    }
+  }
+
+  /**
+   * Gets the row-major index of a cell.
+   * @param row The row of the cell.
+   * @param col The col of the cell.
+   * @return The index of the cell in the packed arrays.
+   */
+  protected final int indexOf(int row, int col) {
+    return row * width + col;
+  }
+
+  /**
+   * Stores the adjacent bomb count of a cell.
+   * @param row The row of the cell.
+   * @param col The col of the cell.
+   * @param count The number of adjacent bombs.
+   */
+  protected void setAdjacentBombs(int row, int col, int count) {
+    writableLayout().setAdjacentBombs(indexOf(row, col), count);
+  }
+
+  /**
+   * Gets the layout for writing, first copying it if another board shares
+   * it.
+   * @return A layout only this board uses.
+   */
+  private MineLayout writableLayout() {
+    if (layoutShared) {
+      layout = layout.copy();
+      layoutShared = false;
     }
+    return layout;
   }
 
   /**
-   * Gets the tile at the specified point.
+   * Tells you if a cell holds a mine.
+   * @param index The index of the cell.
+   * @return True if the cell is a mine.
+   */
+  protected final boolean isMine(int index) {
+    return layout.isMine(index);
+  }
+
+  /**
+   * Gets the number of mines touching a cell.
+   * @param index The index of the cell.
+   * @return The adjacent mine count.
+   */
+  protected final int adjacentBombs(int index) {
+    return layout.adjacentBombs(index);
+  }
+
+  /**
+   * Tells you if this board shares its mine layout with another board.
+   * @param other The other board.
+   * @return True if both boards read the same layout.
+   */
+  public boolean sharesLayoutWith(DefaultBoard other) {
+    return layout == other.layout;
+  }
+
+  /**
+   * Gets the tile at the specified point. The tile is a snapshot of the
+   * cell; changing it does not change the board.
    * @param row The specified row.
    * @param col The specified col.
    * @return The tile you want.
    */
   @Override
   public Tile getTile(int row, int col) {
-    return grid[row][col];
+    return tileAt(row, col);
+  }
+
+  /**
+   * Builds a snapshot of a cell without going through any lookup a
+   * subclass adds to getTile.
+   * @param row The row of the cell.
+   * @param col The col of the cell.
+   * @return A new Tile holding the cell's current state.
+   */
+  protected final Tile tileAt(int row, int col) {
+    int index = indexOf(row, col);
+    return new Tile(layout.isMine(index), layout.adjacentBombs(index),
+        PackedCells.get(visited, index), row, col);
   }
 
   /**
@@ -144,74 +293,123 @@ public class DefaultBoard implements Board, Cloneable {
    * @param col The col of the tile you wish to swap.
    */
   public void setTile(Tile tile, int row, int col) {
-    grid[row][col] = tile;
+    int index = indexOf(row, col);
+    MineLayout writable = writableLayout();
+    countCell(index, -1);
+    writable.setMine(index, tile.isBomb());
+    if (tile.hasBeenVisited()) {
+      PackedCells.set(visited, index);
+    } else {
+      PackedCells.clear(visited, index);
+    }
+    writable.setAdjacentBombs(index, tile.getAdjacentBombs());
+    countCell(index, 1);
+  }
+
+  /**
+   * Records that a hidden cell has just been visited.
+   * @param index The index of the cell.
+   */
+  private void countReveal(int index) {
+    if (layout.isMine(index)) {
+      revealedMines++;
+    } else {
+      revealedSafe++;
+    }
+  }
+
+  /**
+   * Adds or removes a visited cell's contribution to the reveal counters.
+   * @param index The index of the cell.
+   * @param sign 1 to add the cell, -1 to remove it.
+   */
+  private void countCell(int index, int sign) {
+    boolean isMine = layout.isMine(index);
+    if (PackedCells.get(visited, index)) {
+      if (isMine) {
+        revealedMines += sign;
+      } else {
+        revealedSafe += sign;
+      }
+    }
   }
 
   /**
-   * Gets the tile adjacent to the one at the speciifed row and col. NOTE:
-   * You must override this method if you want to change the geometry of
-   * the board.
+   * Gets the tiles adjacent to the one at the specified row and col. This
+   * builds a list from the neighbor table; code on a hot path should walk
+   * getNeighborTable() directly.
    * @param row The row of tile you want.
    * @param col The col of the tile you want.
    * @return a list of adjacent tiles.
    */
   @Override
   public List<Tile> getAdjacentTiles(int row, int col) {
-    int i = row;
-    int j = col;
-    List<Tile> out = new ArrayList<>();
+    NeighborTable table = getNeighborTable();
+    int cell = indexOf(row, col);
+    List<Tile> out = new ArrayList<>(table.degree(cell));
+    for (int k = table.start(cell); k < table.end(cell); k++) {
+      int neighbor = table.get(k);
+      out.add(tileAt(neighbor / width, neighbor % width));
+    }
+    return out;
+  }
+
+  /**
+   * Gets the neighbor table of the board. NOTE: You must override this
+   * method, or give the board type its own geometry in NeighborTable, if
+   * you want to change the geometry of the board.
+   * @return The table of adjacent cells.
+   */
+  @Override
+  public NeighborTable getNeighborTable() {
+    return layout.getNeighborTable();
+  }
+
+  /**
+   * Finds the neighbors of a cell on a grid of squares, where every cell
+   * touching an edge or a corner is adjacent.
+   * @param row The row of the cell.
+   * @param col The col of the cell.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param out The buffer to write neighbor indices into.
+   * @return The number of neighbors written.
+   */
+  static int squareNeighbors(int row, int col, int width, int height,
+      int[] out) {
+    int found = 0;
     for (int ii = -1; ii <= 1; ii++) {
       for (int jj = -1; jj <= 1; jj++) {
-        if (isWithinBoard(j + jj, i + ii)) {
-          out.add(grid[i + ii][j + jj]);
+        if ((ii != 0 || jj != 0)
+            && withinBounds(col + jj, row + ii, width, height)) {
+          out[found++] = (row + ii) * width + col + jj;
         }
       }
     }
-    return out;
+    return found;
+  }
+
+  /**
+   * Tells you if a position lies on a board of the given size.
+   * @param x The x position.
+   * @param y The y position.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @return True if it's within the bounds, otherwise false.
+   */
+  static boolean withinBounds(int x, int y, int width, int height) {
+    return x >= 0 && x < width && y >= 0 && y < height;
   }
 
   @Override
   public MoveResponse makeMove(final int row, final int column) {
-    System.out.println(row + " " + column);
     MoveResponse moveResponse;
+    lastRevealed = NONE_REVEALED;
     if (isWithinBoard(column, row)) {
-      Tile target = grid[row][column];
-      if (!target.hasBeenVisited()) {
-        target.setVisited();
-        // If target has no adjacent bombs, reveal adjacent tiles
-        // that have no bombs.
-        if (target.getAdjacentBombs() == 0) {
-          Deque<Tile> tilesWithNoAdjacentBombs = new ArrayDeque<Tile>();
-          LinkedList<Tile> tilesToReveal = new LinkedList<Tile>();
-          tilesWithNoAdjacentBombs.add(target);
-          Tile candidate;
-          int newRow, newColumn;
-          // Determine adjacent 'empty' tiles
-          while (!tilesWithNoAdjacentBombs.isEmpty()) {
-            candidate = tilesWithNoAdjacentBombs.pop();
-            List<Tile> newCandidates =
-                getAdjacentTiles(candidate.getRow(), candidate.getColumn());
-            for (Tile neighbor : newCandidates) {
-              if (!tilesToReveal.contains(neighbor)
-                  && neighbor.getAdjacentBombs() == 0
-                  && !neighbor.isBomb()) {
-                tilesWithNoAdjacentBombs.add(neighbor);
-              }
-            }
-            tilesToReveal.add(candidate);
-          }
-          // Reveal all tiles adjacent to the 'empty' tiles
-          Iterator<Tile> tilesIterator = tilesToReveal.iterator();
-          while (tilesIterator.hasNext()) {
-            candidate = tilesIterator.next();
-            List<Tile> candidateNeighbors =
-                getAdjacentTiles(candidate.getRow(), candidate.getColumn());
-            for (Tile t : candidateNeighbors) {
-              t.setVisited();
-            }
-          }
-        }
-        if (target.isBomb()) {
+      int index = indexOf(row, column);
+      if (!PackedCells.get(visited, index)) {
+        lastRevealed = floodReveal(index);
+        if (layout.isMine(index)) {
           moveResponse = MoveResponse.MINE;
         } else {
           moveResponse = MoveResponse.NOT_MINE;
@@ -225,37 +423,64 @@ public class DefaultBoard implements Board, Cloneable {
     return moveResponse;
   }
 
-  @Override
-  public boolean isWinningBoard() {
-    // Check for all bombs unvisited, and all non-bombs visited
-    Tile currentTile;
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        currentTile = grid[i][j];
-        // if (currentTile.isBomb() && currentTile.hasBeenVisited()) {
-        // return false;
-        // }
-        if (!currentTile.isBomb() && !currentTile.hasBeenVisited()) {
-          return false;
+  /**
+   * Reveals a cell and, if it has no adjacent bombs, cascades through the
+   * connected 'empty' region and its border. The visited bitset doubles as
+   * the BFS seen set and the array of revealed cells doubles as the queue,
+   * so the work is linear in the number of cells revealed.
+   * @param start The index of the hidden cell to reveal.
+   * @return The indices of every cell this call turned visited, in the
+   *         order they were revealed.
+   */
+  private int[] floodReveal(int start) {
+    NeighborTable table = getNeighborTable();
+    int[] revealed = new int[Math.min(INITIAL_REVEAL_CAPACITY,
+        width * height)];
+    int size = 0;
+    PackedCells.set(visited, start);
+    countReveal(start);
+    revealed[size++] = start;
+    // Only safe cells with no adjacent bombs are expanded. A mine's count
+    // leaves out the mine itself, so a mine with no mined neighbors is
+    // zero too and must not open the region around it.
+    int head = !layout.isMine(start) && layout.adjacentBombs(start) == 0
+        ? 0 : size;
+    while (head < size) {
+      int candidate = revealed[head++];
+      if (layout.adjacentBombs(candidate) != 0
+          || layout.isMine(candidate)) {
+        continue;
+      }
+      for (int k = table.start(candidate); k < table.end(candidate); k++) {
+        int neighbor = table.get(k);
+        if (!PackedCells.get(visited, neighbor)) {
+          PackedCells.set(visited, neighbor);
+          countReveal(neighbor);
+          if (size == revealed.length) {
+            revealed = Arrays.copyOf(revealed, size * 2);
+          }
+          revealed[size++] = neighbor;
         }
       }
     }
-    return true;
+    return Arrays.copyOf(revealed, size);
+  }
+
+  @Override
+  public int[] getLastRevealed() {
+    return lastRevealed.clone();
+  }
+
+  @Override
+  public boolean isWinningBoard() {
+    // All non-bombs visited
+    return revealedSafe == layout.getSafeCells();
   }
 
   @Override
   public boolean isLosingBoard() {
-    // Check to see if any bombs have been visited
-    Tile currentTile;
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        currentTile = grid[i][j];
-        if (currentTile.isBomb() && currentTile.hasBeenVisited()) {
-          return true;
-        }
-      }
-    }
-    return false;
+    // Any bomb visited
+    return revealedMines > 0;
   }
 
   @Override
@@ -271,18 +496,12 @@ public class DefaultBoard implements Board, Cloneable {
    */
   @Override
   public boolean isWithinBoard(final int x, final int y) {
-    return x >= 0 && x < width && y >= 0 && y < height;
+    return withinBounds(x, y, width, height);
   }
 
   @Override
   public DefaultBoard clone() {
-    DefaultBoard board = new DefaultBoard(width, height, bombCount);
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        board.setTile(grid[i][j].clone(), i, j);
-      }
-    }
-    return board;
+    return new DefaultBoard(this);
   }
 
   @Override
@@ -291,28 +510,47 @@ public class DefaultBoard implements Board, Cloneable {
     boardJson.addProperty("width", width);
     boardJson.addProperty("height", height);
     boardJson.addProperty("bombCount", bombCount);
-    JsonArray tilesJson = new JsonArray();
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        Tile tile = grid[i][j];
-        JsonObject tileJson = new JsonObject();
-        tileJson.addProperty("row", tile.getRow());
-        tileJson.addProperty("column", tile.getColumn());
-        tileJson.addProperty("isBomb", tile.isBomb());
-        tileJson.addProperty("visited", tile.hasBeenVisited());
-        if (tile.hasBeenVisited()) {
-          tileJson.addProperty("adjacentBombs", tile.getAdjacentBombs());
-        }
-        tilesJson.add(tileJson);
-      }
-    }
-    boardJson.add("tiles", tilesJson);
+    boardJson.add("tiles", tilesToJson());
     String boardType = getBoardType().toString();
     // boardType = boardType.substring(boardType.indexOf('.'));
     boardJson.addProperty("type", boardType);
     return boardJson;
   }
 
+  /**
+   * Serializes every cell, straight from the packed arrays.
+   * @return A JSON array with one object per cell in row-major order.
+   */
+  protected JsonArray tilesToJson() {
+    JsonArray tilesJson = new JsonArray();
+    for (int index = 0; index < width * height; index++) {
+      tilesJson.add(cellToJson(index));
+    }
+    return tilesJson;
+  }
+
+  @Override
+  public JsonArray cellsToJson(int[] cells) {
+    JsonArray tilesJson = new JsonArray();
+    for (int index : cells) {
+      tilesJson.add(cellToJson(index));
+    }
+    return tilesJson;
+  }
+
+  private JsonObject cellToJson(int index) {
+    boolean isVisited = PackedCells.get(visited, index);
+    JsonObject tileJson = new JsonObject();
+    tileJson.addProperty("row", index / width);
+    tileJson.addProperty("column", index % width);
+    tileJson.addProperty("isBomb", layout.isMine(index));
+    tileJson.addProperty("visited", isVisited);
+    if (isVisited) {
+      tileJson.addProperty("adjacentBombs", layout.adjacentBombs(index));
+    }
+    return tileJson;
+  }
+
   protected BoardType getBoardType() {
     return BoardType.DEFAULT;
   }
@@ -326,7 +564,8 @@ public class DefaultBoard implements Board, Cloneable {
     final int prime = 31;
     int result = 1;
     result = prime * result + bombCount;
-    result = prime * result + Arrays.hashCode(grid);
+    result = prime * result + layout.hashCode();
+    result = prime * result + Arrays.hashCode(visited);
     result = prime * result + height;
     result = prime * result + width;
     return result;
@@ -351,7 +590,8 @@ public class DefaultBoard implements Board, Cloneable {
     if (bombCount != other.bombCount) {
       return false;
     }
-    if (!Arrays.deepEquals(grid, other.grid)) {
+    if (!layout.equals(other.layout)
+        || !Arrays.equals(visited, other.visited)) {
       return false;
     }
     if (height != other.height) {
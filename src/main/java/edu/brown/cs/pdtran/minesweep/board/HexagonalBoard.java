@@ -1,8 +1,5 @@
 package edu.brown.cs.pdtran.minesweep.board;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import edu.brown.cs.pdtran.minesweep.tile.Tile;
 import edu.brown.cs.pdtran.minesweep.types.BoardType;
 
@@ -13,7 +10,6 @@ import edu.brown.cs.pdtran.minesweep.types.BoardType;
 public class HexagonalBoard extends DefaultBoard implements Board,
     Cloneable {
 
-  private static final int ADJACENT_ARRAY_SIZE = 3;
   private static final int SURROUNDING_TILES = 6;
 
   /**
@@ -26,6 +22,17 @@ public class HexagonalBoard extends DefaultBoard implements Board,
     super(width, height, mines);
   }
 
+  /**
+   * The constructor for a board generated from a seed.
+   * @param width An integer representing the width in tiles.
+   * @param height An integer representing the height in tiles.
+   * @param mines The number of mines on the board.
+   * @param seed The seed to generate the board from.
+   */
+  public HexagonalBoard(int width, int height, int mines, long seed) {
+    super(width, height, mines, seed);
+  }
+
   /**
    * The Constructor.
    * @param grid the tile grid. Use only for testing.
@@ -34,9 +41,27 @@ public class HexagonalBoard extends DefaultBoard implements Board,
     super(grid);
   }
 
-  @Override
-  public List<Tile> getAdjacentTiles(int row, int col) {
-    List<Tile> tiles = new ArrayList<>(ADJACENT_ARRAY_SIZE);
+  /**
+   * Copies another board. Used by clone.
+   * @param other The board to copy.
+   */
+  protected HexagonalBoard(HexagonalBoard other) {
+    super(other);
+  }
+
+  /**
+   * Finds the neighbors of a cell on a grid of hexagons, where odd columns
+   * are shifted half a tile down.
+   * @param row The row of the cell.
+   * @param col The col of the cell.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param out The buffer to write neighbor indices into.
+   * @return The number of neighbors written.
+   */
+  static int hexagonalNeighbors(int row, int col, int width, int height,
+      int[] out) {
+    int found = 0;
 
     boolean isIndented = col % 2 == 1; // decides which side the isoceles
     // triangle
@@ -45,34 +70,21 @@ public class HexagonalBoard extends DefaultBoard implements Board,
     int dRow = isIndented ? row : row - 1;
 
     for (int i = -1; i <= 1; i += 2) {
-      if (isWithinBoard(col, row + i)) {
-        tiles.add(grid[row + i][col]);
+      if (withinBounds(col, row + i, width, height)) {
+        out[found++] = (row + i) * width + col;
       }
     }
 
     for (int i = -1; i <= 1; i += 2) {
       for (int j = 0; j <= 1; j++) {
-        if (isWithinBoard(col + i, dRow + j)) {
-          tiles.add(grid[dRow + j][col + i]);
+        if (withinBounds(col + i, dRow + j, width, height)) {
+          out[found++] = (dRow + j) * width + col + i;
         }
       }
-
-      assert (tiles.size() <= SURROUNDING_TILES);
-
-      // for (int newCol = -1; newCol <= 1; newCol++) {
-      // // System.out.println("newCol:");
-      // for (int i = 0; i <= 1; i++) {
-      // if (isWithinBoard(col + newCol, dRow + i) && newCol == 0) {
-      // Tile t = getTile(dRow + i, col + newCol);
-      // tiles.add(t);
-      // // System.out.println("hello");
-      // // System.out.println(t.getColumn());
-      // }
-      // }
     }
 
-
-    return tiles;
+    assert (found <= SURROUNDING_TILES);
+    return found;
   }
 
   @Override
@@ -82,13 +94,7 @@ public class HexagonalBoard extends DefaultBoard implements Board,
 
   @Override
   public HexagonalBoard clone() {
-    Tile[][] newGrid = new Tile[getHeight()][getWidth()];
-    for (int i = 0; i < newGrid.length; i++) {
-      for (int j = 0; j < grid[0].length; j++) {
-        newGrid[i][j] = grid[i][j].clone();
-      }
-    }
-    return new HexagonalBoard(newGrid);
+    return new HexagonalBoard(this);
   }
 
 }
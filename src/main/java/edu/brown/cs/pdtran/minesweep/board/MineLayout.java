@@ -0,0 +1,148 @@
+package edu.brown.cs.pdtran.minesweep.board;
+
+import java.util.Arrays;
+
+/**
+ * The part of a board that every team shares: where the mines are, how
+ * many mines touch each cell, and which cells are adjacent. A layout is
+ * filled in while its board is built and is never written once another
+ * board shares it; boards that need to change a shared layout copy it
+ * first.
+ * @author agokasla
+ */
+final class MineLayout {
+
+  private final int width;
+  private final int height;
+  private final long[] mines;
+  private final byte[] counts;
+  private final NeighborTable neighbors;
+  private int safeCells;
+
+  /**
+   * Makes an empty layout, with no mines, for a board shape.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param neighbors The neighbor table for the shape.
+   */
+  MineLayout(int width, int height, NeighborTable neighbors) {
+    int cells = width * height;
+    this.width = width;
+    this.height = height;
+    this.mines = PackedCells.newBits(cells);
+    this.counts = PackedCells.newNibbles(cells);
+    this.neighbors = neighbors;
+    this.safeCells = cells;
+  }
+
+  private MineLayout(MineLayout other) {
+    this.width = other.width;
+    this.height = other.height;
+    this.mines = other.mines.clone();
+    this.counts = other.counts.clone();
+    this.neighbors = other.neighbors;
+    this.safeCells = other.safeCells;
+  }
+
+  /**
+   * Makes a private copy of this layout that can be written to.
+   * @return The copy.
+   */
+  MineLayout copy() {
+    return new MineLayout(this);
+  }
+
+  /**
+   * Tells you if a cell holds a mine.
+   * @param index The index of the cell.
+   * @return True if the cell is a mine.
+   */
+  boolean isMine(int index) {
+    return PackedCells.get(mines, index);
+  }
+
+  /**
+   * Places or removes a mine.
+   * @param index The index of the cell.
+   * @param isMine Whether the cell should hold a mine.
+   */
+  void setMine(int index, boolean isMine) {
+    if (isMine == isMine(index)) {
+      return;
+    }
+    if (isMine) {
+      PackedCells.set(mines, index);
+      safeCells--;
+    } else {
+      PackedCells.clear(mines, index);
+      safeCells++;
+    }
+  }
+
+  /**
+   * Gets the number of mines touching a cell.
+   * @param index The index of the cell.
+   * @return The adjacent mine count.
+   */
+  int adjacentBombs(int index) {
+    return PackedCells.getNibble(counts, index);
+  }
+
+  /**
+   * Stores the number of mines touching a cell.
+   * @param index The index of the cell.
+   * @param count The adjacent mine count.
+   */
+  void setAdjacentBombs(int index, int count) {
+    PackedCells.setNibble(counts, index, count);
+  }
+
+  /**
+   * Gets the neighbor table of the shape this layout was built for.
+   * @return The shared neighbor table.
+   */
+  NeighborTable getNeighborTable() {
+    return neighbors;
+  }
+
+  /**
+   * Gets the number of cells that are not mines.
+   * @return The number of safe cells.
+   */
+  int getSafeCells() {
+    return safeCells;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + Arrays.hashCode(mines);
+    result = prime * result + Arrays.hashCode(counts);
+    result = prime * result + height;
+    result = prime * result + width;
+    return result;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof MineLayout)) {
+      return false;
+    }
+    MineLayout other = (MineLayout) obj;
+    return width == other.width && height == other.height
+        && Arrays.equals(mines, other.mines)
+        && Arrays.equals(counts, other.counts);
+  }
+}
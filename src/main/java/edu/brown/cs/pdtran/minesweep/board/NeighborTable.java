@@ -0,0 +1,200 @@
+package edu.brown.cs.pdtran.minesweep.board;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+
+/**
+ * The adjacency of every cell on a board, stored in compressed sparse row
+ * form. Cells are addressed by their row-major index, row * width +
+ * column. The neighbors of cell c are get(k) for every k from start(c)
+ * (inclusive) to end(c) (exclusive), so walking them allocates nothing.
+ * <p>
+ * Tables depend only on the board type and dimensions, so one table is
+ * built per shape and shared by every board of that shape.
+ * @author agokasla
+ */
+public final class NeighborTable {
+
+  /**
+   * Writes the neighbors of one cell into a buffer.
+   */
+  interface Geometry {
+    /**
+     * Finds the neighbors of a cell.
+     * @param row The row of the cell.
+     * @param col The col of the cell.
+     * @param out The buffer to write neighbor indices into.
+     * @return The number of neighbors written.
+     */
+    int neighbors(int row, int col, int[] out);
+  }
+
+  private static final int MAX_DEGREE = 16;
+  private static final ConcurrentMap<Shape, NeighborTable> SHARED =
+      new ConcurrentHashMap<>();
+
+  private final int width;
+  private final int height;
+  private final int[] offsets;
+  private final int[] indices;
+
+  private NeighborTable(int width, int height, int[] offsets,
+      int[] indices) {
+    this.width = width;
+    this.height = height;
+    this.offsets = offsets;
+    this.indices = indices;
+  }
+
+  /**
+   * Gets the shared table for a board shape, building it the first time
+   * the shape is seen.
+   * @param type The type of the board.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @return The table for that shape.
+   */
+  public static NeighborTable forShape(BoardType type, int width,
+      int height) {
+    return SHARED.computeIfAbsent(new Shape(type, width, height),
+        (shape) -> build(width, height, geometryOf(type, width, height)));
+  }
+
+  private static Geometry geometryOf(BoardType type, int width,
+      int height) {
+    switch (type) {
+      case HEXAGONAL:
+        return (row, col, out) -> HexagonalBoard.hexagonalNeighbors(row,
+            col, width, height, out);
+      case TRIANGULAR:
+        return (row, col, out) -> TriangularBoard.triangularNeighbors(row,
+            col, width, height, out);
+      case DEFAULT:
+      case RECTANGULAR:
+      default:
+        return (row, col, out) -> DefaultBoard.squareNeighbors(row, col,
+            width, height, out);
+    }
+  }
+
+  /**
+   * Builds a table by asking a geometry for the neighbors of each cell.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param geometry The geometry of the board.
+   * @return The built table.
+   */
+  static NeighborTable build(int width, int height, Geometry geometry) {
+    int cells = width * height;
+    int[] offsets = new int[cells + 1];
+    int[] indices = new int[cells * MAX_DEGREE / 2];
+    int[] buffer = new int[MAX_DEGREE];
+    int size = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int found = geometry.neighbors(row, col, buffer);
+        if (size + found > indices.length) {
+          indices = Arrays.copyOf(indices,
+              Math.max(indices.length * 2, size + found));
+        }
+        System.arraycopy(buffer, 0, indices, size, found);
+        size += found;
+        offsets[row * width + col + 1] = size;
+      }
+    }
+    return new NeighborTable(width, height, offsets,
+        Arrays.copyOf(indices, size));
+  }
+
+  /**
+   * Gets the position of a cell's first neighbor.
+   * @param cell The index of the cell.
+   * @return The first position to pass to get.
+   */
+  public int start(int cell) {
+    return offsets[cell];
+  }
+
+  /**
+   * Gets the position just past a cell's last neighbor.
+   * @param cell The index of the cell.
+   * @return The position to stop before.
+   */
+  public int end(int cell) {
+    return offsets[cell + 1];
+  }
+
+  /**
+   * Gets a neighbor by position.
+   * @param position A position between start and end of some cell.
+   * @return The index of the neighboring cell.
+   */
+  public int get(int position) {
+    return indices[position];
+  }
+
+  /**
+   * Gets how many neighbors a cell has.
+   * @param cell The index of the cell.
+   * @return The number of neighbors.
+   */
+  public int degree(int cell) {
+    return offsets[cell + 1] - offsets[cell];
+  }
+
+  /**
+   * Gets the width of the boards this table describes.
+   * @return The width in cells.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the boards this table describes.
+   * @return The height in cells.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * The key tables are shared under.
+   */
+  private static final class Shape {
+    private final BoardType type;
+    private final int width;
+    private final int height;
+
+    Shape(BoardType type, int width, int height) {
+      this.type = type;
+      this.width = width;
+      this.height = height;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = type.hashCode();
+      result = prime * result + width;
+      result = prime * result + height;
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Shape)) {
+        return false;
+      }
+      Shape other = (Shape) obj;
+      return type == other.type && width == other.width
+          && height == other.height;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package edu.brown.cs.pdtran.minesweep.board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+
+/**
+ * Generates boards that can be cleared without guessing. Candidate layouts
+ * are drawn from seeds derived from the requested one and checked with a
+ * NoGuessSolver, a batch at a time on a ForkJoinPool. The first solvable
+ * candidate in seed order wins, so the result depends only on the seed,
+ * not on how the batch was scheduled.
+ * <p>
+ * The winning board is returned with its opening already revealed, since
+ * that is the cell the solver started from. If no candidate is solvable
+ * within MAX_CANDIDATES, or within the time the caller allows, the plain
+ * board for the seed is returned instead. Such a fallback is logged and
+ * counted apart from the no-guess boards. A fallback caused by the time
+ * limit may not happen again when the seed is replayed.
+ * @author agokasla
+ */
+public final class NoGuessGenerator {
+
+  private static final int MAX_CANDIDATES = 1024;
+  private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+  private static final double NANOS_PER_SECOND = 1e9;
+  private static final AtomicLong BOARDS = new AtomicLong();
+  private static final AtomicLong FALLBACKS = new AtomicLong();
+  private static final AtomicLong CANDIDATES = new AtomicLong();
+  private static final AtomicLong NANOS = new AtomicLong();
+
+  private NoGuessGenerator() {
+
+  }
+
+  /**
+   * Makes a board that can be cleared without guessing.
+   * @param type The type of the board.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param mines The number of mines on the board.
+   * @param seed The seed to generate the board from.
+   * @param maxNanos How long to look for a no-guess board before falling
+   *        back to the plain one, or Long.MAX_VALUE for no limit.
+   * @return The board, with its opening revealed if it is a no-guess one.
+   */
+  static Board makeBoard(BoardType type, int width, int height, int mines,
+      long seed, long maxNanos) {
+    long begin = System.nanoTime();
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    int batch = Math.max(1, pool.getParallelism());
+    DefaultBoard found = null;
+    int tried = 0;
+    while (found == null && tried < MAX_CANDIDATES
+        && System.nanoTime() - begin < maxNanos) {
+      List<ForkJoinTask<DefaultBoard>> tasks = new ArrayList<>(batch);
+      for (int i = 0; i < batch; i++) {
+        long candidateSeed = seed + (tried + i) * SEED_STEP;
+        tasks.add(pool.submit(
+            () -> candidate(type, width, height, mines, candidateSeed)));
+      }
+      for (ForkJoinTask<DefaultBoard> task : tasks) {
+        DefaultBoard board = task.join();
+        if (found == null) {
+          found = board;
+        }
+      }
+      tried += batch;
+    }
+    CANDIDATES.addAndGet(tried);
+    NANOS.addAndGet(System.nanoTime() - begin);
+    if (found == null) {
+      FALLBACKS.incrementAndGet();
+      System.out.printf("No no-guess board found in %d candidates for "
+          + "seed %d; using the plain board.%n", tried, seed);
+      return BoardFactory.makeBoard(type, width, height, mines, seed);
+    }
+    BOARDS.incrementAndGet();
+    int start = opening(found);
+    found.makeMove(start / width, start % width);
+    return found;
+  }
+
+  /**
+   * Builds the board for one seed and checks it.
+   * @param type The type of the board.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param mines The number of mines on the board.
+   * @param seed The seed of the candidate.
+   * @return The board if it can be cleared without guessing, else null.
+   */
+  private static DefaultBoard candidate(BoardType type, int width,
+      int height, int mines, long seed) {
+    DefaultBoard board =
+        (DefaultBoard) BoardFactory.makeBoard(type, width, height, mines,
+            seed);
+    int start = opening(board);
+    if (start < 0 || !NoGuessSolver.isSolvable(board, start)) {
+      return null;
+    }
+    return board;
+  }
+
+  /**
+   * Finds the empty cell closest to the middle of the board, which is
+   * where the solver starts.
+   * @param board The board.
+   * @return The index of the cell, or -1 if no cell is empty.
+   */
+  private static int opening(DefaultBoard board) {
+    int width = board.getWidth();
+    int height = board.getHeight();
+    int best = -1;
+    int bestDistance = Integer.MAX_VALUE;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int cell = row * width + col;
+        int distance = Math.abs(2 * row - height) + Math.abs(2 * col - width);
+        if (distance < bestDistance && !board.isMine(cell)
+            && board.adjacentBombs(cell) == 0) {
+          best = cell;
+          bestDistance = distance;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets the number of no-guess boards made so far.
+   * @return The number of boards.
+   */
+  public static long getBoardsGenerated() {
+    return BOARDS.get();
+  }
+
+  /**
+   * Gets the number of plain boards handed out because no no-guess board
+   * was found in time.
+   * @return The number of fallbacks.
+   */
+  public static long getFallbacks() {
+    return FALLBACKS.get();
+  }
+
+  /**
+   * Gets the number of candidate layouts checked so far.
+   * @return The number of candidates.
+   */
+  public static long getCandidatesChecked() {
+    return CANDIDATES.get();
+  }
+
+  /**
+   * Gets how many no-guess boards have been made per second of time spent
+   * making them.
+   * @return The throughput in boards per second.
+   */
+  public static double getBoardsPerSecond() {
+    long nanos = NANOS.get();
+    if (nanos == 0) {
+      return 0;
+    }
+    return BOARDS.get() * NANOS_PER_SECOND / nanos;
+  }
+}
@@ -0,0 +1,258 @@
+package edu.brown.cs.pdtran.minesweep.board;
+
+/**
+ * Decides whether a board can be cleared from an opening without ever
+ * guessing. The solver plays the board the way a careful player would,
+ * using only what the revealed numbers say:
+ * <ul>
+ * <li>a number whose mines are all flagged makes its other hidden
+ * neighbors safe, and one with as many hidden neighbors as unflagged
+ * mines makes them all mines;</li>
+ * <li>when one number's hidden neighbors are a subset of another's, the
+ * difference holds the difference of their mines, which the first rule
+ * is then applied to;</li>
+ * <li>once every mine or every safe cell is accounted for, the rest of
+ * the board follows.</li>
+ * </ul>
+ * It never looks at where the mines are except to learn the number under
+ * a cell it has proved safe, so a board it clears can be cleared by a
+ * player.
+ * @author agokasla
+ */
+final class NoGuessSolver {
+
+  private static final byte HIDDEN = 0;
+  private static final byte REVEALED = 1;
+  private static final byte FLAGGED = 2;
+
+  private final DefaultBoard board;
+  private final NeighborTable table;
+  private final int cells;
+  private final byte[] state;
+  private final int[] queue;
+  private final int[] hiddenA;
+  private final int[] hiddenB;
+  private int hiddenCount;
+  private int flaggedCount;
+  private int safeLeft;
+
+  private NoGuessSolver(DefaultBoard board) {
+    this.board = board;
+    this.table = board.getNeighborTable();
+    this.cells = board.getWidth() * board.getHeight();
+    this.state = new byte[cells];
+    this.queue = new int[cells];
+    this.hiddenA = new int[cells];
+    this.hiddenB = new int[cells];
+    this.hiddenCount = cells;
+    this.safeLeft = cells - board.getBombCount();
+  }
+
+  /**
+   * Tells you if a board can be cleared without guessing once a cell has
+   * been revealed.
+   * @param board The board to check. It is not changed.
+   * @param start The index of the safe cell revealed first.
+   * @return True if every safe cell can be proved safe.
+   */
+  static boolean isSolvable(DefaultBoard board, int start) {
+    NoGuessSolver solver = new NoGuessSolver(board);
+    solver.reveal(start);
+    return solver.solve();
+  }
+
+  private boolean solve() {
+    boolean progress = true;
+    while (safeLeft > 0 && progress) {
+      progress = applySingleRules();
+      if (!progress) {
+        progress = applySubsetRule();
+      }
+      if (!progress) {
+        progress = applyCountRule();
+      }
+    }
+    return safeLeft == 0;
+  }
+
+  /**
+   * Applies the rules that need only one number at a time.
+   * @return True if any cell was revealed or flagged.
+   */
+  private boolean applySingleRules() {
+    boolean progress = false;
+    for (int cell = 0; cell < cells; cell++) {
+      if (state[cell] != REVEALED) {
+        continue;
+      }
+      int hidden = collectHidden(cell, hiddenA);
+      if (hidden == 0) {
+        continue;
+      }
+      int mines = minesLeft(cell);
+      if (mines == 0) {
+        for (int i = 0; i < hidden; i++) {
+          reveal(hiddenA[i]);
+        }
+        progress = true;
+      } else if (mines == hidden) {
+        for (int i = 0; i < hidden; i++) {
+          flag(hiddenA[i]);
+        }
+        progress = true;
+      }
+    }
+    return progress;
+  }
+
+  /**
+   * Compares each number with the numbers that share a hidden neighbor
+   * with it, and applies the single rules to the difference of any pair
+   * where one is a subset of the other.
+   * @return True if any cell was revealed or flagged.
+   */
+  private boolean applySubsetRule() {
+    for (int a = 0; a < cells; a++) {
+      if (state[a] != REVEALED) {
+        continue;
+      }
+      int sizeA = collectHidden(a, hiddenA);
+      if (sizeA == 0) {
+        continue;
+      }
+      int minesA = minesLeft(a);
+      // Any number whose hidden cells contain A's touches A's first one.
+      int pivot = hiddenA[0];
+      for (int k = table.start(pivot); k < table.end(pivot); k++) {
+        int b = table.get(k);
+        if (b == a || state[b] != REVEALED) {
+          continue;
+        }
+        int sizeB = collectHidden(b, hiddenB);
+        if (sizeB <= sizeA || !contains(hiddenB, sizeB, hiddenA, sizeA)) {
+          continue;
+        }
+        int extraMines = minesLeft(b) - minesA;
+        int extraCells = sizeB - sizeA;
+        if (extraMines == 0 || extraMines == extraCells) {
+          for (int i = 0; i < sizeB; i++) {
+            int cell = hiddenB[i];
+            if (!contains(hiddenA, sizeA, cell)) {
+              if (extraMines == 0) {
+                reveal(cell);
+              } else {
+                flag(cell);
+              }
+            }
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Uses the total number of mines on the board.
+   * @return True if any cell was revealed or flagged.
+   */
+  private boolean applyCountRule() {
+    int minesLeft = board.getBombCount() - flaggedCount;
+    if (hiddenCount == 0 || (minesLeft != 0 && minesLeft != hiddenCount)) {
+      return false;
+    }
+    for (int cell = 0; cell < cells; cell++) {
+      if (state[cell] == HIDDEN) {
+        if (minesLeft == 0) {
+          reveal(cell);
+        } else {
+          flag(cell);
+        }
+      }
+    }
+    return true;
+  }
+
+  private int collectHidden(int cell, int[] out) {
+    int found = 0;
+    for (int k = table.start(cell); k < table.end(cell); k++) {
+      int neighbor = table.get(k);
+      if (state[neighbor] == HIDDEN) {
+        out[found++] = neighbor;
+      }
+    }
+    return found;
+  }
+
+  private int minesLeft(int cell) {
+    int mines = board.adjacentBombs(cell);
+    for (int k = table.start(cell); k < table.end(cell); k++) {
+      if (state[table.get(k)] == FLAGGED) {
+        mines--;
+      }
+    }
+    return mines;
+  }
+
+  private static boolean contains(int[] set, int size, int[] subset,
+      int subsetSize) {
+    for (int i = 0; i < subsetSize; i++) {
+      if (!contains(set, size, subset[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean contains(int[] set, int size, int cell) {
+    for (int i = 0; i < size; i++) {
+      if (set[i] == cell) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void flag(int cell) {
+    if (state[cell] == HIDDEN) {
+      assert (board.isMine(cell));
+      state[cell] = FLAGGED;
+      hiddenCount--;
+      flaggedCount++;
+    }
+  }
+
+  /**
+   * Reveals a cell proved safe, cascading through empty cells the way the
+   * board does.
+   * @param start The cell to reveal.
+   */
+  private void reveal(int start) {
+    if (state[start] != HIDDEN) {
+      return;
+    }
+    int size = 0;
+    queue[size++] = start;
+    markRevealed(start);
+    for (int head = 0; head < size; head++) {
+      int cell = queue[head];
+      if (board.adjacentBombs(cell) != 0) {
+        continue;
+      }
+      for (int k = table.start(cell); k < table.end(cell); k++) {
+        int neighbor = table.get(k);
+        if (state[neighbor] == HIDDEN) {
+          markRevealed(neighbor);
+          queue[size++] = neighbor;
+        }
+      }
+    }
+  }
+
+  private void markRevealed(int cell) {
+    assert (!board.isMine(cell));
+    state[cell] = REVEALED;
+    hiddenCount--;
+    safeLeft--;
+  }
+}
@@ -0,0 +1,96 @@
+package edu.brown.cs.pdtran.minesweep.board;
+
+/**
+ * Static helpers for the primitive arrays boards keep their cells in. Cell
+ * flags are stored one bit per cell in long[] bitsets, and adjacent-mine
+ * counts are stored one nibble per cell in byte[] arrays. Cells are
+ * addressed by their row-major index.
+ * @author agokasla
+ */
+final class PackedCells {
+
+  private static final int WORD_SHIFT = 6;
+  private static final int NIBBLE_BITS = 4;
+  private static final int NIBBLE_MASK = 0xF;
+
+  /**
+   * The largest count a nibble can hold.
+   */
+  static final int MAX_COUNT = NIBBLE_MASK;
+
+  private PackedCells() {
+
+  }
+
+  /**
+   * Allocates a bitset large enough for the given number of cells.
+   * @param cells The number of cells.
+   * @return A zeroed bitset.
+   */
+  static long[] newBits(int cells) {
+    return new long[(cells + Long.SIZE - 1) >>> WORD_SHIFT];
+  }
+
+  /**
+   * Allocates a nibble array large enough for the given number of cells.
+   * @param cells The number of cells.
+   * @return A zeroed nibble array.
+   */
+  static byte[] newNibbles(int cells) {
+    return new byte[(cells + 1) >>> 1];
+  }
+
+  /**
+   * Reads a bit.
+   * @param bits The bitset.
+   * @param index The cell index.
+   * @return True if the bit is set.
+   */
+  static boolean get(long[] bits, int index) {
+    return (bits[index >>> WORD_SHIFT] & (1L << index)) != 0;
+  }
+
+  /**
+   * Sets a bit.
+   * @param bits The bitset.
+   * @param index The cell index.
+   */
+  static void set(long[] bits, int index) {
+    bits[index >>> WORD_SHIFT] |= 1L << index;
+  }
+
+  /**
+   * Clears a bit.
+   * @param bits The bitset.
+   * @param index The cell index.
+   */
+  static void clear(long[] bits, int index) {
+    bits[index >>> WORD_SHIFT] &= ~(1L << index);
+  }
+
+  /**
+   * Reads a nibble.
+   * @param nibbles The nibble array.
+   * @param index The cell index.
+   * @return The value stored for the cell.
+   */
+  static int getNibble(byte[] nibbles, int index) {
+    int shift = (index & 1) * NIBBLE_BITS;
+    return (nibbles[index >>> 1] >>> shift) & NIBBLE_MASK;
+  }
+
+  /**
+   * Writes a nibble.
+   * @param nibbles The nibble array.
+   * @param index The cell index.
+   * @param value The value to store, between 0 and MAX_COUNT.
+   */
+  static void setNibble(byte[] nibbles, int index, int value) {
+    assert (value >= 0 && value <= MAX_COUNT);
+    int shift = (index & 1) * NIBBLE_BITS;
+    int slot = index >>> 1;
+    nibbles[slot] =
+        (byte) ((nibbles[slot] & ~(NIBBLE_MASK << shift))
+            | ((value & NIBBLE_MASK) << shift));
+  }
+}
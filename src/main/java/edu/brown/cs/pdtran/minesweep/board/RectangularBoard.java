@@ -1,29 +1,34 @@
 package edu.brown.cs.pdtran.minesweep.board;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import edu.brown.cs.pdtran.minesweep.tile.Tile;
 import edu.brown.cs.pdtran.minesweep.types.BoardType;
 
 /**
  * This class adds an interesting element by linking some Tiles on the
  * board.
+ * <p>
+ * Merged pairs are kept in two flat arrays indexed like the rest of the
+ * board: partner holds the other cell of a cell's pair, or NO_PARTNER,
+ * and canonical holds the cell whose tile the pair shows. Looking up a
+ * tile or its neighbors is then a single array read, as on DefaultBoard.
  * @author agokasla
  */
 public class RectangularBoard extends DefaultBoard implements Board,
 Cloneable {
 
-  private Table<Integer, Integer, List<Tile>> neighborTable;
-  // private Table<Integer, Integer, Tile> overWrittenTiles;
-  private Tile[][] links;
+  private static final int NO_PARTNER = -1;
+
+  private int[] partner;
+  private int[] canonical;
+  private boolean mergesShared;
+  private boolean hasMerges;
+  private NeighborTable mergedNeighbors;
 
   /**
    * The constructor.
@@ -32,11 +37,20 @@ Cloneable {
    * @param mines The number of mines on the board.
    */
   public RectangularBoard(int width, int height, int mines) {
-    super(width, height, mines);
-    neighborTable = HashBasedTable.create();
-    // overWrittenTiles = HashBasedTable.create();
-    links = new Tile[getHeight()][getWidth()];
-    assert (neighborTable != null);
+    this(width, height, mines, randomSeed());
+  }
+
+  /**
+   * The constructor for a board generated from a seed. The seed picks both
+   * the mines and the merged pairs.
+   * @param width The desired width of the board.
+   * @param height The desired height of the board.
+   * @param mines The number of mines on the board.
+   * @param seed The seed to generate the board from.
+   */
+  public RectangularBoard(int width, int height, int mines, long seed) {
+    super(width, height, mines, seed);
+    allocateMerges();
     reconfigureBoard(getWidth() * getHeight() / 5);
   }
 
@@ -46,26 +60,42 @@ Cloneable {
    */
   public RectangularBoard(Tile[][] grid) {
     super(grid);
-    neighborTable = HashBasedTable.create();
-    links = new Tile[getHeight()][getWidth()];
-    assert (neighborTable != null);
+    allocateMerges();
   }
 
   /**
-   * The constructor.
+   * The constructor. Each pair of cells that links to the same tile is
+   * treated as merged, with the cell that is not the linked tile shown
+   * for both. The adjacent bomb counts in the grid are used as given.
    * @param grid Allows you to specify a grid.
-   * @param neighborTile A table that contains neighbors mapped to a
-   *        certain spot on the board.
    * @param links An array of connected tiles.
    */
-  public RectangularBoard(Tile[][] grid,
-      Table<Integer, Integer, List<Tile>> neighborTile,
-      Tile[][] links) {
+  public RectangularBoard(Tile[][] grid, Tile[][] links) {
     this(grid);
-    this.neighborTable = neighborTile;
-    this.links = links;
-    // this.overWrittenTiles = overWrittenTiles;
-    assert (neighborTable != null);
+    for (int i = 0; i < getHeight(); i++) {
+      for (int j = 0; j < getWidth(); j++) {
+        Tile link = links[i][j];
+        if (link != null
+            && (link.getRow() != i || link.getColumn() != j)) {
+          pair(indexOf(i, j), indexOf(link.getRow(), link.getColumn()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies another board. Used by clone. The merged pairs are shared
+   * along with the mine layout.
+   * @param other The board to copy.
+   */
+  protected RectangularBoard(RectangularBoard other) {
+    super(other);
+    this.partner = other.partner;
+    this.canonical = other.canonical;
+    this.mergesShared = true;
+    other.mergesShared = true;
+    this.hasMerges = other.hasMerges;
+    this.mergedNeighbors = other.mergedNeighbors;
   }
 
   /**
@@ -75,107 +105,136 @@ Cloneable {
     this(16, 16, 40);
   }
 
+  private void allocateMerges() {
+    int cells = getWidth() * getHeight();
+    partner = new int[cells];
+    canonical = new int[cells];
+    Arrays.fill(partner, NO_PARTNER);
+    for (int cell = 0; cell < cells; cell++) {
+      canonical[cell] = cell;
+    }
+  }
+
   /**
-   * Reconfigures the grid as you see fit.
+   * Reconfigures the grid as you see fit. The pairs are picked from the
+   * board's seed, and fewer are made if the board runs out of cells that
+   * can be merged.
    * @param mergeNum The number you wish to merge together.
    */
   public void reconfigureBoard(int mergeNum) {
+    NeighborTable base = super.getNeighborTable();
+    SplittableRandom random = new SplittableRandom(getSeed()).split();
+    int cells = getWidth() * getHeight();
+    int[] order = new int[cells];
+    for (int cell = 0; cell < cells; cell++) {
+      order[cell] = cell;
+    }
+    int[] candidates = new int[cells];
 
+    // Visit the cells in a shuffled order, shuffling lazily as we go, so
+    // each cell is tried at most once.
+    int merged = 0;
+    for (int i = 0; i < cells && merged < mergeNum; i++) {
+      int j = i + random.nextInt(cells - i);
+      int cell = order[j];
+      order[j] = order[i];
+      order[i] = cell;
+      if (partner[cell] != NO_PARTNER) {
+        continue;
+      }
 
-    for (int i = 0; i < mergeNum; i++) {
-      int row = (int) (Math.random() * getHeight());
-      int col = (int) (Math.random() * getWidth());
-
-      while (links[row][col] != null) {
-        row = (int) (Math.random() * getHeight());
-        col = (int) (Math.random() * getWidth());
+      int row = cell / width;
+      int col = cell % width;
+      int found = 0;
+      for (int k = base.start(cell); k < base.end(cell); k++) {
+        int neighbor = base.get(k);
+        if ((neighbor % width == col || neighbor / width == row)
+            && partner[neighbor] == NO_PARTNER && !isMine(neighbor)) {
+          candidates[found++] = neighbor;
+        }
       }
 
-      final int finalRow = row;
-      final int finalCol = col;
-
-      List<Tile> candidateList =
-          super
-              .getAdjacentTiles(finalRow, finalCol)
-              .stream()
-              .filter(
-                  (t) -> (t.getColumn() == finalCol || t.getRow() == finalRow)
-                      && (links[t.getRow()][t.getColumn()] == null)
-              && !(t.getColumn() == finalCol && t.getRow() == finalRow)
-                      && !t.isBomb()).collect(Collectors.toList());
-
-      if (candidateList.isEmpty()) {
-        i--;
-        continue;
+      if (found > 0) {
+        int randomCell = candidates[random.nextInt(found)];
+        assert (!isMine(randomCell));
+        mergeTiles(row, col, randomCell / width, randomCell % width);
+        merged++;
       }
-      Tile randomTile =
-          candidateList.get((int) (Math.random() * candidateList.size()));
-      assert (!randomTile.isBomb());
-      assert (!randomTile.hasBeenVisited());
-      mergeTiles(finalRow, finalCol, randomTile.getRow(),
-          randomTile.getColumn());
-      assert (randomTile != null);
     }
   }
 
   @Override
   public Tile getTile(int row, int col) {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        Tile tempTile = links[i][j];
-        if (tempTile != null) {
-          if ((i != row || j != col) && tempTile.getRow() == row
-              && tempTile.getColumn() == col) {
-            row = i;
-            col = j;
-          }
-        }
-      }
-    }
-    return super.getTile(row, col);
+    int cell = canonical[indexOf(row, col)];
+    return tileAt(cell / width, cell % width);
   }
 
   private void mergeTiles(int row, int col, int row2, int col2) {
-    System.out.println("merging row " + row + " column " + col
-        + " with row " + row2 + " and col " + col2);
-    Tile tile = getTile(row, col);
-    Tile tile2merge = getTile(row2, col2);
-    tile.setAdjacentBombs(tile.getAdjacentBombs()
-        + tile2merge.getAdjacentBombs());
-    List<Tile> neighbors = super.getAdjacentTiles(row, col);
-    neighbors.addAll(super.getAdjacentTiles(row2, col2));
-    neighbors.remove(super.getTile(row, col));
-    neighbors.remove(super.getTile(row2, col2));
-    neighborTable.put(row, col, neighbors);
-    neighborTable.put(row2, col2, neighbors);
-    links[row][col] = tile2merge;
-    links[row2][col2] = tile2merge;
-    // overWrittenTiles.put(row2, col2, tile);
-    // WE CANT DO THIS BECAUSE IT SCREWS UP THE DRAWING
-    // FOR WHATEVER REASON, THE TILE DOESNT GET UPDATED>
-    // setTile(tile, row2, col2);
+    int cell = indexOf(row, col);
+    int cell2 = indexOf(row2, col2);
+    setAdjacentBombs(row, col, adjacentBombs(cell) + adjacentBombs(cell2));
+    pair(cell, cell2);
+  }
+
+  /**
+   * Records two cells as merged, with the first shown for both.
+   * @param cell The cell whose tile the pair shows.
+   * @param cell2 The cell merged into it.
+   */
+  private void pair(int cell, int cell2) {
+    if (mergesShared) {
+      partner = partner.clone();
+      canonical = canonical.clone();
+      mergesShared = false;
+    }
+    partner[cell] = cell2;
+    partner[cell2] = cell;
+    canonical[cell2] = cell;
+    hasMerges = true;
+    mergedNeighbors = null;
   }
 
   @Override
-  public List<Tile> getAdjacentTiles(int row, int col) {
-    if (neighborTable != null && neighborTable.contains(row, col)) {
-      return neighborTable.get(row, col);
-    } else {
-      return super.getAdjacentTiles(row, col);
+  public NeighborTable getNeighborTable() {
+    // Called by the superclass constructor before any pairs exist.
+    if (!hasMerges) {
+      return super.getNeighborTable();
+    }
+    if (mergedNeighbors == null) {
+      NeighborTable base = super.getNeighborTable();
+      mergedNeighbors = NeighborTable.build(width, height,
+          (row, col, out) -> {
+            int cell = indexOf(row, col);
+            int other = partner[cell];
+            int found = 0;
+            for (int k = base.start(cell); k < base.end(cell); k++) {
+              if (base.get(k) != other) {
+                out[found++] = base.get(k);
+              }
+            }
+            if (other == NO_PARTNER) {
+              return found;
+            }
+            int own = found;
+            for (int k = base.start(other); k < base.end(other); k++) {
+              int neighbor = base.get(k);
+              boolean seen = neighbor == cell;
+              for (int m = 0; m < own && !seen; m++) {
+                seen = out[m] == neighbor;
+              }
+              if (!seen) {
+                out[found++] = neighbor;
+              }
+            }
+            return found;
+          });
     }
+    return mergedNeighbors;
   }
 
   @Override
   public RectangularBoard clone() {
-    Tile[][] newGrid = new Tile[getHeight()][getWidth()];
-    for (int i = 0; i < newGrid.length; i++) {
-      for (int j = 0; j < grid[0].length; j++) {
-        newGrid[i][j] = grid[i][j].clone();
-      }
-    }
-    return new RectangularBoard(newGrid,
-        HashBasedTable.create(neighborTable),
-        links.clone());
+    return new RectangularBoard(this);
   }
 
   @Override
@@ -189,22 +248,7 @@ Cloneable {
     boardJson.addProperty("width", getWidth());
     boardJson.addProperty("height", getHeight());
     boardJson.addProperty("bombCount", bombCount);
-    JsonArray tilesJson = new JsonArray();
-    for (int i = 0; i < getHeight(); i++) {
-      for (int j = 0; j < getWidth(); j++) {
-        Tile tile = grid[i][j];
-        JsonObject tileJson = new JsonObject();
-        tileJson.addProperty("row", tile.getRow());
-        tileJson.addProperty("column", tile.getColumn());
-        tileJson.addProperty("isBomb", tile.isBomb());
-        tileJson.addProperty("visited", tile.hasBeenVisited());
-        if (tile.hasBeenVisited()) {
-          tileJson.addProperty("adjacentBombs", tile.getAdjacentBombs());
-        }
-        tilesJson.add(tileJson);
-      }
-    }
-    boardJson.add("tiles", tilesJson);
+    boardJson.add("tiles", tilesToJson());
     boardJson.addProperty("type", getBoardType().toString());
     Gson gson = new Gson();
     /*
@@ -214,11 +258,17 @@ Cloneable {
      * c.keySet()) { output += "," + j + ")"; neighborMap.put(output,
      * overWrittenTiles.get(i, j)); } }
      */
-    boardJson.add("tilesArray",
-        (new JsonParser()).parse(gson.toJson(links))
-        .getAsJsonArray());
-
-    System.out.println(boardJson.toString());
+    Tile[][] linkedTiles = new Tile[getHeight()][getWidth()];
+    for (int i = 0; i < getHeight(); i++) {
+      for (int j = 0; j < getWidth(); j++) {
+        int cell = indexOf(i, j);
+        if (partner[cell] != NO_PARTNER) {
+          int link = canonical[cell] == cell ? partner[cell] : cell;
+          linkedTiles[i][j] = tileAt(link / width, link % width);
+        }
+      }
+    }
+    boardJson.add("tilesArray", gson.toJsonTree(linkedTiles));
 
     return boardJson;
   }
@@ -1,8 +1,5 @@
 package edu.brown.cs.pdtran.minesweep.board;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import edu.brown.cs.pdtran.minesweep.tile.Tile;
 import edu.brown.cs.pdtran.minesweep.types.BoardType;
 
@@ -13,8 +10,6 @@ import edu.brown.cs.pdtran.minesweep.types.BoardType;
 public class TriangularBoard extends DefaultBoard implements Board,
 Cloneable {
 
-  private static final int ADJACENT_ARRAY_SIZE = 3;
-
   /**
    * The constructor.
    */
@@ -30,6 +25,14 @@ Cloneable {
     super(grid);
   }
 
+  /**
+   * Copies another board. Used by clone.
+   * @param other The board to copy.
+   */
+  protected TriangularBoard(TriangularBoard other) {
+    super(other);
+  }
+
   /**
    * Constucts a triangular board.
    * @param width The width of the tiles in the board.
@@ -40,9 +43,29 @@ Cloneable {
     super(width, height, mines);
   }
 
-  @Override
-  public List<Tile> getAdjacentTiles(int row, int col) {
-    List<Tile> tiles = new ArrayList<>(ADJACENT_ARRAY_SIZE);
+  /**
+   * Constucts a triangular board generated from a seed.
+   * @param width The width of the tiles in the board.
+   * @param height The height of the tiles in the board.
+   * @param mines The total number of mines in the board.
+   * @param seed The seed to generate the board from.
+   */
+  public TriangularBoard(int width, int height, int mines, long seed) {
+    super(width, height, mines, seed);
+  }
+
+  /**
+   * Finds the neighbors of a cell on a strip of alternating triangles.
+   * @param row The row of the cell.
+   * @param col The col of the cell.
+   * @param width The width of the board.
+   * @param height The height of the board.
+   * @param out The buffer to write neighbor indices into.
+   * @return The number of neighbors written.
+   */
+  static int triangularNeighbors(int row, int col, int width, int height,
+      int[] out) {
+    int found = 0;
 
     boolean goDown = col % 2 == 0; // decides which side the isoceles
     // triangle
@@ -50,16 +73,16 @@ Cloneable {
     int newRow = goDown ? row - 1 : row + 1;
     int newCol = goDown ? col + 1 : col - 1;
 
-    if (isWithinBoard(newCol, newRow)) {
-      tiles.add(grid[newRow][newCol]);
+    if (withinBounds(newCol, newRow, width, height)) {
+      out[found++] = newRow * width + newCol;
     }
 
     for (int i = -1; i <= 1; i += 2) {
-      if (isWithinBoard(row, col + i)) {
-        tiles.add(grid[row][col + i]);
+      if (withinBounds(col + i, row, width, height)) {
+        out[found++] = row * width + col + i;
       }
     }
-    return tiles;
+    return found;
   }
 
   @Override
@@ -69,13 +92,7 @@ Cloneable {
 
   @Override
   public TriangularBoard clone() {
-    Tile[][] newGrid = new Tile[getHeight()][getWidth()];
-    for (int i = 0; i < newGrid.length; i++) {
-      for (int j = 0; j < grid[0].length; j++) {
-        newGrid[i][j] = grid[i][j].clone();
-      }
-    }
-    return new TriangularBoard(newGrid);
+    return new TriangularBoard(this);
   }
 
 }
@@ -1,6 +1,7 @@
 package edu.brown.cs.pdtran.minesweep.games;
 
 import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.player.TeamAnalysis;
 
 /**
  * An interface that holds a board.
@@ -14,4 +15,25 @@ public interface BoardData {
    */
   Board getCurrentBoard();
 
+  /**
+   * Gets the cells revealed on a board since a reader last looked, so the
+   * reader can follow the board without scanning all of it. Reveals are
+   * numbered from zero for each board.
+   * @param board The board the reader is following.
+   * @param from The number of reveals the reader has already seen.
+   * @return The row-major indices of the cells revealed since, in order,
+   *         or null if no log is kept for the board, such as when it is
+   *         no longer the current one, and it has to be scanned.
+   */
+  default int[] getRevealsSince(Board board, int from) {
+    return null;
+  }
+
+  /**
+   * Gets the analysis of the board shared by the AIs that read it.
+   * @return The analysis, or null if each AI keeps its own.
+   */
+  default TeamAnalysis getAnalysis() {
+    return null;
+  }
 }
@@ -0,0 +1,306 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.BoardFactory;
+import edu.brown.cs.pdtran.minesweep.setup.GameSpecs;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+
+/**
+ * Keeps boards generated ahead of time, so starting a game does not have
+ * to wait for its boards to be built.
+ * <p>
+ * Boards are pooled in sets, one set per game, keyed by board type,
+ * dimensions, mine count, the number of boards the game uses and whether
+ * they must be solvable without guessing. Every key a game asks for, or
+ * a waiting room is warmed with, is queued for a background worker that
+ * tops it back up. Each key holds a bounded number of sets and the pool
+ * as a whole a bounded number of boards. A key whose sets have all been
+ * taken and that cannot be topped up is dropped, so keys nobody asks for
+ * any more do not pile up either. If generating a key's boards fails,
+ * the failure is logged and the worker moves on to the next key.
+ * <p>
+ * The boards in a set are generated from consecutive seeds. When a game
+ * takes a pooled set, the first of those seeds is recorded in its specs,
+ * so it can be replayed exactly like a game whose seed was given. Games
+ * with a given seed never take pooled boards.
+ * <p>
+ * A miss generates the boards on the calling thread, which is usually a
+ * session's loop, so it looks for no-guess boards for at most
+ * MISS_MILLIS per board before falling back to plain ones. The worker has
+ * no such limit.
+ * @author Clayton Sanford
+ */
+public class BoardPool {
+
+  private static final int DEFAULT_SETS_PER_KEY = 4;
+  private static final int DEFAULT_MAX_BOARDS = 256;
+  private static final long MISS_MILLIS = 250;
+
+  private final int setsPerKey;
+  private final int maxBoards;
+  private final ConcurrentMap<Key, BlockingQueue<BoardSet>> pools;
+  private final BlockingQueue<Key> refills;
+  private final Set<Key> queued;
+  private final AtomicInteger pooledBoards;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final Thread worker;
+
+  /**
+   * Makes a pool with the default bounds.
+   */
+  public BoardPool() {
+    this(DEFAULT_SETS_PER_KEY, DEFAULT_MAX_BOARDS);
+  }
+
+  /**
+   * Makes a pool.
+   * @param setsPerKey The most sets kept for any one key.
+   * @param maxBoards The most boards kept across all keys.
+   */
+  public BoardPool(int setsPerKey, int maxBoards) {
+    this.setsPerKey = setsPerKey;
+    this.maxBoards = maxBoards;
+    pools = new ConcurrentHashMap<>();
+    refills = new LinkedBlockingQueue<>();
+    queued = ConcurrentHashMap.newKeySet();
+    pooledBoards = new AtomicInteger();
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+    worker = new Thread(this::refillLoop, "board-pool");
+    worker.setDaemon(true);
+  }
+
+  /**
+   * Starts the background worker.
+   */
+  public void start() {
+    worker.start();
+  }
+
+  /**
+   * Stops the background worker. Pooled boards can still be taken.
+   */
+  public void shutdown() {
+    worker.interrupt();
+  }
+
+  /**
+   * Gets the boards for a game. A pooled set is used if one is ready;
+   * otherwise the boards are generated on the calling thread.
+   * @param specs The specs of the game. If a pooled set is used, its seed
+   *        is recorded here.
+   * @param count The number of boards the game uses.
+   * @return The boards, generated from consecutive seeds starting at the
+   *         seed in specs.
+   */
+  public List<Board> take(GameSpecs specs, int count) {
+    Key key = new Key(specs, count);
+    if (!specs.isSeedFixed()) {
+      BlockingQueue<BoardSet> pool = pools.get(key);
+      BoardSet set = pool == null ? null : pool.poll();
+      requestRefill(key);
+      if (set != null) {
+        pooledBoards.addAndGet(-count);
+        hits.incrementAndGet();
+        specs.setSeed(set.seed);
+        return set.boards;
+      }
+    }
+    misses.incrementAndGet();
+    return generate(key, specs.getSeed(),
+        TimeUnit.MILLISECONDS.toNanos(MISS_MILLIS));
+  }
+
+  /**
+   * Asks the worker to have boards ready for a game that has not started
+   * yet, such as one in a room waiting in the lobby.
+   * @param specs The specs of the game.
+   */
+  public void warm(GameSpecs specs) {
+    if (!specs.isSeedFixed()) {
+      requestRefill(new Key(specs,
+          GameFactory.getBoardCount(specs.getMode())));
+    }
+  }
+
+  /**
+   * Gets the number of games that took a pooled set.
+   * @return The number of hits.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of games that had to generate their own boards.
+   * @return The number of misses.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the number of boards waiting in the pool.
+   * @return The number of pooled boards.
+   */
+  public int getPooledBoards() {
+    return pooledBoards.get();
+  }
+
+  /**
+   * Gets the number of keys the pool holds sets for.
+   * @return The number of keys.
+   */
+  public int getPooledKeys() {
+    return pools.size();
+  }
+
+  private void requestRefill(Key key) {
+    if (queued.add(key)) {
+      refills.add(key);
+    }
+  }
+
+  private void refillLoop() {
+    try {
+      while (true) {
+        Key key = refills.take();
+        queued.remove(key);
+        try {
+          refill(key);
+        } catch (RuntimeException e) {
+          System.out.println("Could not pool boards: " + e.getMessage());
+          e.printStackTrace();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void refill(Key key) {
+    BlockingQueue<BoardSet> pool = pools.computeIfAbsent(key,
+        (k) -> new LinkedBlockingQueue<>(setsPerKey));
+    try {
+      while (pool.remainingCapacity() > 0 && reserve(key.count)) {
+        long seed = ThreadLocalRandom.current().nextLong();
+        List<Board> boards;
+        try {
+          boards = generate(key, seed, Long.MAX_VALUE);
+        } catch (RuntimeException e) {
+          pooledBoards.addAndGet(-key.count);
+          throw e;
+        }
+        if (!pool.offer(new BoardSet(seed, boards))) {
+          pooledBoards.addAndGet(-key.count);
+        }
+      }
+    } finally {
+      // Only the worker adds sets, so an empty queue stays empty until
+      // the key is asked for again, which makes a new one.
+      if (pool.isEmpty()) {
+        pools.remove(key, pool);
+      }
+    }
+  }
+
+  /**
+   * Claims room in the pool for a set of boards.
+   * @param count The number of boards in the set.
+   * @return True if the boards fit under the bound.
+   */
+  private boolean reserve(int count) {
+    while (true) {
+      int current = pooledBoards.get();
+      if (current + count > maxBoards) {
+        return false;
+      }
+      if (pooledBoards.compareAndSet(current, current + count)) {
+        return true;
+      }
+    }
+  }
+
+  private static List<Board> generate(Key key, long seed, long maxNanos) {
+    List<Board> boards = new ArrayList<>(key.count);
+    for (int i = 0; i < key.count; i++) {
+      boards.add(BoardFactory.makeBoard(key.type, key.width, key.height,
+          key.mines, seed + i, key.noGuess, maxNanos));
+    }
+    return boards;
+  }
+
+  /**
+   * A set of boards for one game and the seed of its first board.
+   */
+  private static final class BoardSet {
+    private final long seed;
+    private final List<Board> boards;
+
+    BoardSet(long seed, List<Board> boards) {
+      this.seed = seed;
+      this.boards = boards;
+    }
+  }
+
+  /**
+   * The key board sets are pooled under.
+   */
+  private static final class Key {
+    private final BoardType type;
+    private final int width;
+    private final int height;
+    private final int mines;
+    private final int count;
+    private final boolean noGuess;
+
+    Key(GameSpecs specs, int count) {
+      int[] dims = specs.getBoardDims();
+      this.type = specs.getBoardType();
+      this.width = dims[0];
+      this.height = dims[1];
+      this.mines = specs.getNumMines();
+      this.count = count;
+      this.noGuess = specs.isNoGuess();
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = type.hashCode();
+      result = prime * result + width;
+      result = prime * result + height;
+      result = prime * result + mines;
+      result = prime * result + count;
+      result = prime * result + (noGuess ? 1 : 0);
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return type == other.type && width == other.width
+          && height == other.height && mines == other.mines
+          && count == other.count && noGuess == other.noGuess;
+    }
+  }
+}
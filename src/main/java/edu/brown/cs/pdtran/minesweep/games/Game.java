@@ -1,10 +1,18 @@
 package edu.brown.cs.pdtran.minesweep.games;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -18,6 +26,9 @@ import edu.brown.cs.pdtran.minesweep.player.PlayerTeam;
 import edu.brown.cs.pdtran.minesweep.session.Session;
 import edu.brown.cs.pdtran.minesweep.setup.Room;
 import edu.brown.cs.pdtran.minesweep.setup.TeamFormation;
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+import edu.brown.cs.pdtran.minesweep.websockets.BinaryProtocol;
+import edu.brown.cs.pdtran.minesweep.websockets.SharedPayload;
 import edu.brown.cs.pdtran.minesweep.websockets.Update;
 
 /**
@@ -25,28 +36,54 @@ import edu.brown.cs.pdtran.minesweep.websockets.Update;
  * <p>
  * This is implemented by the different types of games (Classic, FSU,
  * etc.).
+ * <p>
+ * A game is driven by mailboxes. Each team has a mailbox of its own, so
+ * moves on different teams run at once, and the session has one for
+ * everything else. A team's board is only changed under the team's
+ * monitor and then the board's, which snapshots taken from elsewhere
+ * also hold, and the outcome of the game is settled with atomics.
  * @author Clayton
  */
 public abstract class Game extends Session {
 
+  private static final String UNCLAIMED = "WHITE";
+  private static final int MAX_COLORS = 0xFF;
+  private static final int UNSIGNED = 0xFF;
+
   protected ConcurrentMap<String, PlayerTeam> teams;
-  protected String[][] colors;
+  protected BoardPool boardPool;
+  private final int width;
+  private final List<String> palette;
+  private final byte[] owners;
+  private volatile boolean recolored;
+  private JsonArray colorsJson;
+  private byte[] colorsBinary;
+  private boolean colorsDirty;
+  private Function<String, Executor> mailboxes;
+  private final Set<String> eliminated;
+  private final AtomicInteger playing;
+  private final AtomicBoolean decided;
 
   /**
    * The constructor that builds a Game by using the Session constructor
    * that it extends.
    * @param room The Room to be made into a Game.
+   * @param boardPool The pool to take the game's boards from.
    */
-  protected Game(Room room) {
+  protected Game(Room room, BoardPool boardPool) {
     super(room.getName(), room.getSpecs());
+    this.boardPool = boardPool;
     int[] dims = room.getSpecs().getBoardDims();
-    colors = new String[dims[0]][dims[1]];
-    for (int i = 0; i < dims[0]; i++) {
-      for (int j = 0; j < dims[1]; j++) {
-        colors[i][j] = "WHITE";
-      }
-    }
+    width = dims[0];
+    palette = new ArrayList<>();
+    palette.add(UNCLAIMED);
+    owners = new byte[dims[0] * dims[1]];
+    colorsDirty = true;
+    mailboxes = (teamId) -> Runnable::run;
     teams = makeTeams(room.getTeams());
+    eliminated = ConcurrentHashMap.newKeySet();
+    playing = new AtomicInteger(teams.size());
+    decided = new AtomicBoolean();
   }
 
   protected abstract ConcurrentMap<String, PlayerTeam> makeTeams(
@@ -57,28 +94,326 @@ public abstract class Game extends Session {
     return teams;
   }
 
+  /**
+   * Sets the mailboxes that run the game's events. Until they are set,
+   * events are run on the thread that raises them.
+   * @param mailboxes Given a team id, gives the mailbox for that team's
+   *        events; given null, gives the session's mailbox.
+   */
+  public void setMailboxes(Function<String, Executor> mailboxes) {
+    this.mailboxes = mailboxes;
+  }
+
+  /**
+   * Releases anything the game holds outside itself, such as timers. It
+   * is called when the game ends or is removed, and may be called more
+   * than once.
+   */
+  public void close() {
+
+  }
+
+  /**
+   * Gets the mailbox that runs a team's moves and other events, such as
+   * its timers.
+   * @param teamId The unique id for the team.
+   * @return The team's mailbox.
+   */
+  public Executor getMailbox(String teamId) {
+    return mailboxes.apply(teamId);
+  }
+
+  /**
+   * Knocks a team out of the game, and if only one team is left, makes it
+   * the winner. It may be called from several teams' mailboxes at once,
+   * and does nothing for a team already out or once the game is decided.
+   * @param teamId The unique id for the team.
+   * @return The DEFEAT update, and the VICTORY update if there is one.
+   */
+  protected List<Update> eliminate(String teamId) {
+    List<Update> updates = new ArrayList<>();
+    if (decided.get() || !eliminated.add(teamId)) {
+      return updates;
+    }
+    PlayerTeam team = teams.get(teamId);
+    team.setIsLoser();
+    updates.add(new Update(UpdateType.DEFEAT, new JsonPrimitive(teamId),
+        team.getHumans()));
+    if (playing.decrementAndGet() <= 1 && decided.compareAndSet(false,
+        true)) {
+      touch();
+      for (Entry<String, PlayerTeam> entry : teams.entrySet()) {
+        PlayerTeam otherTeam = entry.getValue();
+        if (!otherTeam.getIsLoser()) {
+          otherTeam.setIsWinner();
+          updates.add(new Update(UpdateType.VICTORY, new JsonPrimitive(
+              entry.getKey()), otherTeam.getHumans()));
+        }
+      }
+      close();
+    }
+    return updates;
+  }
+
+  /**
+   * Makes a team the winner for finishing its boards, and every other team
+   * a loser, unless the game has already been decided.
+   * @param teamId The unique id for the team.
+   * @return The VICTORY and DEFEAT updates, or none if the game was
+   *         already decided.
+   */
+  protected List<Update> finish(String teamId) {
+    List<Update> updates = new ArrayList<>();
+    if (!decided.compareAndSet(false, true)) {
+      return updates;
+    }
+    touch();
+    PlayerTeam team = teams.get(teamId);
+    team.setIsWinner();
+    updates.add(new Update(UpdateType.VICTORY, new JsonPrimitive(teamId),
+        team.getHumans()));
+    for (Entry<String, PlayerTeam> entry : teams.entrySet()) {
+      if (!entry.getKey().equals(teamId)) {
+        entry.getValue().setIsLoser();
+        updates.add(new Update(UpdateType.DEFEAT, new JsonPrimitive(
+            entry.getKey()), entry.getValue().getHumans()));
+      }
+    }
+    close();
+    return updates;
+  }
+
+  /**
+   * Tells you if the game has been decided.
+   * @return True if it has a winner, or every team has lost.
+   */
+  public boolean isOver() {
+    return decided.get();
+  }
+
+  /**
+   * Gets a compact record of how the game went, to keep once the game
+   * itself has been dropped.
+   * @return The result, with no winners if the game was not decided.
+   */
+  public GameResult getResult() {
+    List<String> winners = new ArrayList<>();
+    for (PlayerTeam team : teams.values()) {
+      if (team.getIsWinner()) {
+        winners.add(team.getName());
+      }
+    }
+    return new GameResult(name, specs.getMode(), winners, isOver());
+  }
+
+  /**
+   * Colors a cell, such as to mark it as claimed by a team. A game can use
+   * at most 255 colors, as each cell keeps the index of its color in a
+   * byte and BinaryProtocol sends the number of colors in one.
+   * @param x The x-coordinate of the cell.
+   * @param y The y-coordinate of the cell.
+   * @param color The name of the color.
+   */
+  protected synchronized void setColor(int x, int y, String color) {
+    int index = palette.indexOf(color);
+    if (index < 0) {
+      if (palette.size() >= MAX_COLORS) {
+        throw new IllegalStateException("Too many colors in one game.");
+      }
+      index = palette.size();
+      palette.add(color);
+    }
+    owners[y * width + x] = (byte) index;
+    recolored = true;
+    colorsDirty = true;
+    colorsJson = null;
+  }
+
+  /**
+   * Gets the color of a cell.
+   * @param x The x-coordinate of the cell.
+   * @param y The y-coordinate of the cell.
+   * @return The name of the color.
+   */
+  protected synchronized String getColor(int x, int y) {
+    return palette.get(owners[y * width + x] & UNSIGNED);
+  }
+
+  /**
+   * Gets the colors of every cell, indexed by x and then y. The array is
+   * built when first asked for after a change and is never changed after,
+   * since updates that hold it may still be serializing it.
+   * @return The colors as JSON.
+   */
+  private synchronized JsonArray getColorsJson() {
+    if (colorsJson == null) {
+      colorsJson = new JsonArray();
+      int height = owners.length / width;
+      for (int i = 0; i < width; i++) {
+        JsonArray col = new JsonArray();
+        for (int j = 0; j < height; j++) {
+          col.add(new JsonPrimitive(getColor(i, j)));
+        }
+        colorsJson.add(col);
+      }
+    }
+    return colorsJson;
+  }
+
+  private synchronized byte[] getColorsBinary() {
+    if (colorsDirty) {
+      colorsBinary = BinaryProtocol.encodeColors(palette, owners);
+      colorsDirty = false;
+    }
+    return colorsBinary;
+  }
+
   /**
    * Gets the Board info to be send in an update to the front end.
    * @param teamId The unique id for a given team.
    * @return A JsonElement that can be send to the front end.
    */
   public JsonElement getBoardInfo(String teamId) {
-    JsonArray colorsJson = new JsonArray();
-    for (int i = 0; i < colors.length; i++) {
-      JsonArray col = new JsonArray();
-      for (int j = 0; j < colors[0].length; j++) {
-        col.add(new JsonPrimitive(colors[i][j]));
+    PlayerTeam team = teams.get(teamId);
+    synchronized (team) {
+      synchronized (team.getCurrentBoard()) {
+        return getBoardInfo(teamId, true);
       }
-      colorsJson.add(col);
     }
+  }
 
+  private JsonElement getBoardInfo(String teamId, boolean withColors) {
     JsonObject boardInfo =
         teams.get(teamId).getBoardInfo().getAsJsonObject();
-    boardInfo.add("colors", colorsJson);
-
+    if (withColors) {
+      boardInfo.add("colors", getColorsJson());
+    }
     return boardInfo;
   }
 
+  /**
+   * Gets an update with the whole of a team's board, in both protocols.
+   * The colors are left out of a BOARD_UPDATE if no cell has ever been
+   * recolored, since the client already has them from INIT_BOARD.
+   * <p>
+   * The binary frame is encoded only once a player who asked for it is
+   * sent the update, under the same monitors, so it may show changes newer
+   * than its version. The deltas after that version set the same cells
+   * again, so the client ends up with the same board.
+   * @param teamId The unique id for a given team.
+   * @param type INIT_BOARD or BOARD_UPDATE.
+   * @param users The ids of the players to send it to.
+   * @return The update.
+   */
+  public Update getBoardSnapshot(String teamId,
+      UpdateType type, List<String> users) {
+    boolean withColors = type == UpdateType.INIT_BOARD || recolored;
+    PlayerTeam team = teams.get(teamId);
+    synchronized (team) {
+      Board board = team.getCurrentBoard();
+      synchronized (board) {
+        int version = team.getBoardVersion();
+        Update update = new Update(type, getBoardInfo(teamId, withColors),
+            () -> {
+              synchronized (team) {
+                synchronized (board) {
+                  return BinaryProtocol.encodeBoard(type,
+                      specs.getBoardType(), version, board,
+                      team.getFlaggedTiles(),
+                      withColors ? getColorsBinary() : null);
+                }
+              }
+            }, users);
+        update.setBoardVersion(version);
+        return update;
+      }
+    }
+  }
+
+  /**
+   * Gets an update with only the cells changed by a team's latest move.
+   * @param team The team whose board changed.
+   * @return A BOARD_DELTA update for the team's humans.
+   */
+  protected Update getBoardDelta(PlayerTeam team) {
+    Update update = new Update(UpdateType.BOARD_DELTA,
+        team.getBoardDelta(), deltaEncoder(team, -1, null),
+        team.getHumans());
+    update.setBoardVersion(team.getBoardVersion());
+    return update;
+  }
+
+  /**
+   * Gets the part of a BOARD_DELTA that is the same for every team sharing
+   * a board: the cells changed by a reveal and the color of a cell it
+   * recolored. It is serialized once for all of their updates.
+   * @param board The shared board.
+   * @param cells The row-major indices of the revealed cells.
+   * @param x The x-coordinate of the recolored cell.
+   * @param y The y-coordinate of the recolored cell.
+   * @return The shared part of the delta.
+   */
+  protected SharedPayload getSharedDelta(Board board, int[] cells, int x,
+      int y) {
+    JsonObject color = new JsonObject();
+    color.addProperty("row", y);
+    color.addProperty("column", x);
+    color.addProperty("color", getColor(x, y));
+    JsonArray changedColors = new JsonArray();
+    changedColors.add(color);
+    JsonObject sharedJson = new JsonObject();
+    sharedJson.add("tiles", board.cellsToJson(cells));
+    sharedJson.add("colors", changedColors);
+    return new SharedPayload(sharedJson);
+  }
+
+  /**
+   * Gets an update for a team sharing a board, whose latest change is the
+   * reveal in a shared delta. The caller should hold the team's monitor,
+   * so that no other change is recorded in between.
+   * @param team The team.
+   * @param shared The shared part of the delta, from getSharedDelta.
+   * @param x The x-coordinate of the recolored cell.
+   * @param y The y-coordinate of the recolored cell.
+   * @return A BOARD_DELTA update for the team's humans.
+   */
+  protected Update getBoardDelta(PlayerTeam team, SharedPayload shared,
+      int x, int y) {
+    Update update = new Update(UpdateType.BOARD_DELTA,
+        team.getFlagsDelta(), shared,
+        deltaEncoder(team, y * width + x, getColor(x, y)),
+        team.getHumans());
+    update.setBoardVersion(team.getBoardVersion());
+    return update;
+  }
+
+  /**
+   * Gets what encodes a team's latest change as a binary delta, when a
+   * player who asked for it is first sent the update. What the change was
+   * is captured now, while the team's monitor keeps it from moving on.
+   * @param team The team whose board changed.
+   * @param recolored The row-major index of the recolored cell, or -1 if
+   *        none was.
+   * @param color The name of its new color.
+   * @return The encoder.
+   */
+  private Supplier<byte[]> deltaEncoder(PlayerTeam team, int recolored,
+      String color) {
+    int version = team.getBoardVersion();
+    Board board = team.getChangedBoard();
+    int[] tiles = team.getChangedTiles();
+    int[] changedFlags = team.getChangedFlags();
+    return () -> {
+      synchronized (team) {
+        synchronized (board) {
+          return BinaryProtocol.encodeDelta(specs.getBoardType(), version,
+              board, team.getFlaggedTiles(), tiles, changedFlags,
+              recolored, color);
+        }
+      }
+    };
+  }
+
   /**
    * Gets the AI players in the game.
    * @return A Map of team ids to lists of AI Players within each team.
@@ -1,6 +1,7 @@
 package edu.brown.cs.pdtran.minesweep.games;
 
 import edu.brown.cs.pdtran.minesweep.setup.Room;
+import edu.brown.cs.pdtran.minesweep.types.GameMode;
 import edu.brown.cs.pdtran.minesweep.websockets.UpdateSender;
 
 /**
@@ -17,24 +18,39 @@ public final class GameFactory {
    * Generates a Game object based on the mode enum assigned.
    * @param room A PreRoom object with information on the game's setup.
    * @param updateSender An object that sends updates to players.
+   * @param boardPool The pool to take the game's boards from.
+   * @param wheel The wheel that runs timed games' countdowns.
    * @return A Game object of the mode corresponding to the enum.
    */
-  public static Game generateGame(Room room, UpdateSender updateSender) {
+  public static Game generateGame(Room room, UpdateSender updateSender,
+      BoardPool boardPool, TimingWheel wheel) {
     switch (room.getSpecs().getMode()) {
       case CLASSIC:
-        return new ClassicGame(room);
+        return new ClassicGame(room, boardPool);
 
       case TERRITORY:
-        return new TerritoryGame(room);
+        return new TerritoryGame(room, updateSender, boardPool);
 
       case LAYERS:
-        return new LayersGame(room);
+        return new LayersGame(room, boardPool);
 
       case TIMER:
-        return new TimerGame(room, updateSender);
+        return new TimerGame(room, updateSender, boardPool, wheel);
 
       default:
         return null;
     }
   }
+
+  /**
+   * Gets the number of boards a game of some mode plays through.
+   * @param mode The mode of the game.
+   * @return The number of boards.
+   */
+  public static int getBoardCount(GameMode mode) {
+    if (mode == GameMode.LAYERS) {
+      return LayersGame.LAYERS_COUNT;
+    }
+    return 1;
+  }
 }
@@ -0,0 +1,98 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import edu.brown.cs.pdtran.minesweep.types.GameMode;
+
+/**
+ * What is kept of a game once it has been dropped: its name, its mode,
+ * the names of the teams that won and when it ended. It holds no boards
+ * or players, so results can be kept long after their games.
+ * @author Clayton Sanford
+ */
+public final class GameResult {
+
+  private final String name;
+  private final GameMode mode;
+  private final List<String> winners;
+  private final boolean decided;
+  private final long endedAt;
+
+  /**
+   * Constructs a GameResult, ending now.
+   * @param name The name of the game.
+   * @param mode The mode the game was played in.
+   * @param winners The names of the winning teams.
+   * @param decided Whether the game was decided, rather than abandoned.
+   */
+  public GameResult(String name, GameMode mode, List<String> winners,
+      boolean decided) {
+    this.name = name;
+    this.mode = mode;
+    this.winners = Collections.unmodifiableList(winners);
+    this.decided = decided;
+    endedAt = System.currentTimeMillis();
+  }
+
+  /**
+   * Gets the name of the game.
+   * @return The name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the mode the game was played in.
+   * @return The GameMode.
+   */
+  public GameMode getMode() {
+    return mode;
+  }
+
+  /**
+   * Gets the names of the winning teams.
+   * @return The names, which are empty if the game was abandoned.
+   */
+  public List<String> getWinners() {
+    return winners;
+  }
+
+  /**
+   * Tells you if the game was decided, rather than abandoned.
+   * @return True if it was.
+   */
+  public boolean isDecided() {
+    return decided;
+  }
+
+  /**
+   * Gets when the result was recorded.
+   * @return The time, in milliseconds since the epoch.
+   */
+  public long getEndedAt() {
+    return endedAt;
+  }
+
+  /**
+   * Gets the result as a JsonObject to be sent to the frontend.
+   * @return The JsonObject.
+   */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("name", name);
+    json.addProperty("mode", mode.name());
+    JsonArray winnersJson = new JsonArray();
+    for (String winner : winners) {
+      winnersJson.add(new JsonPrimitive(winner));
+    }
+    json.add("winners", winnersJson);
+    json.addProperty("decided", decided);
+    json.addProperty("endedAt", endedAt);
+    return json;
+  }
+}
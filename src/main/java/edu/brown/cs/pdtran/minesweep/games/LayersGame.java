@@ -6,13 +6,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
 import edu.brown.cs.pdtran.minesweep.board.Board;
-import edu.brown.cs.pdtran.minesweep.board.BoardFactory;
 import edu.brown.cs.pdtran.minesweep.move.Move;
 import edu.brown.cs.pdtran.minesweep.player.GamePlayer;
 import edu.brown.cs.pdtran.minesweep.player.PlayerTeam;
@@ -33,74 +31,41 @@ import edu.brown.cs.pdtran.minesweep.websockets.Update;
  */
 public class LayersGame extends Game {
 
-  private ConcurrentMap<String, Integer> lives;
-  private static final int LAYERS_COUNT = 5;
+  private ConcurrentMap<String, AtomicInteger> lives;
+  static final int LAYERS_COUNT = 5;
 
   /**
    * A constructor for a Layers Game.
    * @param room Uses a room with game information to generate the game
    *        object.
+   * @param boardPool The pool to take the game's boards from.
    */
-  public LayersGame(Room room) {
-    super(room);
-    System.out.println("MADE LAYERS GAME");
-    lives = new ConcurrentHashMap<String, Integer>();
+  public LayersGame(Room room, BoardPool boardPool) {
+    super(room, boardPool);
+    lives = new ConcurrentHashMap<String, AtomicInteger>();
     int teamLives = getSpecs().getTeamLives();
     for (String teamId : getTeams().keySet()) {
-      lives.put(teamId, teamLives);
+      lives.put(teamId, new AtomicInteger(teamLives));
     }
   }
 
   @Override
-  public synchronized List<Update> makeMove(String teamId, Move m) {
+  public List<Update> makeMove(String teamId, Move m) {
     List<Update> updates = new ArrayList<>();
     PlayerTeam team = teams.get(teamId);
     MoveResponse response = team.makeMove(m);
+    boolean advanced = false;
     if (response == MoveResponse.MINE) {
-      int newLives = lives.get(teamId) - 1;
-      lives.put(teamId, newLives);
-
-      if (newLives <= 0) {
-        team.setIsLoser();
-        updates.add(new Update(UpdateType.DEFEAT,
-            new JsonPrimitive(teamId),
-            team.getHumans()));
-
-        int numPlaying = teams.size();
-        for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-          if (entry.getValue().getIsLoser()) {
-            numPlaying--;
-          }
-        }
-        if (numPlaying == 1) {
-          for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-            PlayerTeam otherTeam = entry.getValue();
-            if (!otherTeam.getIsLoser()) {
-              otherTeam.setIsWinner();
-              updates.add(new Update(UpdateType.VICTORY,
-                  new JsonPrimitive(
-                      entry.getKey()), otherTeam.getHumans()));
-            }
-          }
-        }
+      if (lives.get(teamId).decrementAndGet() <= 0) {
+        updates.addAll(eliminate(teamId));
       }
     } else if (response == MoveResponse.NOT_MINE) {
       Board board = team.getCurrentBoard();
 
-      if (board.isWinningBoard() && !team.nextBoard()) {
-        if (!team.nextBoard()) {
-          team.setIsWinner();
-          updates.add(new Update(UpdateType.VICTORY, new JsonPrimitive(
-              teamId),
-              team.getHumans()));
-          for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-            if (entry.getKey() != teamId) {
-              entry.getValue().setIsLoser();
-              updates.add(new Update(UpdateType.DEFEAT, new JsonPrimitive(
-                  entry
-                      .getKey()), entry.getValue().getHumans()));
-            }
-          }
+      if (board.isWinningBoard()) {
+        advanced = team.nextBoard();
+        if (!advanced) {
+          updates.addAll(finish(teamId));
         }
       }
     }
@@ -110,21 +75,12 @@ public class LayersGame extends Game {
       for (PlayerTeam tempTeam : getTeams().values()) {
         allHumans.addAll(tempTeam.getHumans());
       }
-      JsonArray colorsJson = new JsonArray();
-      for (int i = 0; i < colors.length; i++) {
-        JsonArray col = new JsonArray();
-        for (int j = 0; j < colors[0].length; j++) {
-          col.add(new JsonPrimitive(colors[i][j]));
-        }
-        colorsJson.add(col);
+      if (advanced) {
+        updates.add(getBoardSnapshot(teamId, UpdateType.BOARD_UPDATE,
+            team.getHumans()));
+      } else {
+        updates.add(getBoardDelta(team));
       }
-
-      JsonObject boardInfo = team.getBoardInfo().getAsJsonObject();
-      boardInfo.add("colors", colorsJson);
-
-      updates.add(new Update(UpdateType.BOARD_UPDATE, boardInfo,
-          team
-          .getHumans()));
       updates.add(new Update(UpdateType.INFO_UPDATE, getGameData(),
           allHumans));
     }
@@ -165,12 +121,7 @@ public class LayersGame extends Game {
       ConcurrentMap<String, TeamFormation> preTeams) {
     ConcurrentMap<String, PlayerTeam> teams =
         new ConcurrentHashMap<String, PlayerTeam>();
-    List<Board> boardsToPlay = new ArrayList<>();
-    int[] dims = specs.getBoardDims();
-    for (int i = 0; i < LAYERS_COUNT; i++) {
-      boardsToPlay.add(BoardFactory.makeBoard(getSpecs().getBoardType(),
-          dims[0], dims[1], specs.getNumMines()));
-    }
+    List<Board> boardsToPlay = boardPool.take(specs, LAYERS_COUNT);
 
     for (Map.Entry<String, TeamFormation> entry : preTeams.entrySet()) {
       List<Board> copy = new ArrayList<>();
@@ -190,7 +141,7 @@ public class LayersGame extends Game {
       PlayerTeam team = entry.getValue();
       JsonObject teamJson = new JsonObject();
       teamJson.addProperty("name", team.getName());
-      teamJson.addProperty("lives", lives.get(entry.getKey()));
+      teamJson.addProperty("lives", lives.get(entry.getKey()).get());
       gameData.add(entry.getKey(), teamJson);
     }
     return gameData;
@@ -1,27 +1,30 @@
 package edu.brown.cs.pdtran.minesweep.games;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
 import edu.brown.cs.pdtran.minesweep.board.Board;
-import edu.brown.cs.pdtran.minesweep.board.BoardFactory;
 import edu.brown.cs.pdtran.minesweep.move.Move;
 import edu.brown.cs.pdtran.minesweep.player.GamePlayer;
 import edu.brown.cs.pdtran.minesweep.player.PlayerTeam;
 import edu.brown.cs.pdtran.minesweep.setup.Room;
 import edu.brown.cs.pdtran.minesweep.setup.TeamFormation;
 import edu.brown.cs.pdtran.minesweep.types.MoveResponse;
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
 import edu.brown.cs.pdtran.minesweep.types.SessionType;
 import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+import edu.brown.cs.pdtran.minesweep.websockets.SharedPayload;
 import edu.brown.cs.pdtran.minesweep.websockets.Update;
+import edu.brown.cs.pdtran.minesweep.websockets.UpdateSender;
 
 /**
  * An object that represents the data held by a Territory game, where teams
@@ -30,9 +33,15 @@ import edu.brown.cs.pdtran.minesweep.websockets.Update;
  */
 public class TerritoryGame extends Game {
 
-  private ConcurrentMap<String, Integer> lives;
+  private static final int HIDDEN = 0;
+  private static final int REVEALED = -1;
+
+  private ConcurrentMap<String, AtomicInteger> lives;
   private Map<String, String> teamColors;
-  private Map<String, Integer> numTerritories;
+  private Map<String, AtomicInteger> numTerritories;
+  private Map<String, Integer> owners;
+  private AtomicIntegerArray claims;
+  private UpdateSender updateSender;
 
   public static final String[] COLOR_CHOICES = {
       "Cyan", "LightGreen", "LightSalmon", "PaleVioletRed"
@@ -42,121 +51,141 @@ public class TerritoryGame extends Game {
    * Constructs a TerritoryGame.
    * @param room A PreRoom object that contains the specifications needed
    *        for the game.
+   * @param updateSender An object that sends updates to players, used for
+   *        the other teams' updates when a team reveals cells.
+   * @param boardPool The pool to take the game's boards from.
    */
-  public TerritoryGame(Room room) {
-    super(room);
-    lives = new ConcurrentHashMap<String, Integer>();
+  public TerritoryGame(Room room, UpdateSender updateSender,
+      BoardPool boardPool) {
+    super(room, boardPool);
+    this.updateSender = updateSender;
+    lives = new ConcurrentHashMap<String, AtomicInteger>();
     teamColors = new ConcurrentHashMap<String, String>();
-    numTerritories = new ConcurrentHashMap<String, Integer>();
+    numTerritories = new ConcurrentHashMap<String, AtomicInteger>();
+    owners = new ConcurrentHashMap<String, Integer>();
+    int[] dims = getSpecs().getBoardDims();
+    claims = new AtomicIntegerArray(dims[0] * dims[1]);
 
     int teamLives = getSpecs().getTeamLives();
 
 
     int i = 0;
     for (String teamId : getTeams().keySet()) {
-      lives.put(teamId, teamLives);
+      lives.put(teamId, new AtomicInteger(teamLives));
       teamColors.put(teamId, COLOR_CHOICES[i]);
-      numTerritories.put(teamId, 0);
+      numTerritories.put(teamId, new AtomicInteger());
+      owners.put(teamId, i + 1);
       i++;
     }
   }
 
+  /**
+   * Makes a move on the shared board. Moves from different teams run at
+   * once, each on its team's mailbox.
+   * <p>
+   * Every cell of the board has an entry in an atomic array that is
+   * HIDDEN, REVEALED or the owner number of the team that claimed it. A
+   * team checking a cell first claims it with compare-and-set, so when
+   * teams race for a cell the first claim wins and the others give up
+   * without touching the board. The claim is the only step that takes no
+   * lock: the winner's reveal floods under its team's monitor and the
+   * board's, like every other move, and the cells it uncovers are marked
+   * REVEALED, so later checks on any of them fail on the claim alone.
+   * <p>
+   * Each other team records the reveal, and is sent its delta, on its own
+   * mailbox, so a team's view of the board only changes there.
+   * @param teamId The unique id for the team making the move.
+   * @param m The move.
+   * @return The updates to send for the moving team and the game.
+   */
   @Override
-  public synchronized List<Update> makeMove(String teamId, Move m) {
+  public List<Update> makeMove(String teamId, Move m) {
     List<Update> updates = new ArrayList<>();
     PlayerTeam team = teams.get(teamId);
-    MoveResponse response = team.makeMove(m);
-
+    Board board = team.getCurrentBoard();
     int x = m.getXCoord();
     int y = m.getYCoord();
+    boolean check = m.getMoveType() == MoveType.CHECK;
+    int cell = y * board.getWidth() + x;
+    int owner = owners.get(teamId);
+    if (check && (!board.isWithinBoard(x, y)
+        || !claims.compareAndSet(cell, HIDDEN, owner))) {
+      return updates;
+    }
 
-    if (response == MoveResponse.MINE) {
-      int newLives = lives.get(teamId) - 1;
-      lives.put(teamId, newLives);
-
-      colors[x][y] = teamColors.get(teamId);
-      numTerritories.put(teamId, numTerritories.get(teamId) + 1);
-
-      if (newLives <= 0) {
-        team.setIsLoser();
-        updates.add(new Update(UpdateType.DEFEAT,
-            new JsonPrimitive(teamId),
-            team.getHumans()));
-
-        int numPlaying = teams.size();
-        for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-          if (entry.getValue().getIsLoser()) {
-            numPlaying--;
-          }
-        }
-        if (numPlaying == 1) {
-          for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-            PlayerTeam otherTeam = entry.getValue();
-            if (!otherTeam.getIsLoser()) {
-              otherTeam.setIsWinner();
-              updates.add(new Update(UpdateType.VICTORY,
-                  new JsonPrimitive(
-                      entry.getKey()), otherTeam.getHumans()));
-            }
-          }
+    MoveResponse response;
+    int[] cells = null;
+    SharedPayload shared = null;
+    boolean complete = false;
+    synchronized (team) {
+      response = team.makeMove(m);
+      if (response == MoveResponse.INVALID) {
+        if (check) {
+          // another team's flood reached the cell before this check did
+          claims.compareAndSet(cell, owner, REVEALED);
         }
+        return updates;
       }
-    } else if (response == MoveResponse.NOT_MINE) {
-      Board board = team.getCurrentBoard();
-
-      colors[x][y] = teamColors.get(teamId);
-      numTerritories.put(teamId, numTerritories.get(teamId) + 1);
-
-
-      if (board.isWinningBoard()) {
-
-        int winningTerritory = 0;
-        String winningTeamId = "";
-        for (Entry<String, Integer> entry : numTerritories.entrySet()) {
-          int territoryAmount = entry.getValue();
-          if (territoryAmount >= winningTerritory) {
-            winningTerritory = territoryAmount;
-            winningTeamId = entry.getKey();
-          }
+      if (check) {
+        cells = team.getChangedTiles();
+        for (int revealed : cells) {
+          claims.compareAndSet(revealed, HIDDEN, REVEALED);
         }
-        PlayerTeam winner = teams.get(winningTeamId);
-        winner.setIsWinner();
-        updates.add(new Update(UpdateType.VICTORY, new JsonPrimitive(
-            teamId),
-            winner.getHumans()));
-        for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-          if (entry.getKey() != winningTeamId) {
-            entry.getValue().setIsLoser();
-            updates.add(new Update(UpdateType.DEFEAT, new JsonPrimitive(
-                entry
-                .getKey()), entry.getValue().getHumans()));
-          }
+        setColor(x, y, teamColors.get(teamId));
+        numTerritories.get(teamId).incrementAndGet();
+        shared = getSharedDelta(board, cells, x, y);
+        updates.add(getBoardDelta(team, shared, x, y));
+        synchronized (board) {
+          complete = board.isWinningBoard();
         }
+      } else {
+        updates.add(getBoardDelta(team));
       }
     }
 
-    if (response != MoveResponse.INVALID) {
-      List<String> allHumans = new ArrayList<>();
-
-      JsonArray colorsJson = new JsonArray();
-      for (int i = 0; i < colors.length; i++) {
-        JsonArray col = new JsonArray();
-        for (int j = 0; j < colors[0].length; j++) {
-          col.add(new JsonPrimitive(colors[i][j]));
+    if (check) {
+      // Every team plays the same board, so a reveal changes them all.
+      for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
+        PlayerTeam otherTeam = entry.getValue();
+        if (otherTeam != team) {
+          int[] revealed = cells;
+          SharedPayload payload = shared;
+          getMailbox(entry.getKey()).execute(() -> {
+            Update delta;
+            synchronized (otherTeam) {
+              otherTeam.recordChange(board, revealed);
+              delta = getBoardDelta(otherTeam, payload, x, y);
+            }
+            updateSender.sendUpdates(Collections.singletonList(delta));
+          });
         }
-        colorsJson.add(col);
       }
+    }
 
-      for (PlayerTeam tempTeam : getTeams().values()) {
-        JsonObject boardInfo = tempTeam.getBoardInfo().getAsJsonObject();
-        boardInfo.add("colors", colorsJson);
-        updates.add(new Update(UpdateType.BOARD_UPDATE, boardInfo,
-            tempTeam.getHumans()));
-        allHumans.addAll(tempTeam.getHumans());
+    if (response == MoveResponse.MINE) {
+      if (lives.get(teamId).decrementAndGet() <= 0) {
+        updates.addAll(eliminate(teamId));
+      }
+    } else if (complete) {
+      int winningTerritory = 0;
+      String winningTeamId = teamId;
+      for (Entry<String, AtomicInteger> entry
+          : numTerritories.entrySet()) {
+        int territoryAmount = entry.getValue().get();
+        if (territoryAmount >= winningTerritory) {
+          winningTerritory = territoryAmount;
+          winningTeamId = entry.getKey();
+        }
       }
-      updates.add(new Update(UpdateType.INFO_UPDATE, getGameData(),
-          allHumans));
+      updates.addAll(finish(winningTeamId));
+    }
+
+    List<String> allHumans = new ArrayList<>();
+    for (PlayerTeam tempTeam : getTeams().values()) {
+      allHumans.addAll(tempTeam.getHumans());
     }
+    updates.add(new Update(UpdateType.INFO_UPDATE, getGameData(),
+        allHumans));
 
     return updates;
   }
@@ -193,11 +222,7 @@ public class TerritoryGame extends Game {
       ConcurrentMap<String, TeamFormation> preTeams) {
     ConcurrentMap<String, PlayerTeam> teams =
         new ConcurrentHashMap<String, PlayerTeam>();
-    List<Board> boardsToPlay = new ArrayList<>();
-    int[] dims = specs.getBoardDims();
-    boardsToPlay.add(BoardFactory.makeBoard(getSpecs().getBoardType(),
-        dims[0],
-        dims[1], specs.getNumMines()));
+    List<Board> boardsToPlay = boardPool.take(specs, 1);
     for (Map.Entry<String, TeamFormation> entry : preTeams.entrySet()) {
       teams.put(entry.getKey(),
           new PlayerTeam(entry.getValue(), specs.getTeamLives(),
@@ -213,7 +238,7 @@ public class TerritoryGame extends Game {
       PlayerTeam team = entry.getValue();
       JsonObject teamJson = new JsonObject();
       teamJson.addProperty("name", team.getName());
-      teamJson.addProperty("lives", lives.get(entry.getKey()));
+      teamJson.addProperty("lives", lives.get(entry.getKey()).get());
       gameData.add(entry.getKey(), teamJson);
     }
     return gameData;
@@ -4,16 +4,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
 import edu.brown.cs.pdtran.minesweep.board.Board;
-import edu.brown.cs.pdtran.minesweep.board.BoardFactory;
 import edu.brown.cs.pdtran.minesweep.move.Move;
 import edu.brown.cs.pdtran.minesweep.player.GamePlayer;
 import edu.brown.cs.pdtran.minesweep.player.PlayerTeam;
@@ -33,8 +29,8 @@ import edu.brown.cs.pdtran.minesweep.websockets.UpdateSender;
  */
 public class TimerGame extends Game {
   UpdateSender updateSender;
-  private Timer timer;
-  private ConcurrentMap<String, PlayerTimer> timers;
+  private TimingWheel wheel;
+  private ConcurrentMap<String, TimingWheel.Timeout> timers;
 
   private static final long INIT_TIME_MILLIS = 60000;
   private static final long MINE_LOSS_MILLIS = 20000;
@@ -46,70 +42,44 @@ public class TimerGame extends Game {
    * @param room Uses a room with game information to generate the game
    *        object.
    * @param updateSender An object that sends updates to players.
+   * @param boardPool The pool to take the game's boards from.
+   * @param wheel The wheel that runs the teams' countdowns.
    */
-  public TimerGame(Room room, UpdateSender updateSender) {
-    super(room);
+  public TimerGame(Room room, UpdateSender updateSender,
+      BoardPool boardPool, TimingWheel wheel) {
+    super(room, boardPool);
     this.updateSender = updateSender;
-    timers = new ConcurrentHashMap<String, PlayerTimer>();
-    timer = new Timer();
+    this.wheel = wheel;
+    timers = new ConcurrentHashMap<String, TimingWheel.Timeout>();
 
     for (String teamId : getTeams().keySet()) {
-      PlayerTimer playerTimer =
-          new PlayerTimer(this, teamId, System.currentTimeMillis(),
-              INIT_TIME_MILLIS);
-      timer.schedule(playerTimer, INIT_TIME_MILLIS);
-      timers.put(teamId, playerTimer);
+      timers.put(teamId,
+          wheel.schedule(() -> timerLoss(teamId), INIT_TIME_MILLIS));
     }
   }
 
   @Override
-  public synchronized List<Update> makeMove(String teamId, Move m) {
+  public List<Update> makeMove(String teamId, Move m) {
     List<Update> updates = new ArrayList<>();
     PlayerTeam team = teams.get(teamId);
     MoveResponse response = team.makeMove(m);
     if (response == MoveResponse.MINE) {
-      PlayerTimer oldTimer = timers.get(teamId);
-      oldTimer.cancel();
-      long elapsedTime =
-          System.currentTimeMillis() - oldTimer.getStartTime();
-      long remainingTime = oldTimer.getDelay() - elapsedTime;
-      long newDelay = remainingTime - MINE_LOSS_MILLIS;
+      TimingWheel.Timeout timeout = timers.get(teamId);
+      long newDelay = timeout.getRemainingMillis() - MINE_LOSS_MILLIS;
       if (newDelay <= 0) {
         updates.addAll(getLossUpdate(teamId));
       } else {
-        PlayerTimer newTimer =
-            new PlayerTimer(this, teamId, System.currentTimeMillis(),
-                newDelay);
-        timer.schedule(newTimer, newDelay);
-        timers.put(teamId, newTimer);
+        wheel.reschedule(timeout, newDelay);
       }
     } else if (response == MoveResponse.NOT_MINE) {
-      PlayerTimer oldTimer = timers.get(teamId);
-      oldTimer.cancel();
-      long elapsedTime =
-          System.currentTimeMillis() - oldTimer.getStartTime();
-      long remainingTime = oldTimer.getDelay() - elapsedTime;
-      long newDelay = remainingTime + EXPLORE_GAIN_MILLIS;
-      PlayerTimer newTimer =
-          new PlayerTimer(this, teamId, System.currentTimeMillis(),
-              newDelay);
-      timer.schedule(newTimer, newDelay);
-      timers.put(teamId, newTimer);
+      TimingWheel.Timeout timeout = timers.get(teamId);
+      wheel.reschedule(timeout,
+          timeout.getRemainingMillis() + EXPLORE_GAIN_MILLIS);
 
       Board board = team.getCurrentBoard();
 
       if (board.isWinningBoard()) {
-        timer.purge();
-        team.setIsWinner();
-        updates.add(new Update(UpdateType.VICTORY, new JsonPrimitive(
-            teamId), team.getHumans()));
-        for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-          if (entry.getKey() != teamId) {
-            entry.getValue().setIsLoser();
-            updates.add(new Update(UpdateType.DEFEAT, new JsonPrimitive(
-                entry.getKey()), entry.getValue().getHumans()));
-          }
-        }
+        updates.addAll(finish(teamId));
       }
     }
 
@@ -119,21 +89,7 @@ public class TimerGame extends Game {
         allHumans.addAll(tempTeam.getHumans());
       }
 
-      JsonArray colorsJson = new JsonArray();
-      for (int i = 0; i < colors.length; i++) {
-        JsonArray col = new JsonArray();
-        for (int j = 0; j < colors[0].length; j++) {
-          col.add(new JsonPrimitive(colors[i][j]));
-        }
-        colorsJson.add(col);
-      }
-
-      JsonObject boardInfo = team.getBoardInfo().getAsJsonObject();
-      boardInfo.add("colors", colorsJson);
-
-      updates.add(new Update(UpdateType.BOARD_UPDATE, boardInfo,
-          team
-              .getHumans()));
+      updates.add(getBoardDelta(team));
       updates.add(new Update(UpdateType.INFO_UPDATE, getGameData(),
           allHumans));
 
@@ -143,39 +99,34 @@ public class TimerGame extends Game {
   }
 
   /**
-   * Decrements a team's time by a previously-selected amount.
+   * Ends a team's game when its countdown runs out. The loss is handled
+   * on the game's mailbox, and only if a move has not added time in the
+   * meantime.
    * @param teamId The unique id for a specified team.
    */
-  public void timerLoss(String teamId) {
-    updateSender.sendUpdates(getLossUpdate(teamId));
+  private void timerLoss(String teamId) {
+    getMailbox(teamId).execute(() -> {
+      TimingWheel.Timeout timeout = timers.get(teamId);
+      if (!timeout.isCancelled() && timeout.getRemainingMillis() <= 0
+          && !getTeams().get(teamId).getIsLoser()) {
+        updateSender.sendUpdates(getLossUpdate(teamId));
+      }
+    });
   }
 
-  private List<Update> getLossUpdate(String teamId) {
-    List<Update> updates = new ArrayList<Update>();
-    PlayerTeam team = getTeams().get(teamId);
-    team.setIsLoser();
-    updates.add(new Update(UpdateType.DEFEAT,
-        new JsonPrimitive(teamId), team.getHumans()));
-
-    int numPlaying = teams.size();
-    for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-      if (entry.getValue().getIsLoser()) {
-        numPlaying--;
-      }
-    }
-    if (numPlaying == 1) {
-      timer.purge();
-      for (Entry<String, PlayerTeam> entry : getTeams().entrySet()) {
-        PlayerTeam otherTeam = entry.getValue();
-        if (!otherTeam.getIsLoser()) {
-          otherTeam.setIsWinner();
-          updates
-          .add(new Update(UpdateType.VICTORY, new JsonPrimitive(
-              entry.getKey()), otherTeam.getHumans()));
-        }
-      }
+  /**
+   * Cancels every team's countdown.
+   */
+  @Override
+  public void close() {
+    for (TimingWheel.Timeout timeout : timers.values()) {
+      wheel.cancel(timeout);
     }
-    return updates;
+  }
+
+  private List<Update> getLossUpdate(String teamId) {
+    wheel.cancel(timers.get(teamId));
+    return eliminate(teamId);
   }
 
   /**
@@ -210,10 +161,7 @@ public class TimerGame extends Game {
       ConcurrentMap<String, TeamFormation> preTeams) {
     ConcurrentMap<String, PlayerTeam> teams =
         new ConcurrentHashMap<String, PlayerTeam>();
-    List<Board> boardsToPlay = new ArrayList<>();
-    int[] dims = specs.getBoardDims();
-    boardsToPlay.add(BoardFactory.makeBoard(getSpecs().getBoardType(),
-        dims[0], dims[1], specs.getNumMines()));
+    List<Board> boardsToPlay = boardPool.take(specs, 1);
     for (Map.Entry<String, TeamFormation> entry : preTeams.entrySet()) {
       List<Board> copy = new ArrayList<>();
       for (Board board : boardsToPlay) {
@@ -232,11 +180,8 @@ public class TimerGame extends Game {
       PlayerTeam team = entry.getValue();
       JsonObject teamJson = new JsonObject();
       teamJson.addProperty("name", team.getName());
-      PlayerTimer aTimer = timers.get(entry.getKey());
-      long elapsedTime =
-          System.currentTimeMillis() - aTimer.getStartTime();
-      long remainingTime = aTimer.getDelay() - elapsedTime;
-      teamJson.addProperty("time", remainingTime);
+      teamJson.addProperty("time",
+          timers.get(entry.getKey()).getRemainingMillis());
       gameData.add(entry.getKey(), teamJson);
     }
     return gameData;
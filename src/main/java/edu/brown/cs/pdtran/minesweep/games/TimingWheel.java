@@ -0,0 +1,203 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timing wheel that runs the countdowns of every timed game on
+ * one thread.
+ * <p>
+ * Time is split into ticks, and each timeout is kept in the slot of the
+ * tick it is due in, modulo the number of slots. Every tick the worker
+ * runs the timeouts in one slot that are due, and leaves those due on a
+ * later turn of the wheel. Scheduling, rescheduling and cancelling are
+ * O(1), and a timeout runs at most one tick late. Deadlines are kept in
+ * System.nanoTime, so they do not move with the wall clock.
+ * <p>
+ * Tasks run on the wheel's thread and should only hand work off, such as
+ * to a game's mailbox.
+ * @author Clayton Sanford
+ */
+public class TimingWheel {
+
+  private static final long DEFAULT_TICK_MILLIS = 100;
+  private static final int DEFAULT_SLOTS = 512;
+
+  private final long tickNanos;
+  private final Timeout[] slots;
+  private final long start;
+  private final Thread worker;
+  private long tick;
+
+  /**
+   * Makes a wheel with the default tick and number of slots, and starts
+   * its worker.
+   */
+  public TimingWheel() {
+    this(DEFAULT_TICK_MILLIS, DEFAULT_SLOTS);
+  }
+
+  /**
+   * Makes a wheel and starts its worker.
+   * @param tickMillis The length of a tick.
+   * @param slotCount The number of slots.
+   */
+  public TimingWheel(long tickMillis, int slotCount) {
+    tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    slots = new Timeout[slotCount];
+    start = System.nanoTime();
+    worker = new Thread(this::tickLoop, "timing-wheel");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * Schedules a task.
+   * @param task The task.
+   * @param delayMillis How long from now to run it.
+   * @return The timeout, to reschedule or cancel it.
+   */
+  public Timeout schedule(Runnable task, long delayMillis) {
+    Timeout timeout = new Timeout(task);
+    reschedule(timeout, delayMillis);
+    return timeout;
+  }
+
+  /**
+   * Moves a timeout to a new deadline, even if it has already run.
+   * @param timeout The timeout.
+   * @param delayMillis How long from now to run it.
+   * @return False if the timeout was cancelled, and was left alone.
+   */
+  public synchronized boolean reschedule(Timeout timeout,
+      long delayMillis) {
+    if (timeout.cancelled) {
+      return false;
+    }
+    unlink(timeout);
+    timeout.deadline =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    long due = (timeout.deadline - start + tickNanos - 1) / tickNanos;
+    timeout.dueTick = Math.max(due, tick);
+    link(timeout);
+    return true;
+  }
+
+  /**
+   * Cancels a timeout, so that it will not run.
+   * @param timeout The timeout.
+   */
+  public synchronized void cancel(Timeout timeout) {
+    timeout.cancelled = true;
+    unlink(timeout);
+  }
+
+  /**
+   * Stops the worker. Timeouts that have not run never will.
+   */
+  public void shutdown() {
+    worker.interrupt();
+  }
+
+  private void link(Timeout timeout) {
+    int slot = (int) (timeout.dueTick % slots.length);
+    timeout.slot = slot;
+    timeout.next = slots[slot];
+    if (timeout.next != null) {
+      timeout.next.prev = timeout;
+    }
+    slots[slot] = timeout;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.slot < 0) {
+      return;
+    }
+    if (timeout.prev == null) {
+      slots[timeout.slot] = timeout.next;
+    } else {
+      timeout.prev.next = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    timeout.slot = -1;
+  }
+
+  private synchronized List<Runnable> advance() {
+    List<Runnable> due = new ArrayList<>();
+    Timeout timeout = slots[(int) (tick % slots.length)];
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      if (timeout.dueTick <= tick) {
+        unlink(timeout);
+        due.add(timeout.task);
+      }
+      timeout = next;
+    }
+    tick++;
+    return due;
+  }
+
+  private void tickLoop() {
+    try {
+      while (true) {
+        long wait;
+        synchronized (this) {
+          wait = start + tick * tickNanos - System.nanoTime();
+        }
+        if (wait > 0) {
+          TimeUnit.NANOSECONDS.sleep(wait);
+          continue;
+        }
+        for (Runnable task : advance()) {
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            e.printStackTrace();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      return;
+    }
+  }
+
+  /**
+   * A task on the wheel and its deadline.
+   */
+  public static final class Timeout {
+    private final Runnable task;
+    private volatile long deadline;
+    private volatile boolean cancelled;
+    private long dueTick;
+    private int slot;
+    private Timeout prev;
+    private Timeout next;
+
+    private Timeout(Runnable task) {
+      this.task = task;
+      slot = -1;
+    }
+
+    /**
+     * Gets the time left until the deadline.
+     * @return The time left in milliseconds, which is zero or negative
+     *         once the deadline has passed.
+     */
+    public long getRemainingMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /**
+     * Tells you if the timeout has been cancelled.
+     * @return True if it has.
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
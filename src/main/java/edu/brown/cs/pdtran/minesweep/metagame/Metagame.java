@@ -8,6 +8,7 @@ import edu.brown.cs.pdtran.minesweep.routes.GamesRoute;
 import edu.brown.cs.pdtran.minesweep.routes.HomeRoute;
 import edu.brown.cs.pdtran.minesweep.routes.PlayHandler;
 import edu.brown.cs.pdtran.minesweep.routes.SetupHandler;
+import edu.brown.cs.pdtran.minesweep.routes.StatsRoute;
 import edu.brown.cs.pdtran.minesweep.websockets.GameServer;
 import freemarker.template.Configuration;
 import spark.Spark;
@@ -28,22 +29,28 @@ public class Metagame {
    * Constructs a Metagame object.
    * @param httpPort An integer representing the port value for HTTP.
    * @param wsPort An integer representing the port value for WebSockets.
+   * @param idleMillis How long a room or game may go without a request.
+   * @param finishedMillis How long a game is kept after it ends.
+   * @param resultMillis How long the result of an evicted game is kept.
    * @throws IOException Thrown if there are errors with IO.
    */
-  public Metagame(int httpPort, int wsPort) throws IOException {
-    RequestHandler handler = new RequestHandler();
+  public Metagame(int httpPort, int wsPort, long idleMillis,
+      long finishedMillis, long resultMillis) throws IOException {
+    RequestHandler handler =
+        new RequestHandler(idleMillis, finishedMillis, resultMillis);
+    GameServer server = new GameServer(wsPort, handler);
 
     Spark.setPort(httpPort);
     Spark.externalStaticFileLocation("src/main/resources/static");
     FreeMarkerEngine engine = createEngine();
     Spark.get("/", new HomeRoute(handler), engine);
     Spark.get("/games", new GamesRoute(handler));
+    Spark.get("/stats", new StatsRoute(handler, server));
     Spark.get("/setup", new SetupHandler(handler), engine);
     Spark.post("/create", new CreateRoomRoute(handler));
     Spark.get("/play", new PlayHandler(handler), engine);
     // Spark.post("/move", new MoveRoute(handler));
 
-    GameServer server = new GameServer(wsPort, handler);
     server.start();
   }
 
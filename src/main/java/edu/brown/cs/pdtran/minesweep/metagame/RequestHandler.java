@@ -6,14 +6,19 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import edu.brown.cs.pdtran.minesweep.games.BoardPool;
 import edu.brown.cs.pdtran.minesweep.games.Game;
 import edu.brown.cs.pdtran.minesweep.games.GameFactory;
+import edu.brown.cs.pdtran.minesweep.games.GameResult;
+import edu.brown.cs.pdtran.minesweep.games.TimingWheel;
 import edu.brown.cs.pdtran.minesweep.move.Move;
 import edu.brown.cs.pdtran.minesweep.player.AIPlayer;
 import edu.brown.cs.pdtran.minesweep.player.AIRunnable;
@@ -39,20 +44,296 @@ import edu.brown.cs.pdtran.minesweep.websockets.UpdateSender;
  */
 public class RequestHandler {
 
-  private ConcurrentMap<String, Boolean> userIds;
+  private ConcurrentMap<String, Long> userIds;
+  private Set<String> liveUsers;
   private ConcurrentMap<String, Session> sessions;
   private ConcurrentMap<String, Room> rooms;
   private ConcurrentMap<String, Game> games;
+  private BoardPool boardPool;
+  private boolean warmFromLobby;
+  private SessionLoops loops;
+  private TimingWheel wheel;
+  private ScheduledThreadPoolExecutor aiScheduler;
+  private ConcurrentMap<String, List<AIRunnable>> ais;
+  private ConcurrentMap<String, GameResult> results;
+  private SessionReaper reaper;
 
   /**
-   * Constructs a RequestHandler.
+   * Constructs a RequestHandler with its own board pool, warmed with the
+   * boards of every room that is created, and a reaper with the default
+   * time-to-lives.
    * @throws IOException Thrown if the input is invalid.
    */
   public RequestHandler() throws IOException {
-    userIds = new ConcurrentHashMap<String, Boolean>();
+    this(SessionReaper.DEFAULT_IDLE_TTL_MILLIS,
+        SessionReaper.DEFAULT_FINISHED_TTL_MILLIS,
+        SessionReaper.DEFAULT_RESULT_TTL_MILLIS);
+  }
+
+  /**
+   * Constructs a RequestHandler with its own board pool, warmed with the
+   * boards of every room that is created, and a reaper with the given
+   * time-to-lives.
+   * @param idleMillis How long a room or game may go without a request.
+   * @param finishedMillis How long a game is kept after it ends.
+   * @param resultMillis How long the result of an evicted game is kept.
+   * @throws IOException Thrown if the input is invalid.
+   */
+  public RequestHandler(long idleMillis, long finishedMillis,
+      long resultMillis) throws IOException {
+    this(new BoardPool(), true);
+    boardPool.start();
+    reaper = new SessionReaper(this, idleMillis, finishedMillis,
+        resultMillis, SessionReaper.DEFAULT_PERIOD_MILLIS);
+    reaper.start();
+  }
+
+  /**
+   * Constructs a RequestHandler.
+   * @param boardPool The pool games take their boards from.
+   * @param warmFromLobby Whether the pool should start on a room's boards
+   *        as soon as the room is created.
+   * @throws IOException Thrown if the input is invalid.
+   */
+  public RequestHandler(BoardPool boardPool, boolean warmFromLobby)
+      throws IOException {
+    userIds = new ConcurrentHashMap<String, Long>();
+    liveUsers = ConcurrentHashMap.newKeySet();
     sessions = new ConcurrentHashMap<String, Session>();
     rooms = new ConcurrentHashMap<String, Room>();
     games = new ConcurrentHashMap<String, Game>();
+    this.boardPool = boardPool;
+    this.warmFromLobby = warmFromLobby;
+    loops = new SessionLoops();
+    wheel = new TimingWheel();
+    ais = new ConcurrentHashMap<String, List<AIRunnable>>();
+    aiScheduler = new ScheduledThreadPoolExecutor(1, (r) -> {
+      Thread thread = new Thread(r, "ai-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    aiScheduler.setRemoveOnCancelPolicy(true);
+    results = new ConcurrentHashMap<String, GameResult>();
+  }
+
+  /**
+   * Runs a task on a session's event loop, after the tasks already
+   * submitted for it. Everything that touches a session's state should be
+   * run this way. The session counts as active, so it is not evicted.
+   * @param sessionId The unique id for the session.
+   * @param task The task.
+   */
+  public void execute(String sessionId, Runnable task) {
+    Session session = sessions.get(sessionId);
+    if (session != null) {
+      session.touch();
+    }
+    loops.execute(sessionId, task);
+  }
+
+  /**
+   * Runs a move, or another task that changes a team's board, on the
+   * team's mailbox, so that moves on different teams run at once. The
+   * session counts as active, so a game that only AIs are still playing is
+   * not evicted.
+   * @param sessionId The unique id for the session.
+   * @param teamId The unique id for the team.
+   * @param task The task.
+   */
+  public void executeMove(String sessionId, String teamId, Runnable task) {
+    Game game = games.get(sessionId);
+    if (game == null) {
+      loops.execute(sessionId, task);
+    } else {
+      game.touch();
+      game.getMailbox(teamId).execute(task);
+    }
+  }
+
+  /**
+   * Stops the reaper, the AIs, the timing wheel, the session loops and the
+   * board pool's worker.
+   */
+  public void shutdown() {
+    if (reaper != null) {
+      reaper.stop();
+    }
+    aiScheduler.shutdownNow();
+    wheel.shutdown();
+    loops.shutdown();
+    boardPool.shutdown();
+  }
+
+  /**
+   * Gets the pool games take their boards from, for its metrics.
+   * @return The board pool.
+   */
+  public BoardPool getBoardPool() {
+    return boardPool;
+  }
+
+  /**
+   * Gets the number of rooms still being set up.
+   * @return The number of rooms.
+   */
+  public int getRoomCount() {
+    return rooms.size();
+  }
+
+  /**
+   * Gets the number of games being played or not yet evicted.
+   * @return The number of games.
+   */
+  public int getGameCount() {
+    return games.size();
+  }
+
+  /**
+   * Gets the number of AIs whose turns are still scheduled.
+   * @return The number of AIs.
+   */
+  public int getAiCount() {
+    int count = 0;
+    for (List<AIRunnable> gameAis : ais.values()) {
+      count += gameAis.size();
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of users with an open connection.
+   * @return The number of live users.
+   */
+  public int getUserCount() {
+    return liveUsers.size();
+  }
+
+  /**
+   * Records that a user has opened a connection, so that their id is kept
+   * for as long as it stays open.
+   * @param userId The unique id for the user.
+   */
+  public void userConnected(String userId) {
+    liveUsers.add(userId);
+    userIds.remove(userId);
+  }
+
+  /**
+   * Records that a user's connection has closed. Their id is kept for the
+   * idle time-to-live, in case they come back.
+   * @param userId The unique id for the user.
+   */
+  public void userDisconnected(String userId) {
+    if (liveUsers.remove(userId)) {
+      userIds.put(userId, System.nanoTime());
+    }
+  }
+
+  /**
+   * Gets the results of the games that have been evicted and whose results
+   * have not yet expired.
+   * @return A list of map entries that relate the unique ids of the games'
+   *         sessions to their results.
+   */
+  public List<Entry<String, GameResult>> getResults() {
+    return new ArrayList<Entry<String, GameResult>>(results.entrySet());
+  }
+
+  /**
+   * Evicts the rooms that have been idle for too long. Each room is
+   * removed on its session's loop, where it is checked again, so a room
+   * that became active in the meantime is kept.
+   * @param idleNanos How long a room may go without a request.
+   * @return The number of rooms queued for eviction.
+   */
+  int reapRooms(long idleNanos) {
+    int queued = 0;
+    for (Entry<String, Room> entry : rooms.entrySet()) {
+      String id = entry.getKey();
+      Room room = entry.getValue();
+      if (isIdle(room, idleNanos)) {
+        loops.execute(id, () -> {
+          if (isIdle(room, idleNanos) && rooms.remove(id, room)) {
+            sessions.remove(id, room);
+          }
+        });
+        queued++;
+      }
+    }
+    return queued;
+  }
+
+  /**
+   * Evicts the games that ended a while ago or have been idle for too
+   * long, keeping their results. Like rooms, each game is removed on its
+   * session's loop after being checked again.
+   * @param idleNanos How long a game may go without a request.
+   * @param finishedNanos How long a game is kept after it ends, so that
+   *        players can still see the final boards.
+   * @return The number of games queued for eviction.
+   */
+  int reapGames(long idleNanos, long finishedNanos) {
+    int queued = 0;
+    for (Entry<String, Game> entry : games.entrySet()) {
+      String id = entry.getKey();
+      Game game = entry.getValue();
+      if (isExpired(game, idleNanos, finishedNanos)) {
+        loops.execute(id, () -> {
+          if (isExpired(game, idleNanos, finishedNanos)
+              && games.get(id) == game) {
+            results.put(id, game.getResult());
+            removeGame(id);
+          }
+        });
+        queued++;
+      }
+    }
+    return queued;
+  }
+
+  /**
+   * Drops the user ids that have gone without a connection for too long,
+   * whether they were handed out and never used or their connection
+   * closed.
+   * @param idleNanos How long an id is kept without a connection.
+   * @return The number of ids dropped.
+   */
+  int reapUsers(long idleNanos) {
+    long now = System.nanoTime();
+    int dropped = 0;
+    for (Entry<String, Long> entry : userIds.entrySet()) {
+      if (now - entry.getValue() > idleNanos
+          && userIds.remove(entry.getKey(), entry.getValue())) {
+        dropped++;
+      }
+    }
+    return dropped;
+  }
+
+  /**
+   * Drops the results that have been kept for too long.
+   * @param ttlMillis How long a result is kept.
+   * @return The number of results dropped.
+   */
+  int reapResults(long ttlMillis) {
+    long now = System.currentTimeMillis();
+    int dropped = 0;
+    for (Entry<String, GameResult> entry : results.entrySet()) {
+      if (now - entry.getValue().getEndedAt() > ttlMillis
+          && results.remove(entry.getKey(), entry.getValue())) {
+        dropped++;
+      }
+    }
+    return dropped;
+  }
+
+  private static boolean isIdle(Session session, long idleNanos) {
+    return System.nanoTime() - session.getLastActive() > idleNanos;
+  }
+
+  private static boolean isExpired(Game game, long idleNanos,
+      long finishedNanos) {
+    return isIdle(game, game.isOver() ? finishedNanos : idleNanos);
   }
 
   /**
@@ -343,9 +624,8 @@ public class RequestHandler {
     List<Update> updates = new ArrayList<>();
     for (Entry<String, PlayerTeam> entry : game.getTeams().entrySet()) {
       List<String> playersToUpdate = entry.getValue().getHumans();
-      updates.add(new Update(UpdateType.INIT_BOARD, game
-          .getBoardInfo(entry.getKey()),
-          playersToUpdate));
+      updates.add(game.getBoardSnapshot(entry.getKey(),
+          UpdateType.INIT_BOARD, playersToUpdate));
     }
     return updates;
   }
@@ -442,17 +722,25 @@ public class RequestHandler {
       if (room == null || sessions.remove(sessionId) == null) {
         throw new NoSuchSessionException();
       }
-      Game game = GameFactory.generateGame(room, updateSender);
+      Game game =
+          GameFactory.generateGame(room, updateSender, boardPool, wheel);
+      game.setMailboxes((teamId) -> teamId == null
+          ? loops.mailbox(sessionId) : loops.mailbox(sessionId, teamId));
       games.put(sessionId, game);
       sessions.put(sessionId, game);
 
+      List<AIRunnable> gameAis = new ArrayList<>();
       for (Entry<String, PlayerTeam> entry : game.getTeams().entrySet()) {
         PlayerTeam team = entry.getValue();
         for (AIPlayer ai : team.getAis()) {
-          new Thread(new AIRunnable(sessionId, team, entry.getKey(), ai,
-              handler)).start();
+          gameAis.add(new AIRunnable(sessionId, team, entry.getKey(), ai,
+              handler));
         }
       }
+      ais.put(sessionId, gameAis);
+      for (AIRunnable ai : gameAis) {
+        ai.start(aiScheduler);
+      }
 
       List<Update> updates = new ArrayList<>();
       updates.addAll(getInitBoardUpdate(game));
@@ -476,16 +764,20 @@ public class RequestHandler {
   public String addRoom(Room room) {
     String id = addAndGetKey(sessions, room);
     rooms.put(id, room);
+    if (warmFromLobby) {
+      boardPool.warm(room.getSpecs());
+    }
     return id;
   }
 
 
   /**
-   * Adds a user to the RequestHandler and generates an id for it.
+   * Adds a user to the RequestHandler and generates an id for it. The id
+   * is dropped by the reaper if no connection is opened with it.
    * @return The unique string generated for the new user.
    */
   public String getUserId() {
-    return addAndGetKey(userIds, true);
+    return addAndGetKey(userIds, System.nanoTime());
   }
 
   /**
@@ -505,4 +797,64 @@ public class RequestHandler {
       return new ArrayList<Update>();
     }
   }
+
+  /**
+   * Removes a game, closes it and cancels the turns of its AIs.
+   * @param sessionId The unique ID for the game's session.
+   */
+  public void removeGame(String sessionId) {
+    Game game = games.remove(sessionId);
+    if (game != null) {
+      sessions.remove(sessionId, game);
+      game.close();
+    }
+    List<AIRunnable> gameAis = ais.remove(sessionId);
+    if (gameAis != null) {
+      for (AIRunnable ai : gameAis) {
+        ai.cancel();
+      }
+    }
+  }
+
+  /**
+   * Finds the team a player is on in a game.
+   * @param sessionId The unique id for the session.
+   * @param userId The unique id for the player.
+   * @return The unique id for the player's team.
+   * @throws NoSuchSessionException Thrown when the game does not exist or
+   *         the player is not in it.
+   */
+  public String getTeamId(String sessionId, String userId)
+      throws NoSuchSessionException {
+    Game game = getGame(sessionId);
+    for (Entry<String, PlayerTeam> entry : game.getTeams().entrySet()) {
+      if (entry.getValue().getHumans().contains(userId)) {
+        return entry.getKey();
+      }
+    }
+    throw new NoSuchSessionException();
+  }
+
+  /**
+   * Gets the whole of a team's board for one player, whose client has
+   * missed a change to it.
+   * @param sessionId The unique id for the session.
+   * @param teamId The unique id for the player's team.
+   * @param userId The unique id for the player.
+   * @return A list holding the board update for the player.
+   */
+  public List<Update> resync(String sessionId, String teamId,
+      String userId) {
+    List<Update> updates = new ArrayList<>();
+    try {
+      Game game = getGame(sessionId);
+      List<String> playersToUpdate = new ArrayList<>();
+      playersToUpdate.add(userId);
+      updates.add(game.getBoardSnapshot(teamId, UpdateType.BOARD_UPDATE,
+          playersToUpdate));
+    } catch (NoSuchSessionException e) {
+      updates.add(getNoSessionError(userId));
+    }
+    return updates;
+  }
 }
@@ -0,0 +1,104 @@
+package edu.brown.cs.pdtran.minesweep.metagame;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A fixed set of single-threaded event loops, one per core by default,
+ * that sessions are pinned to by their ids.
+ * <p>
+ * Every event for a session, whether a player's request, an AI's turn or
+ * a timer running out, is run on the session's loop in the order it was
+ * submitted, so a busy session stays on one core.
+ * <p>
+ * In games where each team plays its own boards, moves run on the team's
+ * mailbox instead, so different teams of one game run at once and a game's
+ * state is shared between threads. What teams share is kept in atomics,
+ * such as the claims in TerritoryGame and the counts behind
+ * Game.eliminate and Game.finish. The rest is guarded by monitors, which
+ * are always taken in the same order: the team, then its current board,
+ * then the game, which guards the colors. Never take an earlier one while
+ * holding a later one, or two teams can deadlock.
+ * @author Clayton Sanford
+ */
+public class SessionLoops {
+
+  private final ExecutorService[] loops;
+
+  /**
+   * Makes one loop for each available processor.
+   */
+  public SessionLoops() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Makes a set of loops.
+   * @param count The number of loops.
+   */
+  public SessionLoops(int count) {
+    loops = new ExecutorService[count];
+    for (int i = 0; i < count; i++) {
+      String name = "session-loop-" + i;
+      loops[i] = Executors.newSingleThreadExecutor((r) -> {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Gets the mailbox of a session, which runs tasks on its loop.
+   * @param sessionId The unique id for the session.
+   * @return The mailbox.
+   */
+  public Executor mailbox(String sessionId) {
+    ExecutorService loop =
+        loops[Math.floorMod(sessionId.hashCode(), loops.length)];
+    return (task) -> loop.execute(guard(task));
+  }
+
+  /**
+   * Gets the mailbox of one team in a session, for games where each team
+   * plays its own boards. Teams are spread over the loops like sessions.
+   * @param sessionId The unique id for the session.
+   * @param teamId The unique id for the team.
+   * @return The mailbox.
+   */
+  public Executor mailbox(String sessionId, String teamId) {
+    return mailbox(sessionId + "/" + teamId);
+  }
+
+  /**
+   * Runs a task on a session's loop, after the tasks already submitted
+   * for it.
+   * @param sessionId The unique id for the session.
+   * @param task The task.
+   */
+  public void execute(String sessionId, Runnable task) {
+    mailbox(sessionId).execute(task);
+  }
+
+  /**
+   * Stops the loops once the tasks already submitted have run.
+   */
+  public void shutdown() {
+    for (ExecutorService loop : loops) {
+      loop.shutdown();
+    }
+  }
+
+  private static Runnable guard(Runnable task) {
+    return () -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        System.out.println("An unknown exception occurred: "
+            + e.getMessage());
+        e.printStackTrace();
+      }
+    };
+  }
+}
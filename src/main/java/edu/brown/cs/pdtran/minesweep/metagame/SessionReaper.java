@@ -0,0 +1,112 @@
+package edu.brown.cs.pdtran.minesweep.metagame;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reclaims the memory of sessions nobody is using. Every sweep, it evicts
+ * rooms and games that have gone without a request for too long, and
+ * games that ended a while ago, keeping a compact result for each game.
+ * User ids that go without a connection for as long are dropped too.
+ * Evicting a game closes it, which cancels its timers, and cancels the
+ * turns of its AIs. Results are dropped once they expire.
+ * <p>
+ * After a sweep that evicts anything, the number of live rooms, games,
+ * results, AIs and users is logged.
+ * @author Clayton Sanford
+ */
+public class SessionReaper {
+
+  /** How long a room or game may go without a request by default. */
+  public static final long DEFAULT_IDLE_TTL_MILLIS =
+      TimeUnit.MINUTES.toMillis(30);
+  /** How long a game is kept after it ends by default. */
+  public static final long DEFAULT_FINISHED_TTL_MILLIS =
+      TimeUnit.MINUTES.toMillis(5);
+  /** How long the result of an evicted game is kept by default. */
+  public static final long DEFAULT_RESULT_TTL_MILLIS =
+      TimeUnit.HOURS.toMillis(24);
+  /** How long to wait between sweeps by default. */
+  public static final long DEFAULT_PERIOD_MILLIS =
+      TimeUnit.SECONDS.toMillis(30);
+
+  private final RequestHandler handler;
+  private final long idleNanos;
+  private final long finishedNanos;
+  private final long resultMillis;
+  private final long periodMillis;
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * Constructs a reaper with the default time-to-lives: half an hour for
+   * idle sessions, five minutes for finished games and a day for results,
+   * sweeping every thirty seconds.
+   * @param handler The RequestHandler whose sessions are reaped.
+   */
+  public SessionReaper(RequestHandler handler) {
+    this(handler, DEFAULT_IDLE_TTL_MILLIS, DEFAULT_FINISHED_TTL_MILLIS,
+        DEFAULT_RESULT_TTL_MILLIS, DEFAULT_PERIOD_MILLIS);
+  }
+
+  /**
+   * Constructs a reaper.
+   * @param handler The RequestHandler whose sessions are reaped.
+   * @param idleMillis How long a room or game may go without a request.
+   * @param finishedMillis How long a game is kept after it ends.
+   * @param resultMillis How long the result of an evicted game is kept.
+   * @param periodMillis How long to wait between sweeps.
+   */
+  public SessionReaper(RequestHandler handler, long idleMillis,
+      long finishedMillis, long resultMillis, long periodMillis) {
+    this.handler = handler;
+    idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    finishedNanos = TimeUnit.MILLISECONDS.toNanos(finishedMillis);
+    this.resultMillis = resultMillis;
+    this.periodMillis = periodMillis;
+    scheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+      Thread thread = new Thread(r, "session-reaper");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts sweeping.
+   */
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::sweep, periodMillis,
+        periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops sweeping.
+   */
+  public void stop() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Runs one sweep.
+   */
+  public void sweep() {
+    try {
+      int rooms = handler.reapRooms(idleNanos);
+      int games = handler.reapGames(idleNanos, finishedNanos);
+      int results = handler.reapResults(resultMillis);
+      int users = handler.reapUsers(idleNanos);
+      if (rooms + games + results + users > 0) {
+        System.out.printf("Evicting %d rooms, %d games, %d results and "
+            + "%d user ids; "
+            + "live: %d rooms, %d games, %d results, %d AIs, %d users%n",
+            rooms, games, results, users, handler.getRoomCount(),
+            handler.getGameCount(), handler.getResults().size(),
+            handler.getAiCount(), handler.getUserCount());
+      }
+    } catch (RuntimeException e) {
+      System.out.println("An unknown exception occurred: "
+          + e.getMessage());
+      e.printStackTrace();
+    }
+  }
+}
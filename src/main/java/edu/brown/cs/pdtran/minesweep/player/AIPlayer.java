@@ -1,9 +1,8 @@
 package edu.brown.cs.pdtran.minesweep.player;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 
 import edu.brown.cs.pdtran.minesweep.board.Board;
 import edu.brown.cs.pdtran.minesweep.games.BoardData;
@@ -17,19 +16,26 @@ import edu.brown.cs.pdtran.minesweep.types.PlayerType;
 /**
  * This class represents the AI that controls what moves the AI makes and
  * how it releases those moves.
+ * <p>
+ * Easy and medium AIs estimate mines by subtracting blocks of tiles from
+ * each other. Hard AIs use a FrontierSolver, which gives the exact chance
+ * of every hidden tile being a mine, and check the safest tile. Either
+ * way, the AIs of a team share one TeamAnalysis, which follows the board
+ * from the tiles revealed since it last looked and works the
+ * possibilities out once for all of them, and an AI reserves the tile it
+ * checks so its teammates choose others.
  * @author Clayton Sanford
  */
 public class AIPlayer extends GamePlayer {
 
-  private List<MovePossibility> certainMine;
-  private List<MovePossibility> certainNotMine;
-  private List<MovePossibility> uncertain;
   private List<MovePossibility> usedUncertain;
   private List<MovePossibility> usedNotMine;
   private int difficulty;
   private int moveTime;
   private double mistakeProbability;
   private BoardData boardData;
+  private TeamAnalysis analysis;
+  private TeamAnalysis.Possibilities possibilities;
   private int totalUncertain = 0;
   private int totalMine = 0;
   private int totalNotMine = 0;
@@ -65,6 +71,10 @@ public class AIPlayer extends GamePlayer {
       difficulty = HARD;
     }
     this.boardData = data;
+    analysis = data.getAnalysis();
+    if (analysis == null) {
+      analysis = new TeamAnalysis(data);
+    }
     // generateMovePossibilities();
     moveTime = (int) (BASE_TIME - difficulty * TIME_MULTIPLIER);
     mistakeProbability =
@@ -111,161 +121,12 @@ public class AIPlayer extends GamePlayer {
   }
 
   private void generateMovePossibilities() {
-    certainMine = new ArrayList<>();
-    certainNotMine = new ArrayList<>();
-    uncertain = new ArrayList<>();
-    List<MineBlock> blocks = new ArrayList<>();
-    Board board = boardData.getCurrentBoard();
-    int width = board.getWidth();
-    int height = board.getHeight();
-
-    // Creates a MineBlock for every discovered tile with neighboring mines
-    for (int w = 0; w < width; w++) {
-      for (int h = 0; h < height; h++) {
-        Tile currentTile = board.getTile(h, w);
-        if (currentTile.hasBeenVisited()
-            && currentTile.getAdjacentBombs() > 0) {
-          List<Tile> adjacentTiles = board.getAdjacentTiles(h, w);
-          adjacentTiles.remove(currentTile);
-          int adjacentBombs = currentTile.getAdjacentBombs();
-
-          // Removes all visited tiles
-          List<Tile> unvisitedTiles = new ArrayList<>();
-          Boolean allUnvisited = false;
-          for (Tile t : adjacentTiles) {
-            if (!t.hasBeenVisited()) {
-              unvisitedTiles.add(t);
-            } else if (t.isBomb()) {
-              adjacentBombs--;
-            }
-          }
-
-          MineBlock mb1 = blockFromTile(adjacentBombs, unvisitedTiles);
-          Boolean needsCheck = true;
-
-          // Subtracts the MineBlock with other MineBlocks
-          while (needsCheck) {
-            needsCheck = false;
-            MineBlock remove = null;
-            for (MineBlock mb2 : blocks) {
-              if (mb2.contains(mb1) && !mb1.getTiles().isEmpty()) {
-                mb2.subtract(mb1);
-
-                // System.out.print("[" + mb2.getNumMines());
-                // for (Tile t : mb2.getTiles()) {
-                // System.out
-                // .print("(" + t.getRow() + "," + t.getColumn() + ")");
-                // }
-                // System.out.print("] - [" + mb1.getNumMines());
-                // for (Tile t : mb1.getTiles()) {
-                // System.out
-                // .print("(" + t.getRow() + "," + t.getColumn() + ")");
-                // }
-                // System.out.print("]\n");
-
-                needsCheck = true;
-                if (mb2.getTiles().isEmpty()) {
-                  remove = mb2;
-                  break;
-                }
-              } else if (mb1.contains(mb2) && !mb2.getTiles().isEmpty()) {
-                mb1.subtract(mb2);
-
-                // System.out.print("[" + mb1.getNumMines());
-                // for (Tile t : mb1.getTiles()) {
-                // System.out
-                // .print("(" + t.getRow() + "," + t.getColumn() + ")");
-                // }
-                // System.out.print("] - [" + mb2.getNumMines());
-                // for (Tile t : mb2.getTiles()) {
-                // System.out
-                // .print("(" + t.getRow() + "," + t.getColumn() + ")");
-                // }
-                // System.out.print("]\n");
-
-                if (mb1.getTiles().isEmpty()) {
-                  break;
-                }
-                needsCheck = true;
-              }
-            }
-            blocks.remove(remove);
-          }
-          if (!mb1.getTiles().isEmpty()) {
-            blocks.add(mb1);
-          }
-        }
-      }
-    }
-
-    // Converts MineBlocks to MovePossibilities
-    for (MineBlock mb : blocks) {
-      // System.out.print("Block:" + mb.getNumMines() + " / "
-      // + mb.getTiles().size() + " -- ");
-      double probability =
-          (double) mb.getNumMines() / mb.getTiles().size();
-
-
-      for (Tile adj : mb.getTiles()) {
-        if (!adj.hasBeenVisited()) {
-          MovePossibility mp = new MovePossibility(adj, probability);
-          // System.out.print(mp.getXCoord() + ", " + mp.getYCoord() + ": "
-          // + mp.getMineProbability() + " || ");
-          if (probability == 0) {
-            certainNotMine.add(mp);
-          } else if (probability == 1) {
-            for (int i = 0; i < uncertain.size(); i++) {
-              MovePossibility uncertainMp = uncertain.get(i);
-              if (uncertainMp.getXCoord() == mp.getXCoord()
-                  && uncertainMp.getYCoord() == mp.getYCoord()) {
-                if (uncertainMp.getMineProbability() < probability) {
-                  uncertain.remove(uncertainMp);
-                }
-              }
-            }
-            certainMine.add(mp);
-          } else {
-            boolean contained = false;
-            for (int i = 0; i < uncertain.size(); i++) {
-              MovePossibility uncertainMp = uncertain.get(i);
-              if (uncertainMp.getXCoord() == mp.getXCoord()
-                  && uncertainMp.getYCoord() == mp.getYCoord()) {
-                contained = true;
-                if (uncertainMp.getMineProbability() < probability) {
-                  uncertain.remove(uncertainMp);
-                  uncertain.add(mp);
-                }
-              }
-            }
-            for (int i = 0; i < certainMine.size(); i++) {
-              MovePossibility mineMp = certainMine.get(i);
-              if (mineMp.getXCoord() == mp.getXCoord()
-                  && mineMp.getYCoord() == mp.getYCoord()) {
-                contained = true;
-              }
-            }
-            if (!contained) {
-              uncertain.add(mp);
-            }
-          }
-        }
-      }
-    }
-  }
-
-  private MineBlock blockFromTile(int totalSurrounding, List<Tile> adjacent) {
-    Set<Tile> setTiles = new HashSet<>();
-    for (Tile t : adjacent) {
-      if (!t.hasBeenVisited()) {
-        setTiles.add(t);
-      }
-    }
-    return new MineBlock(setTiles, totalSurrounding);
+    possibilities = analysis.analyze(difficulty == HARD);
   }
 
   private Move setFlag(PlayerTeam team) {
     boolean[][] flaggedTiles = team.getFlaggedTiles();
-    for (MovePossibility mp : certainMine) {
+    for (MovePossibility mp : possibilities.getCertainMine()) {
       Tile tile = mp.getTile();
       int x = tile.getColumn();
       int y = tile.getRow();
@@ -284,42 +145,50 @@ public class AIPlayer extends GamePlayer {
   }
 
   private Move checkTile() {
-    MovePossibility likliest = null;
-    if (!certainNotMine.isEmpty()) {
-      // System.out.println("Certain not mine");
-      totalNotMine++;
-      // likliest = certainNotMine.get(0);
-      // certainNotMine.remove(0);
-      likliest = certainNotMine.get(certainNotMine.size() - 1);
-      usedNotMine.add(likliest);
-    } else {
-
-      double probability = 1;
-      MovePossibility currentMove = null;
-      for (MovePossibility m : uncertain) {
-        // System.out.println(m.getXCoord() + ", " + m.getYCoord() + ": "
-        // + m.getMineProbability());
-        if (m.getMineProbability() < probability
-            && !m.getTile().hasBeenVisited()) {
-          currentMove = m;
-          probability = m.getMineProbability();
-          // System.out.println(m.getXCoord() + ", " + m.getYCoord() + ": "
-          // + m.getMineProbability());
+    List<MovePossibility> certainNotMine = possibilities.getCertainNotMine();
+    // Takes the last safe tile that no teammate has reserved
+    for (int i = certainNotMine.size() - 1; i >= 0; i--) {
+      MovePossibility safe = certainNotMine.get(i);
+      if (analysis.reserve(safe.getTile())) {
+        totalNotMine++;
+        usedNotMine.add(safe);
+        return check(safe);
+      }
+    }
 
-        }
+    List<MovePossibility> uncertain = new ArrayList<>();
+    for (MovePossibility m : possibilities.getUncertain()) {
+      if (m.getMineProbability() < 1 && !m.getTile().hasBeenVisited()) {
+        uncertain.add(m);
       }
-      if (!(currentMove == null) && probability <= CUTOFF_PROBABILITY) {
-        // System.out.println("Uncertain ordered");
-        likliest = currentMove;
-        totalUncertain++;
-        usedUncertain.add(currentMove);
-      } else {
-        // System.out.println("Uncertain random");
+    }
+    uncertain.sort(
+        Comparator.comparingDouble(MovePossibility::getMineProbability));
+    boolean exact = difficulty == HARD;
+    double interiorProbability = possibilities.getInteriorProbability();
+    boolean interiorKnown = exact && !Double.isNaN(interiorProbability);
+    // Takes the least likely mine that no teammate has reserved, unless
+    // an interior cell is safer or, short of exact odds, it is too risky
+    for (MovePossibility m : uncertain) {
+      double probability = m.getMineProbability();
+      if (interiorKnown && interiorProbability < probability) {
+        return interiorTile();
+      } else if (!exact && probability > CUTOFF_PROBABILITY) {
         return randomTile();
+      } else if (analysis.reserve(m.getTile())) {
+        totalUncertain++;
+        usedUncertain.add(m);
+        return check(m);
       }
     }
-    return MoveFactory.makeMove(likliest.getXCoord(),
-        likliest.getYCoord(),
+    if (interiorKnown && interiorProbability < 1) {
+      return interiorTile();
+    }
+    return randomTile();
+  }
+
+  private static Move check(MovePossibility m) {
+    return MoveFactory.makeMove(m.getXCoord(), m.getYCoord(),
         MoveType.CHECK);
   }
 
@@ -350,6 +219,28 @@ public class AIPlayer extends GamePlayer {
     return MoveFactory.makeMove(rWidth, rHeight, MoveType.CHECK);
   }
 
+  private Move interiorTile() {
+    FrontierModel model = analysis.getModel();
+    Board board = model.getBoard();
+    int width = board.getWidth();
+    List<Tile> interior = new ArrayList<>();
+    for (int cell = 0; cell < width * board.getHeight(); cell++) {
+      if (model.isHidden(cell) && !possibilities.isOnFrontier(cell)) {
+        interior.add(board.getTile(cell / width, cell % width));
+      }
+    }
+    // Takes a random interior tile that no teammate has reserved
+    while (!interior.isEmpty()) {
+      Tile tile =
+          interior.remove((int) (Math.random() * interior.size()));
+      if (analysis.reserve(tile)) {
+        return MoveFactory.makeMove(tile.getColumn(), tile.getRow(),
+            MoveType.CHECK);
+      }
+    }
+    return randomTile();
+  }
+
   @Override
   /**
    * Sets canPlay to true, meaning that the Player can make Moves.
@@ -372,7 +263,7 @@ public class AIPlayer extends GamePlayer {
    * @return the list of MovePossibilities that are certainly mines
    */
   public List<MovePossibility> getCertainMine() {
-    return certainMine;
+    return possibilities.getCertainMine();
   }
 
   /**
@@ -380,7 +271,7 @@ public class AIPlayer extends GamePlayer {
    * @return the list of MovePossibilities that are certainly not mines
    */
   public List<MovePossibility> getCertainNotMine() {
-    return certainNotMine;
+    return possibilities.getCertainNotMine();
   }
 
   /**
@@ -389,7 +280,7 @@ public class AIPlayer extends GamePlayer {
    *         mines.
    */
   public List<MovePossibility> getUncertain() {
-    return uncertain;
+    return possibilities.getUncertain();
   }
 
   @Override
@@ -1,15 +1,21 @@
 package edu.brown.cs.pdtran.minesweep.player;
 
-import edu.brown.cs.pdtran.minesweep.move.Move;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import edu.brown.cs.pdtran.minesweep.websockets.MoveHandler;
-import edu.brown.cs.pdtran.minesweep.websockets.NoSuchSessionException;
 
 /**
- * Represents the thread that an AI Player runs on.
+ * Represents the turns of an AI Player.
  * <p>
  * Governs whenever an AI player makes a move by waiting a certain amount
  * of time before requesting information from the AI as to the best moves
- * to choose.
+ * to choose. The wait is a task on a scheduler shared by every AI, not a
+ * sleeping thread. The AI chooses its move on its team's mailbox, after
+ * the team's earlier moves, so it sees the board as the latest of them
+ * left it. Other teams' moves run at the same time; see SessionLoops for
+ * how shared state is locked.
  * @author Clayton Sanford
  */
 public class AIRunnable implements Runnable {
@@ -21,6 +27,9 @@ public class AIRunnable implements Runnable {
   private MoveHandler handler;
   private int moveTime;
   private PlayerTeam team;
+  private ScheduledExecutorService scheduler;
+  private volatile ScheduledFuture<?> nextTurn;
+  private volatile boolean cancelled;
   private static final double BASE_TIME = 4000;
   private static final double TIME_MULTIPLIER = 350;
   private static final int MAX_DIFFICULTY = 10;
@@ -44,23 +53,46 @@ public class AIRunnable implements Runnable {
     this.team = team;
   }
 
+  /**
+   * Schedules the AI's first turn. Each turn schedules the next until the
+   * AI can no longer play or is cancelled.
+   * @param turnScheduler The scheduler shared by the AIs.
+   */
+  public void start(ScheduledExecutorService turnScheduler) {
+    scheduler = turnScheduler;
+    scheduleTurn();
+  }
+
+  /**
+   * Stops the AI from taking any more turns.
+   */
+  public void cancel() {
+    cancelled = true;
+    ScheduledFuture<?> turn = nextTurn;
+    if (turn != null) {
+      turn.cancel(false);
+    }
+  }
+
+  private boolean canPlay() {
+    return !cancelled && ai.getCanPlay();
+  }
+
+  private void scheduleTurn() {
+    if (canPlay()) {
+      int moveTimeRandomness =
+          (int) Math.round((Math.random() - RANDOM_SUBTRACTOR) * moveTime);
+      nextTurn = scheduler.schedule(this, moveTime + moveTimeRandomness,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
   @Override
   public void run() {
-    while (ai.getCanPlay()) {
-      try {
-        System.out.println(moveTime);
-        int moveTimeRandomness =
-            (int) Math.round((Math.random() - RANDOM_SUBTRACTOR)
-                * moveTime);
-        Thread.sleep(moveTime + moveTimeRandomness);
-        Move move = ai.getMove(team);
-        handler.makeMove(sessionId, teamId, move);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      } catch (NoSuchSessionException e) {
-        e.printStackTrace();
-      }
+    if (canPlay()) {
+      handler.playTurn(sessionId, teamId,
+          () -> canPlay() ? ai.getMove(team) : null);
+      scheduleTurn();
     }
-
   }
 }
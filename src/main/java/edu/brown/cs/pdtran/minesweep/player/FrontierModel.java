@@ -0,0 +1,235 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.NeighborTable;
+import edu.brown.cs.pdtran.minesweep.games.BoardData;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+
+/**
+ * An AI's picture of the frontier of a board, kept up to date from the
+ * cells revealed since it last looked rather than by scanning the board.
+ * <p>
+ * A constraint is a revealed number with hidden cells around it. For
+ * each one the model keeps how many of those cells are mines, which is
+ * the number less the mines revealed around it. When a cell is revealed,
+ * only it and its neighbors are touched, so keeping up costs as much as
+ * the reveals themselves. If the BoardData keeps no log of its reveals,
+ * the model scans the board whenever it syncs.
+ * @author Clayton Sanford
+ */
+public final class FrontierModel {
+
+  private final BoardData data;
+  private Board board;
+  private int width;
+  private NeighborTable table;
+  private boolean[] visited;
+  private boolean[] bomb;
+  private int[] mines;
+  private int[] hidden;
+  private int[][] around;
+  private TreeSet<Integer> constraints;
+  private int hiddenCount;
+  private int minesLeft;
+  private int seen;
+
+  /**
+   * Constructs a model of the board held by a BoardData.
+   * @param data The BoardData.
+   */
+  public FrontierModel(BoardData data) {
+    this.data = data;
+  }
+
+  /**
+   * Brings the model up to date with the board.
+   * @return The cells revealed since the last sync, or null if the model
+   *         was rebuilt.
+   */
+  public int[] sync() {
+    Board current = data.getCurrentBoard();
+    int[] reveals = null;
+    if (current == board) {
+      reveals = data.getRevealsSince(board, seen);
+    }
+    if (reveals == null) {
+      reset(current);
+      reveals = data.getRevealsSince(board, 0);
+      if (reveals == null) {
+        scan();
+        return null;
+      }
+    }
+    for (int cell : reveals) {
+      reveal(cell);
+    }
+    seen += reveals.length;
+    return reveals;
+  }
+
+  private void reset(Board current) {
+    board = current;
+    width = board.getWidth();
+    int cells = width * board.getHeight();
+    table = board.getNeighborTable();
+    visited = new boolean[cells];
+    bomb = new boolean[cells];
+    mines = new int[cells];
+    hidden = new int[cells];
+    around = new int[cells][];
+    int height = board.getHeight();
+    // Constraints are kept in column-major order, the order the AI has
+    // always looked at the board in.
+    constraints = new TreeSet<>((a, b) -> Integer.compare(
+        (a % width) * height + a / width, (b % width) * height + b / width));
+    hiddenCount = cells;
+    minesLeft = board.getBombCount();
+    seen = 0;
+  }
+
+  private void scan() {
+    int height = board.getHeight();
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        if (board.getTile(row, col).hasBeenVisited()) {
+          reveal(row * width + col);
+        }
+      }
+    }
+  }
+
+  private void reveal(int cell) {
+    if (visited[cell]) {
+      return;
+    }
+    Tile tile = board.getTile(cell / width, cell % width);
+    visited[cell] = true;
+    bomb[cell] = tile.isBomb();
+    hiddenCount--;
+    if (bomb[cell]) {
+      minesLeft--;
+    }
+    int count = tile.getAdjacentBombs();
+    int open = 0;
+    for (int k = table.start(cell); k < table.end(cell); k++) {
+      int neighbor = table.get(k);
+      if (!visited[neighbor]) {
+        open++;
+      } else if (bomb[neighbor]) {
+        count--;
+      } else {
+        hidden[neighbor]--;
+        around[neighbor] = null;
+        if (bomb[cell]) {
+          mines[neighbor]--;
+        }
+        if (hidden[neighbor] == 0) {
+          constraints.remove(neighbor);
+        }
+      }
+    }
+    if (!bomb[cell]) {
+      mines[cell] = count;
+      hidden[cell] = open;
+      if (open > 0) {
+        constraints.add(cell);
+      }
+    }
+  }
+
+  /**
+   * Gets the board the model follows.
+   * @return The board.
+   */
+  public Board getBoard() {
+    return board;
+  }
+
+  /**
+   * Gets the constraints, the revealed numbers with hidden cells around
+   * them.
+   * @return Their row-major indices, in column-major order.
+   */
+  public Collection<Integer> getConstraints() {
+    return Collections.unmodifiableSet(constraints);
+  }
+
+  /**
+   * Gets the hidden cells around a constraint.
+   * @param cell The row-major index of the constraint.
+   * @return The row-major indices of the hidden cells, which are kept
+   *         until one of them is revealed and must not be changed.
+   */
+  public int[] getHiddenAround(int cell) {
+    if (around[cell] == null) {
+      int[] cells = new int[hidden[cell]];
+      int size = 0;
+      for (int k = table.start(cell); k < table.end(cell); k++) {
+        int neighbor = table.get(k);
+        if (!visited[neighbor]) {
+          cells[size++] = neighbor;
+        }
+      }
+      around[cell] = cells;
+    }
+    return around[cell];
+  }
+
+  /**
+   * Gets the number of mines among the hidden cells around a constraint.
+   * @param cell The row-major index of the constraint.
+   * @return The number of mines.
+   */
+  public int getMinesAround(int cell) {
+    return mines[cell];
+  }
+
+  /**
+   * Tells you if a cell is still hidden.
+   * @param cell The row-major index of the cell.
+   * @return True if it is.
+   */
+  public boolean isHidden(int cell) {
+    return !visited[cell];
+  }
+
+  /**
+   * Gets the number of hidden cells on the board.
+   * @return The number of hidden cells.
+   */
+  public int getHiddenCount() {
+    return hiddenCount;
+  }
+
+  /**
+   * Gets the number of mines on the board not yet revealed.
+   * @return The number of mines.
+   */
+  public int getMinesLeft() {
+    return minesLeft;
+  }
+
+  /**
+   * Solves the constraints with a FrontierSolver. Since the hidden cells
+   * around a constraint are kept, a solver that remembers its components
+   * only enumerates those a reveal has touched.
+   * @param solver The solver.
+   * @return The probabilities.
+   */
+  public FrontierSolver.Result solve(FrontierSolver solver) {
+    List<int[]> cells = new ArrayList<>(constraints.size());
+    int[] counts = new int[constraints.size()];
+    for (int cell : constraints) {
+      counts[cells.size()] = mines[cell];
+      cells.add(getHiddenAround(cell));
+    }
+    return solver.solve(cells.toArray(new int[cells.size()][]), counts,
+        hiddenCount, minesLeft);
+  }
+}
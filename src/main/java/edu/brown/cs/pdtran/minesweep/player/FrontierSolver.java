@@ -0,0 +1,664 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.NeighborTable;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+
+/**
+ * Works out the exact chance of each hidden cell on the frontier being a
+ * mine, the frontier being the hidden cells next to a revealed number.
+ * <p>
+ * Every revealed number is a constraint: the hidden cells around it hold
+ * exactly as many mines as it shows, less the mines already revealed
+ * there. Cells that share no constraint cannot affect each other, so the
+ * frontier is split into independent components, and each component is
+ * enumerated on its own by backtracking, with the assignment kept as a
+ * bitset. For each component this counts, for every number of mines k,
+ * the solutions with k mines and how many of those have a mine in each
+ * cell. The components are then weighed against each other and against
+ * the cells off the frontier using the number of mines left on the
+ * board, which gives the probabilities exactly.
+ * <p>
+ * Enumeration is bounded by a time budget and by the size of a
+ * component. A component that is too big, that is still being
+ * enumerated when the budget runs out or that has no solution falls
+ * back to the flat estimate of its densest constraint, and is left out
+ * of the weighing.
+ * <p>
+ * A solver remembers the counts of the components it saw in its last
+ * solve, keyed by their constraints, so between two moves only the
+ * components a reveal has touched are enumerated again. A solver is
+ * therefore not safe to share between threads.
+ * @author Clayton Sanford
+ */
+public final class FrontierSolver {
+
+  private static final long DEFAULT_BUDGET_MILLIS = 50;
+  private static final int MAX_COMPONENT = Long.SIZE;
+  private static final int CHECK_INTERVAL = 1 << 10;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final long budgetNanos;
+  private final int maxComponent;
+  private Map<Signature, Counts> known = new HashMap<>();
+  private int[] variableOf = new int[0];
+
+  /**
+   * Constructs a solver with a budget of 50 ms and components of up to 64
+   * cells.
+   */
+  public FrontierSolver() {
+    this(DEFAULT_BUDGET_MILLIS, MAX_COMPONENT);
+  }
+
+  /**
+   * Constructs a solver.
+   * @param budgetMillis How long one solve may spend enumerating.
+   * @param maxComponent The most cells a component may have to be
+   *        enumerated, at most 64.
+   */
+  public FrontierSolver(long budgetMillis, int maxComponent) {
+    budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    this.maxComponent = Math.min(maxComponent, MAX_COMPONENT);
+  }
+
+  /**
+   * Solves the frontier of a board as it stands.
+   * @param board The board.
+   * @return The probabilities.
+   */
+  public Result solve(Board board) {
+    int width = board.getWidth();
+    int height = board.getHeight();
+    NeighborTable table = board.getNeighborTable();
+    boolean[] visited = new boolean[width * height];
+    boolean[] bomb = new boolean[width * height];
+    int hidden = 0;
+    int remaining = board.getBombCount();
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        Tile tile = board.getTile(row, col);
+        int cell = row * width + col;
+        visited[cell] = tile.hasBeenVisited();
+        bomb[cell] = tile.isBomb();
+        if (!visited[cell]) {
+          hidden++;
+        } else if (bomb[cell]) {
+          remaining--;
+        }
+      }
+    }
+
+    List<int[]> cells = new ArrayList<>();
+    List<Integer> mines = new ArrayList<>();
+    int[] buffer = new int[width * height];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int cell = row * width + col;
+        if (!visited[cell] || bomb[cell]) {
+          continue;
+        }
+        int count = board.getTile(row, col).getAdjacentBombs();
+        int size = 0;
+        for (int k = table.start(cell); k < table.end(cell); k++) {
+          int neighbor = table.get(k);
+          if (!visited[neighbor]) {
+            buffer[size++] = neighbor;
+          } else if (bomb[neighbor]) {
+            count--;
+          }
+        }
+        if (size > 0) {
+          cells.add(Arrays.copyOf(buffer, size));
+          mines.add(count);
+        }
+      }
+    }
+    int[] counts = new int[mines.size()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = mines.get(i);
+    }
+    return solve(cells.toArray(new int[cells.size()][]), counts, hidden,
+        remaining);
+  }
+
+  /**
+   * Solves a set of constraints. Components whose constraints have not
+   * changed since the last solve are not enumerated again.
+   * @param constraintCells For each constraint, the hidden cells it
+   *        covers, by any non-negative ids unique to the cells.
+   * @param constraintMines For each constraint, the mines in its cells.
+   * @param hiddenCount The number of hidden cells on the board, on the
+   *        frontier or not.
+   * @param minesLeft The number of mines on the board not yet revealed.
+   * @return The probabilities.
+   */
+  public Result solve(int[][] constraintCells, int[] constraintMines,
+      int hiddenCount, int minesLeft) {
+    long deadline = System.nanoTime() + budgetNanos;
+
+    // variableOf holds each cell's variable plus one, and is cleared
+    // again before returning, so it only costs as much as the frontier.
+    int[] ids = new int[INITIAL_CAPACITY];
+    int n = 0;
+    int[][] scopes = new int[constraintCells.length][];
+    int[] degree = new int[INITIAL_CAPACITY];
+    for (int c = 0; c < scopes.length; c++) {
+      int[] scope = new int[constraintCells[c].length];
+      for (int i = 0; i < scope.length; i++) {
+        int cell = constraintCells[c][i];
+        if (cell >= variableOf.length) {
+          variableOf = Arrays.copyOf(variableOf,
+              Math.max(cell + 1, variableOf.length * 2));
+        }
+        int v = variableOf[cell] - 1;
+        if (v < 0) {
+          if (n == ids.length) {
+            ids = Arrays.copyOf(ids, n * 2);
+            degree = Arrays.copyOf(degree, n * 2);
+          }
+          v = n++;
+          variableOf[cell] = v + 1;
+          ids[v] = cell;
+        }
+        scope[i] = v;
+        degree[v]++;
+      }
+      scopes[c] = scope;
+    }
+    int[][] incident = new int[n][];
+    for (int v = 0; v < n; v++) {
+      incident[v] = new int[degree[v]];
+      degree[v] = 0;
+      variableOf[ids[v]] = 0;
+    }
+    for (int c = 0; c < scopes.length; c++) {
+      for (int v : scopes[c]) {
+        incident[v][degree[v]++] = c;
+      }
+    }
+
+    double[] probabilities = new double[n];
+    List<Component> exact = new ArrayList<>();
+    boolean allExact = true;
+    double fallbackMines = 0;
+    boolean[] seen = new boolean[n];
+    int[] queue = new int[n];
+    int[] localOf = new int[n];
+    int[] constraintOf = new int[scopes.length];
+    int[] owner = new int[scopes.length];
+    Arrays.fill(owner, -1);
+    Map<Signature, Counts> enumerated = new HashMap<>();
+    for (int v = 0; v < n; v++) {
+      if (seen[v]) {
+        continue;
+      }
+      int size = order(v, scopes, incident, seen, queue);
+      // Every constraint of a component is owned by its first cell.
+      Component component = new Component(Arrays.copyOf(queue, size),
+          scopes, incident, constraintMines, ids, v, localOf, constraintOf,
+          owner);
+      int cap = Math.min(minesLeft, size);
+      Counts counts = known.get(component.signature);
+      if (counts == null || counts.cap != cap) {
+        counts = size > maxComponent ? new Counts(cap)
+            : component.enumerate(cap, deadline);
+      }
+      enumerated.put(component.signature, counts);
+      if (counts.solutions == null) {
+        allExact = false;
+        fallbackMines += component.estimate(probabilities);
+      } else {
+        component.counts = counts;
+        exact.add(component);
+      }
+    }
+    known = enumerated;
+
+    int interior = hiddenCount - n;
+    int left = minesLeft - (int) Math.round(fallbackMines);
+    double interiorProbability =
+        weigh(exact, interior, left, probabilities);
+    return new Result(Arrays.copyOf(ids, n), probabilities,
+        interiorProbability, allExact);
+  }
+
+  /**
+   * Finds the cells of a component breadth first through the
+   * constraints, which also orders them so each constraint is closed soon
+   * after it is opened and dead ends are found early.
+   * @return The number of cells, which are left at the start of queue.
+   */
+  private static int order(int start, int[][] scopes, int[][] incident,
+      boolean[] seen, int[] queue) {
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = start;
+    seen[start] = true;
+    while (head < tail) {
+      int v = queue[head++];
+      for (int c : incident[v]) {
+        for (int w : scopes[c]) {
+          if (!seen[w]) {
+            seen[w] = true;
+            queue[tail++] = w;
+          }
+        }
+      }
+    }
+    return tail;
+  }
+
+  /**
+   * Combines the components with the number of mines left, writing the
+   * probability of each of their cells, and gives the probability of a
+   * cell off the frontier.
+   */
+  private static double weigh(List<Component> components, int interior,
+      int left, double[] probabilities) {
+    int m = components.size();
+    double[][] prefix = new double[m + 1][];
+    prefix[0] = new double[] {1};
+    for (int i = 0; i < m; i++) {
+      prefix[i + 1] =
+          convolve(prefix[i], components.get(i).counts.solutions);
+    }
+    double[] total = prefix[m];
+    double[] rest = interiorWeights(total.length, interior, left);
+
+    double weight = 0;
+    double interiorMines = 0;
+    for (int k = 0; k < total.length; k++) {
+      weight += total[k] * rest[k];
+      interiorMines += total[k] * rest[k] * (left - k);
+    }
+    if (weight == 0) {
+      // The mine count rules out every solution, so it is not trusted.
+      Arrays.fill(rest, 1);
+      for (int k = 0; k < total.length; k++) {
+        weight += total[k];
+      }
+      interiorMines = 0;
+    }
+
+    // after[i][t] weighs t mines in the components before i by the ways
+    // to place the rest in the components from i on and off the frontier,
+    // so no component has to convolve all of the others.
+    double[][] after = new double[m + 1][];
+    after[m] = rest;
+    for (int i = m - 1; i >= 0; i--) {
+      double[] solutions = components.get(i).counts.solutions;
+      double[] next = after[i + 1];
+      double[] current = new double[prefix[i].length];
+      for (int c = 0; c < solutions.length; c++) {
+        if (solutions[c] == 0) {
+          continue;
+        }
+        for (int t = 0; t < current.length; t++) {
+          current[t] += solutions[c] * next[t + c];
+        }
+      }
+      after[i] = current;
+    }
+
+    for (int i = 0; i < m; i++) {
+      Component component = components.get(i);
+      Counts counts = component.counts;
+      double[] before = prefix[i];
+      double[] next = after[i + 1];
+      double[] scale = new double[counts.solutions.length];
+      for (int k = 0; k < scale.length; k++) {
+        if (counts.solutions[k] == 0) {
+          continue;
+        }
+        for (int a = 0; a < before.length; a++) {
+          scale[k] += before[a] * next[k + a];
+        }
+      }
+      for (int local = 0; local < component.cells.length; local++) {
+        double sum = 0;
+        for (int k = 0; k < scale.length; k++) {
+          sum += counts.mines[local][k] * scale[k];
+        }
+        probabilities[component.cells[local]] = sum / weight;
+      }
+    }
+    if (interior <= 0) {
+      return Double.NaN;
+    }
+    return Math.min(1, Math.max(0, interiorMines / weight / interior));
+  }
+
+  /**
+   * Weighs each number of mines on the frontier by the number of ways to
+   * place the rest off it, scaled so the largest weight is one. Each
+   * binomial is found from the one before it.
+   */
+  private static double[] interiorWeights(int length, int interior,
+      int left) {
+    double[] logs = new double[length];
+    double max = Double.NEGATIVE_INFINITY;
+    int cells = Math.max(interior, 0);
+    double log = 0;
+    boolean started = false;
+    for (int k = 0; k < length; k++) {
+      int rest = left - k;
+      if (rest < 0 || rest > cells) {
+        logs[k] = Double.NEGATIVE_INFINITY;
+        continue;
+      }
+      if (!started) {
+        log = logChoose(cells, rest);
+        started = true;
+      } else {
+        // C(cells, rest) = C(cells, rest + 1) * (rest + 1) / (cells - rest)
+        log += Math.log(rest + 1) - Math.log(cells - rest);
+      }
+      logs[k] = log;
+      max = Math.max(max, log);
+    }
+    double[] weights = new double[length];
+    for (int k = 0; k < length; k++) {
+      weights[k] = max == Double.NEGATIVE_INFINITY ? 0
+          : Math.exp(logs[k] - max);
+    }
+    return weights;
+  }
+
+  private static double logChoose(int n, int k) {
+    double log = 0;
+    int smaller = Math.min(k, n - k);
+    for (int i = 1; i <= smaller; i++) {
+      log += Math.log(n - smaller + i) - Math.log(i);
+    }
+    return log;
+  }
+
+  private static double[] convolve(double[] a, double[] b) {
+    double[] out = new double[a.length + b.length - 1];
+    int first = 0;
+    int last = b.length - 1;
+    while (first < last && b[first] == 0) {
+      first++;
+    }
+    while (last > first && b[last] == 0) {
+      last--;
+    }
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == 0) {
+        continue;
+      }
+      for (int j = first; j <= last; j++) {
+        out[i + j] += a[i] * b[j];
+      }
+    }
+    return out;
+  }
+
+  /**
+   * One independent group of frontier cells and their constraints.
+   */
+  private static final class Component {
+    private final int[] cells;
+    private final int[][] localScopes;
+    private final int[] localMines;
+    private final int[][] localIncident;
+    private final Signature signature;
+    private Counts counts;
+    private int[] placed;
+    private int[] open;
+    private long nodes;
+    private long deadline;
+    private boolean timedOut;
+
+    Component(int[] cells, int[][] scopes, int[][] incident,
+        int[] constraintMines, int[] ids, int id, int[] localOf,
+        int[] constraintOf, int[] owner) {
+      this.cells = cells;
+      for (int i = 0; i < cells.length; i++) {
+        localOf[cells[i]] = i;
+      }
+      List<int[]> localScopeList = new ArrayList<>();
+      List<Integer> localMineList = new ArrayList<>();
+      localIncident = new int[cells.length][];
+      int keyLength = 0;
+      for (int i = 0; i < cells.length; i++) {
+        int[] around = incident[cells[i]];
+        localIncident[i] = new int[around.length];
+        for (int j = 0; j < around.length; j++) {
+          int c = around[j];
+          if (owner[c] != id) {
+            owner[c] = id;
+            constraintOf[c] = localScopeList.size();
+            int[] scope = new int[scopes[c].length];
+            for (int s = 0; s < scope.length; s++) {
+              scope[s] = localOf[scopes[c][s]];
+            }
+            localScopeList.add(scope);
+            localMineList.add(constraintMines[c]);
+            keyLength += 2 + scope.length;
+          }
+          localIncident[i][j] = constraintOf[c];
+        }
+      }
+      localScopes = localScopeList.toArray(new int[0][]);
+      localMines = new int[localMineList.size()];
+      int[] key = new int[keyLength];
+      int size = 0;
+      for (int c = 0; c < localMines.length; c++) {
+        localMines[c] = localMineList.get(c);
+        key[size++] = localMines[c];
+        key[size++] = localScopes[c].length;
+        for (int local : localScopes[c]) {
+          key[size++] = ids[cells[local]];
+        }
+      }
+      signature = new Signature(key);
+    }
+
+    /**
+     * Counts the solutions of the component, scaled so the most common
+     * number of mines has a count of one.
+     * @return The counts, which have none if the deadline passed first or
+     *         there were no solutions.
+     */
+    Counts enumerate(int cap, long until) {
+      deadline = until;
+      open = new int[localMines.length];
+      placed = new int[localMines.length];
+      for (int c = 0; c < localMines.length; c++) {
+        open[c] = localScopes[c].length;
+      }
+      double[] solutions = new double[cells.length + 1];
+      double[][] mines = new double[cells.length][cells.length + 1];
+      search(0, 0L, 0, cap, solutions, mines);
+      double max = 0;
+      for (double count : solutions) {
+        max = Math.max(max, count);
+      }
+      if (timedOut || max == 0) {
+        return new Counts(cap);
+      }
+      for (int k = 0; k < solutions.length; k++) {
+        solutions[k] /= max;
+        for (double[] cell : mines) {
+          cell[k] /= max;
+        }
+      }
+      return new Counts(cap, solutions, mines);
+    }
+
+    private void search(int depth, long assignment, int count, int cap,
+        double[] solutions, double[][] mines) {
+      if (timedOut) {
+        return;
+      }
+      if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+        timedOut = true;
+        return;
+      }
+      if (depth == cells.length) {
+        solutions[count]++;
+        long bits = assignment;
+        while (bits != 0) {
+          mines[Long.numberOfTrailingZeros(bits)][count]++;
+          bits &= bits - 1;
+        }
+        return;
+      }
+      for (int value = 0; value <= 1; value++) {
+        if (value == 1 && count == cap) {
+          break;
+        }
+        if (assign(depth, value)) {
+          search(depth + 1, assignment | ((long) value << depth),
+              count + value, cap, solutions, mines);
+        }
+        unassign(depth, value);
+      }
+    }
+
+    private boolean assign(int local, int value) {
+      boolean consistent = true;
+      for (int c : localIncident[local]) {
+        open[c]--;
+        placed[c] += value;
+        if (placed[c] > localMines[c]
+            || placed[c] + open[c] < localMines[c]) {
+          consistent = false;
+        }
+      }
+      return consistent;
+    }
+
+    private void unassign(int local, int value) {
+      for (int c : localIncident[local]) {
+        open[c]++;
+        placed[c] -= value;
+      }
+    }
+
+    /**
+     * Gives each cell the density of its densest constraint.
+     * @return The expected number of mines in the component.
+     */
+    double estimate(double[] probabilities) {
+      double expected = 0;
+      for (int i = 0; i < cells.length; i++) {
+        double p = 0;
+        for (int c : localIncident[i]) {
+          p = Math.max(p, (double) localMines[c] / localScopes[c].length);
+        }
+        probabilities[cells[i]] = Math.min(1, Math.max(0, p));
+        expected += probabilities[cells[i]];
+      }
+      return expected;
+    }
+  }
+
+  /**
+   * A component's constraints, in the order its cells were found: for
+   * each, its mines, its size and its cells by id. Two components with the
+   * same signature have the same solutions.
+   */
+  private static final class Signature {
+    private final int[] key;
+    private final int hash;
+
+    Signature(int[] key) {
+      this.key = key;
+      hash = Arrays.hashCode(key);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Signature && Arrays.equals(key, ((Signature) o).key);
+    }
+  }
+
+  /**
+   * The solutions of a component with at most some number of mines, or
+   * none if it could not be enumerated.
+   */
+  private static final class Counts {
+    private final int cap;
+    private final double[] solutions;
+    private final double[][] mines;
+
+    Counts(int cap) {
+      this(cap, null, null);
+    }
+
+    Counts(int cap, double[] solutions, double[][] mines) {
+      this.cap = cap;
+      this.solutions = solutions;
+      this.mines = mines;
+    }
+  }
+
+  /**
+   * The probabilities found by a solve.
+   */
+  public static final class Result {
+    private final int[] cells;
+    private final double[] probabilities;
+    private final double interiorProbability;
+    private final boolean exact;
+
+    private Result(int[] cells, double[] probabilities,
+        double interiorProbability, boolean exact) {
+      this.cells = cells;
+      this.probabilities = probabilities;
+      this.interiorProbability = interiorProbability;
+      this.exact = exact;
+    }
+
+    /**
+     * Gets the frontier cells.
+     * @return The ids of the cells, which are row-major indices when
+     *         solving a board.
+     */
+    public int[] getCells() {
+      return cells;
+    }
+
+    /**
+     * Gets the chance of each frontier cell being a mine.
+     * @return The probabilities, in the order of getCells.
+     */
+    public double[] getProbabilities() {
+      return probabilities;
+    }
+
+    /**
+     * Gets the chance of a hidden cell off the frontier being a mine.
+     * @return The probability, or NaN if every hidden cell is on the
+     *         frontier.
+     */
+    public double getInteriorProbability() {
+      return interiorProbability;
+    }
+
+    /**
+     * Tells you if every component was enumerated, so the probabilities
+     * are exact.
+     * @return True if they are.
+     */
+    public boolean isExact() {
+      return exact;
+    }
+  }
+}
@@ -10,7 +10,7 @@ import edu.brown.cs.pdtran.minesweep.session.Player;
 public abstract class GamePlayer extends Player {
 
   protected int score;
-  protected boolean canPlay;
+  protected volatile boolean canPlay;
 
   protected GamePlayer(String name) {
     super(name);
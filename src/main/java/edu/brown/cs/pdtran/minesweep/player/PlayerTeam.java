@@ -1,6 +1,7 @@
 package edu.brown.cs.pdtran.minesweep.player;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,20 +22,35 @@ import edu.brown.cs.pdtran.minesweep.types.MoveResponse;
 
 /**
  * Represents a Team of Players that works together in a game of Minesweep.
+ * <p>
+ * The team's board is only changed while holding the team's monitor and
+ * then the board's, in that order, so a snapshot taken from another
+ * thread that holds them too sees whole moves, even on a board that
+ * several teams share.
  * @author Clayton
  */
 public class PlayerTeam extends Team implements BoardData {
 
+  private static final int[] NO_CELLS = new int[0];
+  private static final int INITIAL_LOG_CAPACITY = 64;
+
   private ConcurrentMap<String, GamePlayer> players;
   private int score;
   private int lives;
-  private Boolean isWinner;
-  private Boolean isLoser;
+  private volatile Boolean isWinner;
+  private volatile Boolean isLoser;
   private List<Board> boards;
-  private int boardIndex;
+  private volatile int boardIndex;
   private List<AIPlayer> aiPlayers;
   private List<String> humanPlayers;
   private boolean[][] flaggedTiles;
+  private int boardVersion;
+  private Board changedBoard;
+  private int[] changedTiles;
+  private int[] changedFlags;
+  private int[] reveals;
+  private int revealCount;
+  private TeamAnalysis analysis;
 
 
   /**
@@ -52,6 +68,11 @@ public class PlayerTeam extends Team implements BoardData {
     players = new ConcurrentHashMap<String, GamePlayer>();
     aiPlayers = new ArrayList<AIPlayer>();
     humanPlayers = tf.getHumans();
+    // The AIs look at the board as soon as they are made, so the log they
+    // follow it by and the analysis they share must be ready first.
+    reveals = new int[INITIAL_LOG_CAPACITY];
+    startLog();
+    analysis = new TeamAnalysis(this);
     for (Map.Entry<String, Gamer> entry : tf.getPlayers().entrySet()) {
       players.put(entry.getKey(), entry.getValue()
           .toGamePlayer(this, aiPlayers));
@@ -67,6 +88,11 @@ public class PlayerTeam extends Team implements BoardData {
       }
     }
 
+    boardVersion = 0;
+    changedBoard = getCurrentBoard();
+    changedTiles = NO_CELLS;
+    changedFlags = NO_CELLS;
+
     score = 0;
     isWinner = false;
     isLoser = false;
@@ -80,12 +106,41 @@ public class PlayerTeam extends Team implements BoardData {
   }
 
   /**
-   * Gets the nextBoard in the list of Boards.
+   * Gets the nextBoard in the list of Boards. After the last board, that
+   * board stays current, so the finished board can still be resent and
+   * read.
    * @return True if there is another board to be used.
    */
-  public Boolean nextBoard() {
+  public synchronized Boolean nextBoard() {
+    if (boardIndex + 1 >= boards.size()) {
+      return false;
+    }
     boardIndex++;
-    return boardIndex < boards.size();
+    boardVersion++;
+    startLog();
+    return true;
+  }
+
+  /**
+   * Starts the reveal log of the current board with the cells already
+   * visited on it, such as the opening of a no-guess board, so that a
+   * reader following the log sees them too.
+   */
+  private void startLog() {
+    Board board = getCurrentBoard();
+    int width = board.getWidth();
+    int height = board.getHeight();
+    revealCount = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        if (board.getTile(row, col).hasBeenVisited()) {
+          if (revealCount == reveals.length) {
+            reveals = Arrays.copyOf(reveals, reveals.length * 2);
+          }
+          reveals[revealCount++] = row * width + col;
+        }
+      }
+    }
   }
 
   /**
@@ -213,33 +268,159 @@ public class PlayerTeam extends Team implements BoardData {
       flags.add(col);
     }
     teamData.add("flags", flags);
+    teamData.addProperty("version", boardVersion);
 
     return teamData;
   }
 
+  /**
+   * Gets the version of the team's view of its board. It goes up by one
+   * with every change, so a client that misses one can tell.
+   * @return The version of the board.
+   */
+  public int getBoardVersion() {
+    return boardVersion;
+  }
+
+  /**
+   * Gets the cells changed by the latest change to the team's board,
+   * rather than the whole board as getBoardInfo does.
+   * @return A JSONObject with the new version, the changed tiles and the
+   *         changed flags.
+   */
+  public JsonObject getBoardDelta() {
+    JsonObject delta = getFlagsDelta();
+    delta.add("tiles", changedBoard.cellsToJson(changedTiles));
+    return delta;
+  }
+
+  /**
+   * Gets the part of getBoardDelta that is the team's own: the version
+   * and the changed flags, without the changed tiles.
+   * @return A JSONObject with the new version and the changed flags.
+   */
+  public JsonObject getFlagsDelta() {
+    JsonObject delta = new JsonObject();
+    delta.addProperty("version", boardVersion);
+
+    int width = changedBoard.getWidth();
+    JsonArray flags = new JsonArray();
+    for (int cell : changedFlags) {
+      int x = cell % width;
+      int y = cell / width;
+      JsonObject flag = new JsonObject();
+      flag.addProperty("row", y);
+      flag.addProperty("column", x);
+      flag.addProperty("flagged", flaggedTiles[x][y]);
+      flags.add(flag);
+    }
+    delta.add("flags", flags);
+
+    return delta;
+  }
+
+  /**
+   * Gets the board the latest change was made to.
+   * @return The board.
+   */
+  public Board getChangedBoard() {
+    return changedBoard;
+  }
+
+  /**
+   * Gets the tiles changed by the latest change to the team's board.
+   * @return Their row-major indices.
+   */
+  public int[] getChangedTiles() {
+    return changedTiles;
+  }
+
+  /**
+   * Gets the flags changed by the latest change to the team's board.
+   * @return Their row-major indices.
+   */
+  public int[] getChangedFlags() {
+    return changedFlags;
+  }
+
+  /**
+   * Records a change to the team's board that the team did not make, such
+   * as cells revealed by another team sharing the board.
+   * @param board The board that changed.
+   * @param cells The row-major indices of the cells that changed.
+   */
+  public synchronized void recordChange(Board board, int[] cells) {
+    boardVersion++;
+    changedBoard = board;
+    changedTiles = cells;
+    changedFlags = NO_CELLS;
+    if (revealCount + cells.length > reveals.length) {
+      reveals = Arrays.copyOf(reveals,
+          Math.max(reveals.length * 2, revealCount + cells.length));
+    }
+    System.arraycopy(cells, 0, reveals, revealCount, cells.length);
+    revealCount += cells.length;
+  }
+
+  /**
+   * Gets the cells revealed on the team's current board since a reader
+   * last looked. The log starts with the cells already visited when the
+   * board became current, and every later reveal goes through
+   * recordChange, including those made by other teams on a shared board,
+   * so the log is complete.
+   * @param board The board the reader is following.
+   * @param from The number of reveals the reader has already seen.
+   * @return The row-major indices of the cells revealed since, or null
+   *         if the board is no longer the team's current board.
+   */
+  @Override
+  public synchronized int[] getRevealsSince(Board board, int from) {
+    if (board != getCurrentBoard() || from > revealCount) {
+      return null;
+    }
+    return Arrays.copyOfRange(reveals, from, revealCount);
+  }
+
+  /**
+   * Gets the analysis of the team's board shared by its AIs.
+   * @return The analysis.
+   */
+  @Override
+  public TeamAnalysis getAnalysis() {
+    return analysis;
+  }
+
   /**
    * Makes a move as requested by a Player.
    * @param m The Move to be passed through the system.
    * @return A MoveResponse enum based on the type of response returned.
    */
-  public MoveResponse makeMove(Move m) {
+  public synchronized MoveResponse makeMove(Move m) {
     Board currentBoard = getCurrentBoard();
     int x = m.getXCoord();
     int y = m.getYCoord();
-    switch (m.getMoveType()) {
-      case CHECK:
-        return currentBoard.makeMove(y, x);
-      case FLAG:
-        if (currentBoard.isWithinBoard(x, y)) {
-          Tile tile = currentBoard.getTile(y, x);
-          if (!tile.hasBeenVisited()) {
-            flaggedTiles[x][y] = !flaggedTiles[x][y];
-            return MoveResponse.FLAG;
+    synchronized (currentBoard) {
+      switch (m.getMoveType()) {
+        case CHECK:
+          MoveResponse response = currentBoard.makeMove(y, x);
+          if (response != MoveResponse.INVALID) {
+            recordChange(currentBoard, currentBoard.getLastRevealed());
           }
-        }
-        return MoveResponse.INVALID;
-      default:
-        return MoveResponse.INVALID;
+          return response;
+        case FLAG:
+          if (currentBoard.isWithinBoard(x, y)) {
+            Tile tile = currentBoard.getTile(y, x);
+            if (!tile.hasBeenVisited()) {
+              flaggedTiles[x][y] = !flaggedTiles[x][y];
+              recordChange(currentBoard, NO_CELLS);
+              changedFlags = new int[] {y * currentBoard.getWidth() + x};
+              return MoveResponse.FLAG;
+            }
+          }
+          return MoveResponse.INVALID;
+        default:
+          return MoveResponse.INVALID;
+      }
     }
   }
 
@@ -0,0 +1,305 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.games.BoardData;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+
+/**
+ * The analysis of a team's board shared by all of the team's AIs.
+ * <p>
+ * The AIs read the board through one FrontierModel, and whichever AI
+ * first asks after a reveal works out the move possibilities; the others
+ * reuse them until the next reveal. Easy and medium AIs estimate mines
+ * by subtracting blocks of tiles from each other, and hard AIs use a
+ * FrontierSolver, so each kind is worked out at most once per reveal.
+ * <p>
+ * An AI reserves the tile it is about to check, so a teammate choosing
+ * from the same possibilities takes a different one instead of sending
+ * the same move again. Reservations last until the board next changes,
+ * when the tiles they were for have been revealed.
+ * @author Clayton Sanford
+ */
+public final class TeamAnalysis {
+
+  private static final double EPSILON = 1e-9;
+
+  private final FrontierModel model;
+  private FrontierSolver solver;
+  private Possibilities estimated;
+  private Possibilities solved;
+  private final Set<Integer> reserved;
+
+  /**
+   * Constructs an analysis of the board held by a BoardData.
+   * @param data The BoardData.
+   */
+  public TeamAnalysis(BoardData data) {
+    model = new FrontierModel(data);
+    reserved = new HashSet<>();
+  }
+
+  /**
+   * Gets the move possibilities for the board as it stands, working them
+   * out only if the board has changed since they were last asked for.
+   * @param exact True for the exact probabilities of a FrontierSolver,
+   *        false for the estimates of MineBlocks.
+   * @return The move possibilities.
+   */
+  public synchronized Possibilities analyze(boolean exact) {
+    int[] reveals = model.sync();
+    if (reveals == null || reveals.length > 0) {
+      estimated = null;
+      solved = null;
+      reserved.clear();
+    }
+    if (exact) {
+      if (solved == null) {
+        if (solver == null) {
+          solver = new FrontierSolver();
+        }
+        solved = solve();
+      }
+      return solved;
+    }
+    if (estimated == null) {
+      estimated = estimate();
+    }
+    return estimated;
+  }
+
+  /**
+   * Reserves a tile for the AI about to check it.
+   * @param tile The tile.
+   * @return False if a teammate has already reserved it.
+   */
+  public synchronized boolean reserve(Tile tile) {
+    return reserved.add(cellOf(tile));
+  }
+
+  /**
+   * Tells you if a tile has been reserved by an AI about to check it.
+   * @param tile The tile.
+   * @return True if it has.
+   */
+  public synchronized boolean isReserved(Tile tile) {
+    return reserved.contains(cellOf(tile));
+  }
+
+  /**
+   * Gets the model the analysis reads the board through.
+   * @return The model.
+   */
+  public FrontierModel getModel() {
+    return model;
+  }
+
+  private int cellOf(Tile tile) {
+    return tile.getRow() * model.getBoard().getWidth() + tile.getColumn();
+  }
+
+  private Possibilities estimate() {
+    List<MovePossibility> certainMine = new ArrayList<>();
+    List<MovePossibility> certainNotMine = new ArrayList<>();
+    List<MovePossibility> uncertain = new ArrayList<>();
+    List<MineBlock> blocks = new ArrayList<>();
+    Board board = model.getBoard();
+    int width = board.getWidth();
+
+    // Creates a MineBlock for every revealed number with hidden neighbors
+    for (int cell : model.getConstraints()) {
+      List<Tile> unvisitedTiles = new ArrayList<>();
+      for (int neighbor : model.getHiddenAround(cell)) {
+        unvisitedTiles.add(board.getTile(neighbor / width,
+            neighbor % width));
+      }
+      int adjacentBombs = model.getMinesAround(cell);
+
+      MineBlock mb1 = blockFromTile(adjacentBombs, unvisitedTiles);
+      Boolean needsCheck = true;
+
+      // Subtracts the MineBlock with other MineBlocks
+      while (needsCheck) {
+        needsCheck = false;
+        MineBlock remove = null;
+        for (MineBlock mb2 : blocks) {
+          if (mb2.contains(mb1) && !mb1.getTiles().isEmpty()) {
+            mb2.subtract(mb1);
+            needsCheck = true;
+            if (mb2.getTiles().isEmpty()) {
+              remove = mb2;
+              break;
+            }
+          } else if (mb1.contains(mb2) && !mb2.getTiles().isEmpty()) {
+            mb1.subtract(mb2);
+            if (mb1.getTiles().isEmpty()) {
+              break;
+            }
+            needsCheck = true;
+          }
+        }
+        blocks.remove(remove);
+      }
+      if (!mb1.getTiles().isEmpty()) {
+        blocks.add(mb1);
+      }
+    }
+
+    // Converts MineBlocks to MovePossibilities
+    for (MineBlock mb : blocks) {
+      double probability =
+          (double) mb.getNumMines() / mb.getTiles().size();
+
+      for (Tile adj : mb.getTiles()) {
+        if (!adj.hasBeenVisited()) {
+          MovePossibility mp = new MovePossibility(adj, probability);
+          if (probability == 0) {
+            certainNotMine.add(mp);
+          } else if (probability == 1) {
+            for (int i = 0; i < uncertain.size(); i++) {
+              MovePossibility uncertainMp = uncertain.get(i);
+              if (uncertainMp.getXCoord() == mp.getXCoord()
+                  && uncertainMp.getYCoord() == mp.getYCoord()) {
+                if (uncertainMp.getMineProbability() < probability) {
+                  uncertain.remove(uncertainMp);
+                }
+              }
+            }
+            certainMine.add(mp);
+          } else {
+            boolean contained = false;
+            for (int i = 0; i < uncertain.size(); i++) {
+              MovePossibility uncertainMp = uncertain.get(i);
+              if (uncertainMp.getXCoord() == mp.getXCoord()
+                  && uncertainMp.getYCoord() == mp.getYCoord()) {
+                contained = true;
+                if (uncertainMp.getMineProbability() < probability) {
+                  uncertain.remove(uncertainMp);
+                  uncertain.add(mp);
+                }
+              }
+            }
+            for (int i = 0; i < certainMine.size(); i++) {
+              MovePossibility mineMp = certainMine.get(i);
+              if (mineMp.getXCoord() == mp.getXCoord()
+                  && mineMp.getYCoord() == mp.getYCoord()) {
+                contained = true;
+              }
+            }
+            if (!contained) {
+              uncertain.add(mp);
+            }
+          }
+        }
+      }
+    }
+    return new Possibilities(certainMine, certainNotMine, uncertain,
+        Collections.emptySet(), Double.NaN);
+  }
+
+  private Possibilities solve() {
+    List<MovePossibility> certainMine = new ArrayList<>();
+    List<MovePossibility> certainNotMine = new ArrayList<>();
+    List<MovePossibility> uncertain = new ArrayList<>();
+    Board board = model.getBoard();
+    int width = board.getWidth();
+    FrontierSolver.Result result = model.solve(solver);
+    int[] cells = result.getCells();
+    double[] probabilities = result.getProbabilities();
+    Set<Integer> frontier = new HashSet<>();
+    for (int i = 0; i < cells.length; i++) {
+      frontier.add(cells[i]);
+      Tile tile = board.getTile(cells[i] / width, cells[i] % width);
+      double probability = probabilities[i];
+      if (probability < EPSILON) {
+        certainNotMine.add(new MovePossibility(tile, 0));
+      } else if (probability > 1 - EPSILON) {
+        certainMine.add(new MovePossibility(tile, 1));
+      } else {
+        uncertain.add(new MovePossibility(tile, probability));
+      }
+    }
+    return new Possibilities(certainMine, certainNotMine, uncertain,
+        frontier, result.getInteriorProbability());
+  }
+
+  private MineBlock blockFromTile(int totalSurrounding, List<Tile> adjacent) {
+    Set<Tile> setTiles = new HashSet<>();
+    for (Tile t : adjacent) {
+      if (!t.hasBeenVisited()) {
+        setTiles.add(t);
+      }
+    }
+    return new MineBlock(setTiles, totalSurrounding);
+  }
+
+  /**
+   * The move possibilities worked out for one state of the board. They
+   * are shared between AIs, so they cannot be changed.
+   */
+  public static final class Possibilities {
+    private final List<MovePossibility> certainMine;
+    private final List<MovePossibility> certainNotMine;
+    private final List<MovePossibility> uncertain;
+    private final Set<Integer> frontier;
+    private final double interiorProbability;
+
+    private Possibilities(List<MovePossibility> certainMine,
+        List<MovePossibility> certainNotMine,
+        List<MovePossibility> uncertain, Set<Integer> frontier,
+        double interiorProbability) {
+      this.certainMine = Collections.unmodifiableList(certainMine);
+      this.certainNotMine = Collections.unmodifiableList(certainNotMine);
+      this.uncertain = Collections.unmodifiableList(uncertain);
+      this.frontier = Collections.unmodifiableSet(frontier);
+      this.interiorProbability = interiorProbability;
+    }
+
+    /**
+     * Gets the tiles that are certainly mines.
+     * @return The MovePossibilities of the tiles.
+     */
+    public List<MovePossibility> getCertainMine() {
+      return certainMine;
+    }
+
+    /**
+     * Gets the tiles that are certainly not mines.
+     * @return The MovePossibilities of the tiles.
+     */
+    public List<MovePossibility> getCertainNotMine() {
+      return certainNotMine;
+    }
+
+    /**
+     * Gets the tiles that may or may not be mines.
+     * @return The MovePossibilities of the tiles.
+     */
+    public List<MovePossibility> getUncertain() {
+      return uncertain;
+    }
+
+    /**
+     * Tells you if a hidden cell is next to a revealed number. Only exact
+     * possibilities keep the frontier.
+     * @param cell The row-major index of the cell.
+     * @return True if it is.
+     */
+    public boolean isOnFrontier(int cell) {
+      return frontier.contains(cell);
+    }
+
+    /**
+     * Gets the chance of a hidden cell off the frontier being a mine.
+     * @return The probability, or NaN if it is not known.
+     */
+    public double getInteriorProbability() {
+      return interiorProbability;
+    }
+  }
+}
@@ -73,6 +73,21 @@ public class CreateRoomRoute implements Route {
         new GameSpecs(gameMode, boardType, 1, numTeams, numPlayers,
             numLives,
             boardDims, difficulty);
+    String seedString = params.value("seed");
+    if (seedString != null && !seedString.trim().isEmpty()) {
+      // Lets a recorded game be replayed on the same boards. A seed that
+      // is not a number is treated like no seed, as out of range sizes
+      // are clamped rather than refused.
+      try {
+        specs =
+            new GameSpecs(gameMode, boardType, 1, numTeams, numPlayers,
+                numLives,
+                boardDims, difficulty, Long.parseLong(seedString.trim()));
+      } catch (NumberFormatException e) {
+        System.out.println("Ignoring invalid seed: " + seedString);
+      }
+    }
+    specs.setNoGuess(Boolean.parseBoolean(params.value("noGuess")));
 
     Room room = new Room(hostId, roomName, specs);
 
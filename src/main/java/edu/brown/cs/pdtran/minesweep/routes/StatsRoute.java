@@ -0,0 +1,83 @@
+package edu.brown.cs.pdtran.minesweep.routes;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+import edu.brown.cs.pdtran.minesweep.board.NoGuessGenerator;
+import edu.brown.cs.pdtran.minesweep.games.BoardPool;
+import edu.brown.cs.pdtran.minesweep.games.GameResult;
+import edu.brown.cs.pdtran.minesweep.metagame.RequestHandler;
+import edu.brown.cs.pdtran.minesweep.websockets.GameServer;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * A route that reports how many rooms, games, AIs and users the server is
+ * holding, how well the board pool and the no-guess generator are keeping
+ * up, how far behind clients are on their updates, and the results of
+ * recently evicted games.
+ * @author Clayton Sanford
+ */
+public class StatsRoute implements Route {
+
+  private RequestHandler handler;
+  private GameServer server;
+
+  /**
+   * Constructs a new StatsRoute.
+   * @param handler A RequestHandler used to get server information.
+   * @param server The GameServer whose outbound queues are reported.
+   */
+  public StatsRoute(RequestHandler handler, GameServer server) {
+    this.handler = handler;
+    this.server = server;
+  }
+
+  @Override
+  public Object handle(Request req, Response res) {
+    List<Map.Entry<String, GameResult>> results = handler.getResults();
+    JsonObject statsJson = new JsonObject();
+    statsJson.addProperty("rooms", handler.getRoomCount());
+    statsJson.addProperty("games", handler.getGameCount());
+    statsJson.addProperty("ais", handler.getAiCount());
+    statsJson.addProperty("users", handler.getUserCount());
+
+    BoardPool pool = handler.getBoardPool();
+    JsonObject poolJson = new JsonObject();
+    poolJson.addProperty("hits", pool.getHits());
+    poolJson.addProperty("misses", pool.getMisses());
+    poolJson.addProperty("pooledBoards", pool.getPooledBoards());
+    poolJson.addProperty("keys", pool.getPooledKeys());
+    statsJson.add("boardPool", poolJson);
+
+    JsonObject outboundJson = new JsonObject();
+    outboundJson.addProperty("queuedFrames", server.getQueuedFrames());
+    outboundJson.addProperty("maxQueueDepth", server.getMaxQueueDepth());
+    outboundJson.addProperty("coalescedFrames",
+        server.getCoalescedFrames());
+    outboundJson.addProperty("droppedFrames", server.getDroppedFrames());
+    outboundJson.addProperty("slowDisconnects",
+        server.getSlowDisconnects());
+    statsJson.add("outbound", outboundJson);
+
+    JsonObject noGuessJson = new JsonObject();
+    noGuessJson.addProperty("boardsGenerated",
+        NoGuessGenerator.getBoardsGenerated());
+    noGuessJson.addProperty("fallbacks", NoGuessGenerator.getFallbacks());
+    noGuessJson.addProperty("candidatesChecked",
+        NoGuessGenerator.getCandidatesChecked());
+    noGuessJson.addProperty("boardsPerSecond",
+        NoGuessGenerator.getBoardsPerSecond());
+    statsJson.add("noGuess", noGuessJson);
+
+    JsonObject resultsJson = new JsonObject();
+    for (Map.Entry<String, GameResult> entry : results) {
+      resultsJson.add(entry.getKey(), entry.getValue().toJson());
+    }
+    statsJson.add("results", resultsJson);
+
+    return statsJson.toString();
+  }
+}
@@ -16,6 +16,7 @@ public abstract class Session {
 
   protected String name;
   protected GameSpecs specs;
+  private volatile long lastActive;
 
   /**
    * Constructs a Session object.
@@ -26,6 +27,23 @@ public abstract class Session {
   public Session(String name, GameSpecs specs) {
     this.name = name;
     this.specs = specs;
+    lastActive = System.nanoTime();
+  }
+
+  /**
+   * Marks the session as active now, such as when a player sends it a
+   * request.
+   */
+  public void touch() {
+    lastActive = System.nanoTime();
+  }
+
+  /**
+   * Gets when the session was last active.
+   * @return The time, from System.nanoTime.
+   */
+  public long getLastActive() {
+    return lastActive;
   }
 
   /**
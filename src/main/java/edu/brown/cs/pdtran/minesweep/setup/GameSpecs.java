@@ -1,5 +1,7 @@
 package edu.brown.cs.pdtran.minesweep.setup;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 import edu.brown.cs.pdtran.minesweep.types.BoardType;
 import edu.brown.cs.pdtran.minesweep.types.GameMode;
 
@@ -18,6 +20,9 @@ public class GameSpecs {
   private BoardType boardType;
   private int[] boardDims;
   private int difficulty;
+  private long seed;
+  private boolean seedFixed;
+  private boolean noGuess;
   private static final int DIFFICULTY_MULTIPLIER = 32;
 
   /**
@@ -34,6 +39,28 @@ public class GameSpecs {
   public GameSpecs(GameMode mode, BoardType shape, int matches,
       int numTeams,
       int numTeamPlayers, int teamLives, int[] dims, int difficulty) {
+    this(mode, shape, matches, numTeams, numTeamPlayers, teamLives, dims,
+        difficulty, ThreadLocalRandom.current().nextLong());
+    this.seedFixed = false;
+  }
+
+  /**
+   * Create game specifications whose boards are generated from a seed.
+   * Games made from the same specifications get the same boards.
+   * @param mode game mode (c, fsu, lay, path, terr)
+   * @param matches number of matches/rounds to be played
+   * @param shape board shape
+   * @param dims board dimensions
+   * @param numTeams number of teams
+   * @param numTeamPlayers number of players per team
+   * @param teamLives lives per team
+   * @param difficulty density of mines on the board
+   * @param seed the seed boards are generated from
+   */
+  public GameSpecs(GameMode mode, BoardType shape, int matches,
+      int numTeams,
+      int numTeamPlayers, int teamLives, int[] dims, int difficulty,
+      long seed) {
     this.mode = mode;
     this.boardType = shape;
     this.numTeams = numTeams;
@@ -42,6 +69,52 @@ public class GameSpecs {
     this.numMatches = matches;
     this.boardDims = dims;
     this.difficulty = difficulty;
+    this.seed = seed;
+    this.seedFixed = true;
+  }
+
+  /**
+   * Gets the seed the game's boards are generated from.
+   * @return The seed.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Records the seed of boards that were generated before the game was
+   * made. Ignored if the seed was given when the specs were made.
+   * @param seed The seed the boards were generated from.
+   */
+  public void setSeed(long seed) {
+    if (!seedFixed) {
+      this.seed = seed;
+    }
+  }
+
+  /**
+   * Tells you if the seed was given when the specs were made, rather than
+   * picked at random.
+   * @return True if the game must use the given seed.
+   */
+  public boolean isSeedFixed() {
+    return seedFixed;
+  }
+
+  /**
+   * Sets whether the game's boards must be solvable without guessing.
+   * @param noGuess True to generate only boards that need no guessing.
+   */
+  public void setNoGuess(boolean noGuess) {
+    this.noGuess = noGuess;
+  }
+
+  /**
+   * Tells you if the game's boards must be solvable without guessing.
+   * @return True if only boards that need no guessing are generated.
+   */
+  public boolean isNoGuess() {
+    return noGuess;
   }
 
   /**
@@ -2,7 +2,8 @@ package edu.brown.cs.pdtran.minesweep.tile;
 
 /**
  * This class contains all information needed for Tiles to be components of
- * Board objects.
+ * Board objects. Boards store their cells in packed form, so a Tile
+ * obtained from a board is a snapshot of that cell when it was requested.
  * @author Clayton Sanford
  */
 public class Tile implements Cloneable {
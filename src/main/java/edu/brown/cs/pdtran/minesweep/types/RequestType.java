@@ -7,5 +7,5 @@ package edu.brown.cs.pdtran.minesweep.types;
  */
 public enum RequestType {
   INITIALIZE, SWITCH_TEAM, ADD_AI, START_GAME, MAKE_MOVE, REMOVE_AIS,
-  LEAVE_ROOM, DISBAND_ROOM
+  LEAVE_ROOM, DISBAND_ROOM, RESYNC
 }
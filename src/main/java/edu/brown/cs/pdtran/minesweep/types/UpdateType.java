@@ -5,6 +5,6 @@ package edu.brown.cs.pdtran.minesweep.types;
  * @author Clayton Sanford
  */
 public enum UpdateType {
-  TEAM_ASSIGNMENT, ROOM_UPDATE, BOARD_UPDATE, INIT_BOARD, INIT_INFO,
-  INFO_UPDATE, MOVE, VICTORY, DEFEAT, SESSION_DISBAND, ERROR
+  TEAM_ASSIGNMENT, ROOM_UPDATE, BOARD_UPDATE, BOARD_DELTA, INIT_BOARD,
+  INIT_INFO, INFO_UPDATE, MOVE, VICTORY, DEFEAT, SESSION_DISBAND, ERROR
 }
@@ -0,0 +1,242 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+
+/**
+ * The binary form of the messages sent most often, for clients that ask
+ * for it at INITIALIZE. Everything else, and anything on a rectangular
+ * board, is sent as JSON.
+ * <p>
+ * All numbers are big-endian. A client sends a move as the byte
+ * MAKE_MOVE, the byte of the MoveType's ordinal and then the row and
+ * column as ints; it asks to resync with the single byte RESYNC.
+ * <p>
+ * The server starts every frame with a byte for its kind. A board is sent
+ * as its version, the ordinal of its BoardType, its width, height and
+ * bomb count, and then one nibble per cell in row-major order, high
+ * nibble first. A nibble is the cell's adjacent bomb count if it has been
+ * visited, or HIDDEN, FLAGGED or MINE. The colors follow as a byte count
+ * of distinct colors, each a byte length and its ASCII name, then runs of
+ * a short length and a byte index into those names, again in row-major
+ * order. A board sent without its colors has a count of zero and no
+ * runs, and the client keeps the colors it has.
+ * <p>
+ * A delta is sent as the version, an int count of tiles, each an int
+ * index and its nibble, an int count of flags, each an int index and a
+ * byte that is 1 if flagged, and a byte count of colors, each an int
+ * index and a byte length and ASCII name.
+ * @author Clayton Sanford
+ */
+public final class BinaryProtocol {
+
+  /**
+   * The first byte of a client's move.
+   */
+  public static final byte MAKE_MOVE = 1;
+
+  /**
+   * The first byte of a client's request to resync.
+   */
+  public static final byte RESYNC = 2;
+
+  /**
+   * The length of a client's move.
+   */
+  public static final int MOVE_LENGTH = 10;
+
+  private static final byte INIT_BOARD = 1;
+  private static final byte BOARD_UPDATE = 2;
+  private static final byte BOARD_DELTA = 3;
+
+  private static final int HIDDEN = 13;
+  private static final int FLAGGED = 14;
+  private static final int MINE = 15;
+  private static final int NIBBLE = 4;
+  private static final int HEADER_LENGTH = 18;
+  private static final int TILE_LENGTH = 5;
+  private static final int COUNT_LENGTH = 4;
+  private static final int MAX_RUN = 0xFFFF;
+  private static final int UNSIGNED = 0xFF;
+
+  private BinaryProtocol() {
+
+  }
+
+  /**
+   * Gets the MoveType a client sent.
+   * @param code The byte after MAKE_MOVE.
+   * @return The MoveType.
+   * @throws IllegalArgumentException Thrown if the byte is not the
+   *         ordinal of a MoveType.
+   */
+  public static MoveType moveType(byte code) {
+    int ordinal = code & UNSIGNED;
+    MoveType[] types = MoveType.values();
+    if (ordinal >= types.length) {
+      throw new IllegalArgumentException("Unknown move type " + ordinal);
+    }
+    return types[ordinal];
+  }
+
+  /**
+   * Encodes the colors of a board, to be passed to encodeBoard.
+   * @param palette The names of the colors, at most 255.
+   * @param owners The index into palette of each cell's color, unsigned,
+   *        in row-major order.
+   * @return The colors section of a board frame.
+   */
+  public static byte[] encodeColors(List<String> palette, byte[] owners) {
+    List<Integer> runs = new ArrayList<>();
+    int last = -1;
+    int run = 0;
+    for (byte index : owners) {
+      int owner = index & UNSIGNED;
+      if (owner != last || run == MAX_RUN) {
+        if (run > 0) {
+          runs.add(run);
+        }
+        last = owner;
+        run = 0;
+      }
+      run++;
+    }
+    if (run > 0) {
+      runs.add(run);
+    }
+
+    int length = 1 + runs.size() * (Short.BYTES + 1);
+    for (String color : palette) {
+      length += 1 + color.length();
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    buffer.put((byte) palette.size());
+    for (String color : palette) {
+      putName(buffer, color);
+    }
+    int cell = 0;
+    for (int runLength : runs) {
+      buffer.putShort((short) runLength);
+      buffer.put(owners[cell]);
+      cell += runLength;
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Encodes the whole of a team's board.
+   * @param type INIT_BOARD or BOARD_UPDATE.
+   * @param boardType The type of the board.
+   * @param version The version of the team's view of the board.
+   * @param board The board.
+   * @param flags The team's flags, indexed by x and then y.
+   * @param colors The colors section from encodeColors, or null to leave
+   *        the colors out.
+   * @return The frame, or null if the board has no binary form.
+   */
+  public static byte[] encodeBoard(UpdateType type, BoardType boardType,
+      int version, Board board, boolean[][] flags, byte[] colors) {
+    if (boardType == BoardType.RECTANGULAR) {
+      return null;
+    }
+    int width = board.getWidth();
+    int height = board.getHeight();
+    int cells = width * height;
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + (cells + 1) / 2
+        + (colors == null ? 1 : colors.length));
+    buffer.put(type == UpdateType.INIT_BOARD ? INIT_BOARD : BOARD_UPDATE);
+    buffer.putInt(version);
+    buffer.put((byte) boardType.ordinal());
+    buffer.putInt(width);
+    buffer.putInt(height);
+    buffer.putInt(board.getBombCount());
+    for (int cell = 0; cell < cells; cell += 2) {
+      int high = nibble(board, flags, cell);
+      int low = cell + 1 < cells ? nibble(board, flags, cell + 1) : 0;
+      buffer.put((byte) (high << NIBBLE | low));
+    }
+    if (colors == null) {
+      buffer.put((byte) 0);
+    } else {
+      buffer.put(colors);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Encodes the cells changed by a team's latest move, and a cell whose
+   * color it changed.
+   * @param boardType The type of the board.
+   * @param version The version of the team's view of the board after the
+   *        move.
+   * @param board The board the move changed.
+   * @param flags The team's flags, indexed by x and then y.
+   * @param tiles The row-major indices of the changed tiles.
+   * @param changedFlags The row-major indices of the changed flags.
+   * @param recolored The row-major index of the recolored cell, or -1 if
+   *        none was.
+   * @param color The name of its new color.
+   * @return The frame, or null if the board has no binary form.
+   */
+  public static byte[] encodeDelta(BoardType boardType, int version,
+      Board board, boolean[][] flags, int[] tiles, int[] changedFlags,
+      int recolored, String color) {
+    if (boardType == BoardType.RECTANGULAR) {
+      return null;
+    }
+    int width = board.getWidth();
+
+    int length = 1 + Integer.BYTES + COUNT_LENGTH * 2 + 1
+        + tiles.length * TILE_LENGTH + changedFlags.length * TILE_LENGTH;
+    if (recolored >= 0) {
+      length += Integer.BYTES + 1 + color.length();
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    buffer.put(BOARD_DELTA);
+    buffer.putInt(version);
+    buffer.putInt(tiles.length);
+    for (int cell : tiles) {
+      buffer.putInt(cell);
+      buffer.put((byte) nibble(board, flags, cell));
+    }
+    buffer.putInt(changedFlags.length);
+    for (int cell : changedFlags) {
+      buffer.putInt(cell);
+      buffer.put((byte) (flags[cell % width][cell / width] ? 1 : 0));
+    }
+    if (recolored >= 0) {
+      buffer.put((byte) 1);
+      buffer.putInt(recolored);
+      putName(buffer, color);
+    } else {
+      buffer.put((byte) 0);
+    }
+    return buffer.array();
+  }
+
+  private static int nibble(Board board, boolean[][] flags, int cell) {
+    int width = board.getWidth();
+    int x = cell % width;
+    int y = cell / width;
+    Tile tile = board.getTile(y, x);
+    if (!tile.hasBeenVisited()) {
+      return flags[x][y] ? FLAGGED : HIDDEN;
+    }
+    return tile.isBomb() ? MINE : tile.getAdjacentBombs();
+  }
+
+  private static void putName(ByteBuffer buffer, String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+    buffer.put((byte) bytes.length);
+    buffer.put(bytes);
+  }
+}
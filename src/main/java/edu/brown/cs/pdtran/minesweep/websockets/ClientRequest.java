@@ -0,0 +1,170 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
+import edu.brown.cs.pdtran.minesweep.types.RequestType;
+
+/**
+ * A request sent by a client as JSON text. The message is read in one
+ * pass with a JsonReader, keeping only the fields requests use, so no
+ * tree is built for it. Type names are looked up in tables built once.
+ * @author Clayton Sanford
+ */
+final class ClientRequest {
+
+  private static final Map<String, RequestType> REQUEST_TYPES =
+      table(RequestType.values());
+  private static final Map<String, MoveType> MOVE_TYPES =
+      table(MoveType.values());
+
+  private RequestType requestType;
+  private String userId;
+  private String sessionId;
+  private String teamId;
+  private String name;
+  private String newTeamId;
+  private String difficulty;
+  private String protocol;
+  private MoveType moveType;
+  private int row;
+  private int col;
+
+  private ClientRequest() {
+
+  }
+
+  private static <E extends Enum<E>> Map<String, E> table(E[] values) {
+    Map<String, E> table = new HashMap<>();
+    for (E value : values) {
+      table.put(value.name(), value);
+    }
+    return table;
+  }
+
+  private static <E> E lookup(Map<String, E> table, String name) {
+    E value = table.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("Unknown type " + name);
+    }
+    return value;
+  }
+
+  /**
+   * Reads a request.
+   * @param message The JSON text of the request.
+   * @return The request.
+   * @throws IOException Thrown if the message is not a JSON object.
+   */
+  static ClientRequest parse(String message) throws IOException {
+    ClientRequest request = new ClientRequest();
+    JsonReader reader = new JsonReader(new StringReader(message));
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String field = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
+      }
+      switch (field) {
+        case "requestType":
+          request.requestType = lookup(REQUEST_TYPES, reader.nextString());
+          break;
+        case "minesweepId":
+          request.userId = reader.nextString();
+          break;
+        case "minesweepRoomId":
+          request.sessionId = reader.nextString();
+          break;
+        case "minesweepTeamId":
+          request.teamId = reader.nextString();
+          break;
+        case "minesweepName":
+          request.name = reader.nextString();
+          break;
+        case "newTeamId":
+          request.newTeamId = reader.nextString();
+          break;
+        case "difficulty":
+          request.difficulty = reader.nextString();
+          break;
+        case "protocol":
+          request.protocol = reader.nextString();
+          break;
+        case "moveType":
+          request.moveType = lookup(MOVE_TYPES, reader.nextString());
+          break;
+        case "row":
+          request.row = reader.nextInt();
+          break;
+        case "col":
+          request.col = reader.nextInt();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return request;
+  }
+
+  private static <T> T required(T value, String field) {
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + field);
+    }
+    return value;
+  }
+
+  RequestType getRequestType() {
+    return required(requestType, "requestType");
+  }
+
+  String getUserId() {
+    return required(userId, "minesweepId");
+  }
+
+  String getSessionId() {
+    return required(sessionId, "minesweepRoomId");
+  }
+
+  String getTeamId() {
+    return required(teamId, "minesweepTeamId");
+  }
+
+  String getName() {
+    return required(name, "minesweepName");
+  }
+
+  String getNewTeamId() {
+    return required(newTeamId, "newTeamId");
+  }
+
+  String getDifficulty() {
+    return required(difficulty, "difficulty");
+  }
+
+  MoveType getMoveType() {
+    return required(moveType, "moveType");
+  }
+
+  int getRow() {
+    return row;
+  }
+
+  int getCol() {
+    return col;
+  }
+
+  /**
+   * Tells you if the client asked for the binary protocol.
+   * @return True if it did.
+   */
+  boolean wantsBinary() {
+    return "BINARY".equals(protocol);
+  }
+}
@@ -1,17 +1,29 @@
 package edu.brown.cs.pdtran.minesweep.websockets;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.InvalidFrameException;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.Framedata.Opcode;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import edu.brown.cs.pdtran.minesweep.metagame.RequestHandler;
 import edu.brown.cs.pdtran.minesweep.move.Move;
 import edu.brown.cs.pdtran.minesweep.move.MoveFactory;
@@ -23,14 +35,32 @@ import edu.brown.cs.pdtran.minesweep.types.RequestType;
 /**
  * This class extends WebSocketServer to create a server that multiple
  * games can be run through at once.
+ * <p>
+ * Requests are parsed on the socket's thread and then handled on the
+ * event loop of the session they are for. Moves, from players or AIs, are
+ * handled on the mailbox of the team that makes them.
+ * <p>
+ * Updates are not written by the thread that sends them. Each client has
+ * an OutboundQueue that a flusher thread empties every FLUSH_MILLIS, and
+ * a client whose queue stays over QUEUE_BUDGET for OVER_BUDGET_MILLIS is
+ * disconnected.
  * @author Clayton
  */
 public class GameServer extends WebSocketServer implements MoveHandler,
     UpdateSender {
 
-  private JsonParser parser;
-  private ConcurrentMap<String, WebSocket> clients;
+  private static final long FLUSH_MILLIS = 10;
+  private static final int QUEUE_BUDGET = 256;
+  private static final long OVER_BUDGET_MILLIS = 2000;
+
+  private ConcurrentMap<String, OutboundQueue> queues;
+  private ConcurrentMap<WebSocket, Client> connections;
+  private Set<String> binaryClients;
   private RequestHandler handler;
+  private final ScheduledExecutorService flusher;
+  private final AtomicLong coalesced;
+  private final AtomicLong dropped;
+  private final AtomicLong slowDisconnects;
 
   /**
    * Constructs a GameServer.
@@ -42,8 +72,38 @@ public class GameServer extends WebSocketServer implements MoveHandler,
       throws UnknownHostException {
     super(new InetSocketAddress(port));
     this.handler = handler;
-    parser = new JsonParser();
-    clients = new ConcurrentHashMap<String, WebSocket>();
+    queues = new ConcurrentHashMap<String, OutboundQueue>();
+    connections = new ConcurrentHashMap<WebSocket, Client>();
+    binaryClients = ConcurrentHashMap.newKeySet();
+    coalesced = new AtomicLong();
+    dropped = new AtomicLong();
+    slowDisconnects = new AtomicLong();
+    flusher = Executors.newSingleThreadScheduledExecutor((r) -> {
+      Thread thread = new Thread(r, "websocket-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts the server and the thread that writes queued updates.
+   */
+  @Override
+  public void start() {
+    super.start();
+    flusher.scheduleWithFixedDelay(this::flushQueues, FLUSH_MILLIS,
+        FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the server and the thread that writes queued updates.
+   * @throws IOException Thrown if the server could not be closed.
+   * @throws InterruptedException Thrown if interrupted while stopping.
+   */
+  @Override
+  public void stop() throws IOException, InterruptedException {
+    flusher.shutdownNow();
+    super.stop();
   }
 
   @Override
@@ -53,47 +113,92 @@ public class GameServer extends WebSocketServer implements MoveHandler,
 
   @Override
   public void onClose(WebSocket conn, int code, String reason, boolean arg3) {
+    unregister(conn);
     System.out.println("A client has left.");
   }
 
-  @Override
-  public void onMessage(WebSocket conn, String message) {
+  /**
+   * Records the connection a client initialized, so that its updates are
+   * queued for it. This runs on the socket's thread, before the request is
+   * handed to the session's loop, so that a close can never run before it.
+   * If the connection has already closed, it is dropped again.
+   * @param conn The client's connection.
+   * @param request The INITIALIZE request.
+   */
+  private void register(WebSocket conn, ClientRequest request) {
+    String userId = request.getUserId();
+    queues.put(userId, new OutboundQueue(conn, QUEUE_BUDGET));
+    connections.put(conn, new Client(userId, request.getSessionId()));
+    if (request.wantsBinary()) {
+      binaryClients.add(userId);
+    } else {
+      binaryClients.remove(userId);
+    }
+    handler.userConnected(userId);
+    if (!conn.isOpen()) {
+      unregister(conn);
+    }
+  }
 
-    System.out.println(message);
+  /**
+   * Drops a closed connection, and its client's queue unless the client
+   * has since initialized another connection.
+   * @param conn The connection.
+   */
+  private void unregister(WebSocket conn) {
+    Client client = connections.remove(conn);
+    if (client != null) {
+      OutboundQueue queue = queues.get(client.userId);
+      if (queue != null && queue.getConnection() == conn) {
+        queues.remove(client.userId, queue);
+        binaryClients.remove(client.userId);
+        handler.userDisconnected(client.userId);
+      }
+    }
+  }
 
+  /**
+   * Parses a client's request and hands it to the loop of the session it
+   * is for.
+   * @param conn The client's connection.
+   * @param message The request as JSON text.
+   */
+  @Override
+  public void onMessage(WebSocket conn, String message) {
     try {
-      JsonObject messageJson = parser.parse(message).getAsJsonObject();
-
-      String userId = messageJson.get("minesweepId").getAsString();
-      String sessionId = messageJson.get("minesweepRoomId").getAsString();
+      ClientRequest request = ClientRequest.parse(message);
+      if (request.getRequestType() == RequestType.INITIALIZE) {
+        register(conn, request);
+      }
+      handler.execute(request.getSessionId(),
+          () -> handle(conn, request));
+    } catch (Exception e) {
+      logError(e);
+    }
+  }
 
-      String requestTypeString =
-          messageJson.get("requestType").getAsString();
+  private void handle(WebSocket conn, ClientRequest request) {
+    try {
+      String userId = request.getUserId();
+      String sessionId = request.getSessionId();
 
-      RequestType requestType = RequestType.valueOf(requestTypeString);
-      switch (requestType) {
+      switch (request.getRequestType()) {
         case INITIALIZE:
-          clients.put(userId, conn);
-          initialize(sessionId, userId, messageJson.get("minesweepName")
-              .getAsString());
+          initialize(sessionId, userId, request.getName());
           break;
         case SWITCH_TEAM:
-          switchTeam(sessionId, messageJson.get("minesweepTeamId")
-              .getAsString(), userId, messageJson.get("newTeamId")
-              .getAsString());
+          switchTeam(sessionId, request.getTeamId(), userId,
+              request.getNewTeamId());
           break;
         case LEAVE_ROOM:
-          leaveRoom(sessionId, messageJson.get("minesweepTeamId")
-              .getAsString(), userId);
+          leaveRoom(sessionId, request.getTeamId(), userId);
           break;
         case ADD_AI:
-          addAi(sessionId, messageJson.get("minesweepTeamId")
-              .getAsString(),
-              userId, messageJson.get("difficulty").getAsString());
+          addAi(sessionId, request.getTeamId(), userId,
+              request.getDifficulty());
           break;
         case REMOVE_AIS:
-          removeAis(sessionId, messageJson.get("minesweepTeamId")
-              .getAsString(), userId);
+          removeAis(sessionId, request.getTeamId(), userId);
           break;
         case DISBAND_ROOM:
           disbandRoom(sessionId, userId);
@@ -102,20 +207,69 @@ public class GameServer extends WebSocketServer implements MoveHandler,
           startGame(sessionId, userId);
           break;
         case MAKE_MOVE:
-          makeMove(sessionId, messageJson.get("minesweepTeamId")
-              .getAsString(),
-              MoveFactory.makeMove(messageJson.get("col").getAsInt(),
-                  messageJson.get("row").getAsInt(),
-                  MoveType.valueOf(messageJson.get("moveType")
-                      .getAsString())));
+          makeMove(sessionId, request.getTeamId(),
+              MoveFactory.makeMove(request.getCol(), request.getRow(),
+                  request.getMoveType()));
+          break;
+        case RESYNC:
+          resync(sessionId, request.getTeamId(), userId);
           break;
         default:
           System.out.println("No known types reached.");
       }
     } catch (Exception e) {
-      System.out.println("An unknown exception occurred: "
-          + e.getMessage());
-      e.printStackTrace();
+      logError(e);
+    }
+  }
+
+  private static void logError(Exception e) {
+    System.out.println("An unknown exception occurred: " + e.getMessage());
+    e.printStackTrace();
+  }
+
+  /**
+   * Handles a BinaryProtocol message from a client that has initialized.
+   * @param conn The client's connection.
+   * @param message The message.
+   */
+  @Override
+  public void onMessage(WebSocket conn, ByteBuffer message) {
+    Client client = connections.get(conn);
+    if (client == null || !message.hasRemaining()) {
+      return;
+    }
+    String userId = client.userId;
+    String sessionId = client.sessionId;
+    try {
+      byte op = message.get();
+      if (op == BinaryProtocol.MAKE_MOVE
+          && message.remaining() == BinaryProtocol.MOVE_LENGTH - 1) {
+        MoveType moveType = BinaryProtocol.moveType(message.get());
+        int row = message.getInt();
+        int col = message.getInt();
+        Move move = MoveFactory.makeMove(col, row, moveType);
+        handler.execute(sessionId, () -> {
+          try {
+            makeMove(sessionId, handler.getTeamId(sessionId, userId),
+                move);
+          } catch (NoSuchSessionException e) {
+            logError(e);
+          }
+        });
+      } else if (op == BinaryProtocol.RESYNC) {
+        handler.execute(sessionId, () -> {
+          try {
+            resync(sessionId, handler.getTeamId(sessionId, userId),
+                userId);
+          } catch (NoSuchSessionException e) {
+            logError(e);
+          }
+        });
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println("Rejected a frame: " + e.getMessage());
+    } catch (Exception e) {
+      logError(e);
     }
   }
 
@@ -208,13 +362,41 @@ public class GameServer extends WebSocketServer implements MoveHandler,
   }
 
   @Override
-  public void makeMove(String sessionId, String teamId, Move move)
-      throws NoSuchSessionException {
+  public void makeMove(String sessionId, String teamId, Move move) {
+    handler.executeMove(sessionId, teamId,
+        () -> move(sessionId, teamId, move));
+  }
+
+  @Override
+  public void playTurn(String sessionId, String teamId,
+      Supplier<Move> turn) {
+    handler.executeMove(sessionId, teamId, () -> {
+      Move move = turn.get();
+      if (move != null) {
+        move(sessionId, teamId, move);
+      }
+    });
+  }
+
+  private void move(String sessionId, String teamId, Move move) {
     List<Update> updates = handler.makeMove(sessionId, teamId, move);
 
     sendUpdates(updates);
   }
 
+  /**
+   * Sends a player the whole of their team's board, for when they have
+   * missed a change to it.
+   * @param sessionId The unique id for the session.
+   * @param teamId The unique id for the player's team.
+   * @param userId The unique id for the player.
+   */
+  public void resync(String sessionId, String teamId, String userId) {
+    List<Update> updates = handler.resync(sessionId, teamId, userId);
+
+    sendUpdates(updates);
+  }
+
   @Override
   public void sendUpdates(List<Update> updates) {
     for (Update update : updates) {
@@ -222,19 +404,176 @@ public class GameServer extends WebSocketServer implements MoveHandler,
     }
   }
 
+  /**
+   * Queues an update for each of its users. Its text and binary frames are
+   * each built at most once, when the first user needs them, and reused
+   * for every user.
+   * @param update The update to send.
+   */
   private void sendUpdate(Update update) {
-    String message = update.getMessage();
-    System.out.println(message);
+    Framedata text = null;
+    Framedata binary = null;
     for (String id : update.getUsersToUpdate()) {
-      WebSocket conn = clients.get(id);
-      if (conn.isOpen()) {
-        conn.send(message);
+      OutboundQueue queue = queues.get(id);
+      if (queue == null || !queue.getConnection().isOpen()) {
+        continue;
+      }
+      Framedata frame = null;
+      if (binaryClients.contains(id)) {
+        if (binary == null) {
+          byte[] binaryMessage = update.getBinaryMessage();
+          if (binaryMessage != null) {
+            binary = new SharedFrame(Opcode.BINARY,
+                ByteBuffer.wrap(binaryMessage));
+          }
+        }
+        frame = binary;
+      }
+      if (frame == null) {
+        if (text == null) {
+          text = new SharedFrame(Opcode.TEXT, ByteBuffer.wrap(update
+              .getMessage().getBytes(StandardCharsets.UTF_8)));
+        }
+        frame = text;
+      }
+      int superseded = queue.offer(update.getUpdateType(),
+          update.getBoardVersion(), frame);
+      if (superseded < 0) {
+        dropped.incrementAndGet();
+      } else {
+        coalesced.addAndGet(superseded);
       }
     }
   }
 
+  private void flushQueues() {
+    long now = System.nanoTime();
+    long grace = TimeUnit.MILLISECONDS.toNanos(OVER_BUDGET_MILLIS);
+    for (Entry<String, OutboundQueue> entry : queues.entrySet()) {
+      OutboundQueue queue = entry.getValue();
+      if (!queue.getConnection().isOpen()) {
+        // A close that raced with its INITIALIZE, even with nothing queued.
+        unregister(queue.getConnection());
+        queues.remove(entry.getKey(), queue);
+        continue;
+      }
+      try {
+        if (!queue.flush(now, grace)) {
+          queues.remove(entry.getKey(), queue);
+          slowDisconnects.incrementAndGet();
+          queue.getConnection().close(CloseFrame.POLICY_VALIDATION,
+              "Too far behind on updates.");
+        }
+      } catch (RuntimeException e) {
+        queues.remove(entry.getKey(), queue);
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of frames waiting to be written, across all clients.
+   * @return The total depth of the outbound queues.
+   */
+  public int getQueuedFrames() {
+    int total = 0;
+    for (OutboundQueue queue : queues.values()) {
+      total += queue.size();
+    }
+    return total;
+  }
+
+  /**
+   * Gets the most frames any one client has waiting.
+   * @return The depth of the deepest outbound queue.
+   */
+  public int getMaxQueueDepth() {
+    int max = 0;
+    for (OutboundQueue queue : queues.values()) {
+      max = Math.max(max, queue.size());
+    }
+    return max;
+  }
+
+  /**
+   * Gets the number of queued frames replaced by newer ones before they
+   * were written.
+   * @return The number of coalesced frames.
+   */
+  public long getCoalescedFrames() {
+    return coalesced.get();
+  }
+
+  /**
+   * Gets the number of frames dropped because a client's queue was full.
+   * @return The number of dropped frames.
+   */
+  public long getDroppedFrames() {
+    return dropped.get();
+  }
+
+  /**
+   * Gets the number of clients disconnected for staying over budget.
+   * @return The number of slow clients disconnected.
+   */
+  public long getSlowDisconnects() {
+    return slowDisconnects.get();
+  }
+
   @Override
   public void onError(WebSocket conn, Exception ex) {
     ex.printStackTrace();
   }
+
+  /**
+   * A complete frame whose payload can be written to any number of
+   * connections; each write gets its own view of the payload.
+   */
+  private static final class SharedFrame implements Framedata {
+    private final Opcode opcode;
+    private final ByteBuffer payload;
+
+    SharedFrame(Opcode opcode, ByteBuffer payload) {
+      this.opcode = opcode;
+      this.payload = payload;
+    }
+
+    @Override
+    public boolean isFin() {
+      return true;
+    }
+
+    @Override
+    public boolean getTransfereMasked() {
+      return false;
+    }
+
+    @Override
+    public Opcode getOpcode() {
+      return opcode;
+    }
+
+    @Override
+    public ByteBuffer getPayloadData() {
+      return payload.duplicate();
+    }
+
+    @Override
+    public void append(Framedata nextframe) throws InvalidFrameException {
+      throw new InvalidFrameException("Shared frames are complete.");
+    }
+  }
+
+  /**
+   * The player and session a connection was initialized for.
+   */
+  private static final class Client {
+    private final String userId;
+    private final String sessionId;
+
+    Client(String userId, String sessionId) {
+      this.userId = userId;
+      this.sessionId = sessionId;
+    }
+  }
 }
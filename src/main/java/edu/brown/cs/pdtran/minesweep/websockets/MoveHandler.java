@@ -1,5 +1,7 @@
 package edu.brown.cs.pdtran.minesweep.websockets;
 
+import java.util.function.Supplier;
+
 import edu.brown.cs.pdtran.minesweep.move.Move;
 
 /**
@@ -19,4 +21,14 @@ public interface MoveHandler {
   void makeMove(String sessionId, String teamId, Move m)
       throws NoSuchSessionException;
 
+  /**
+   * Submits a move that is only chosen once the session's earlier events
+   * have been handled, such as an AI's turn.
+   * @param sessionId The unique ID of the session.
+   * @param teamId The unique ID of the team.
+   * @param turn Chooses the move, on the session's event loop, or gives
+   *        null to make none.
+   */
+  void playTurn(String sessionId, String teamId, Supplier<Move> turn);
+
 }
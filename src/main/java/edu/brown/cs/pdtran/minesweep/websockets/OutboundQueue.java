@@ -0,0 +1,174 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.Framedata;
+
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+
+/**
+ * The frames waiting to be written to one client. Updates are queued here
+ * by whichever thread produced them and written by the GameServer's
+ * flusher, so a slow client never holds up a game.
+ * <p>
+ * While frames wait, a newer INFO_UPDATE replaces any queued one, and a
+ * BOARD_UPDATE replaces any queued BOARD_UPDATE or BOARD_DELTA at or below
+ * its board version, since it holds the whole board as of that version.
+ * Frames are only written once the connection has finished writing the
+ * previous batch, so a client that reads slowly has its updates merged
+ * rather than piled up.
+ * <p>
+ * A full queue drops new frames, except VICTORY, DEFEAT and ERROR, which
+ * a client must always be sent. One of those first evicts a queued
+ * INFO_UPDATE, which it makes stale, and is otherwise queued past the
+ * limit; a client that stays that far behind is disconnected by flush.
+ * @author Clayton Sanford
+ */
+final class OutboundQueue {
+
+  private final WebSocket conn;
+  private final int budget;
+  private final ArrayDeque<Entry> pending;
+  private long overBudgetSince;
+
+  /**
+   * Constructs a queue.
+   * @param conn The client's connection.
+   * @param budget The most frames the client may have waiting before it
+   *        counts as over budget. Twice as many are kept at most.
+   */
+  OutboundQueue(WebSocket conn, int budget) {
+    this.conn = conn;
+    this.budget = budget;
+    pending = new ArrayDeque<>();
+    overBudgetSince = -1;
+  }
+
+  /**
+   * Gets the client's connection.
+   * @return The connection.
+   */
+  WebSocket getConnection() {
+    return conn;
+  }
+
+  /**
+   * Queues a frame, dropping any queued frames it supersedes.
+   * @param type The type of the update the frame holds.
+   * @param version The board version the update brings the client to, or
+   *        -1 if it holds no board.
+   * @param frame The frame.
+   * @return The number of queued frames that were superseded or evicted,
+   *         or -1 if the queue was full and the frame was dropped.
+   */
+  synchronized int offer(UpdateType type, int version, Framedata frame) {
+    Entry entry = new Entry(type, version, frame);
+    int superseded = 0;
+    if (type == UpdateType.INFO_UPDATE || type == UpdateType.BOARD_UPDATE) {
+      Iterator<Entry> it = pending.iterator();
+      while (it.hasNext()) {
+        if (entry.supersedes(it.next())) {
+          it.remove();
+          superseded++;
+        }
+      }
+    }
+    if (pending.size() >= 2 * budget) {
+      if (!mustSend(type)) {
+        return -1;
+      }
+      superseded += evictInfo();
+    }
+    pending.add(entry);
+    return superseded;
+  }
+
+  /**
+   * Tells you if a frame may never be dropped.
+   * @param type The type of the update the frame holds.
+   * @return True for VICTORY, DEFEAT and ERROR.
+   */
+  private static boolean mustSend(UpdateType type) {
+    return type == UpdateType.VICTORY || type == UpdateType.DEFEAT
+        || type == UpdateType.ERROR;
+  }
+
+  /**
+   * Drops the oldest queued INFO_UPDATE, if there is one.
+   * @return The number of frames dropped.
+   */
+  private int evictInfo() {
+    Iterator<Entry> it = pending.iterator();
+    while (it.hasNext()) {
+      if (it.next().type == UpdateType.INFO_UPDATE) {
+        it.remove();
+        return 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Writes the queued frames to the connection, unless it is still
+   * writing earlier ones.
+   * @param now The current time, from System.nanoTime.
+   * @param grace How long, in nanoseconds, the queue may stay over budget.
+   * @return False if the queue has been over budget for longer than
+   *         grace, and the client should be disconnected.
+   */
+  synchronized boolean flush(long now, long grace) {
+    if (!conn.hasBufferedData()) {
+      while (!pending.isEmpty()) {
+        conn.sendFrame(pending.poll().frame);
+      }
+    }
+    if (pending.size() <= budget) {
+      overBudgetSince = -1;
+      return true;
+    }
+    if (overBudgetSince < 0) {
+      overBudgetSince = now;
+    }
+    return now - overBudgetSince <= grace;
+  }
+
+  /**
+   * Gets the number of frames waiting.
+   * @return The depth of the queue.
+   */
+  synchronized int size() {
+    return pending.size();
+  }
+
+  /**
+   * A queued frame, the type of the update it holds and its board
+   * version.
+   */
+  private static final class Entry {
+    private final UpdateType type;
+    private final int version;
+    private final Framedata frame;
+
+    Entry(UpdateType type, int version, Framedata frame) {
+      this.type = type;
+      this.version = version;
+      this.frame = frame;
+    }
+
+    /**
+     * Tells you if this frame makes a queued one unnecessary.
+     * @param older The queued frame.
+     * @return True if the queued frame can be dropped.
+     */
+    boolean supersedes(Entry older) {
+      if (type == UpdateType.INFO_UPDATE) {
+        return older.type == UpdateType.INFO_UPDATE;
+      }
+      return (older.type == UpdateType.BOARD_UPDATE
+          || older.type == UpdateType.BOARD_DELTA)
+          && older.version <= version;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Fields that are the same in several updates, such as the tiles revealed
+ * on a board every team shares. They are serialized once, the first time
+ * any of the updates is sent, and spliced into each update's data.
+ * @author Clayton Sanford
+ */
+public final class SharedPayload {
+
+  private final JsonObject fields;
+  private String serialized;
+
+  /**
+   * Constructs a shared payload.
+   * @param fields The shared fields. They must not be changed afterwards.
+   */
+  public SharedPayload(JsonObject fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Gets the fields as JSON members, without the enclosing braces.
+   * @return The serialized members, such as "a":1,"b":2.
+   */
+  synchronized String getMembers() {
+    if (serialized == null) {
+      String json = fields.toString();
+      serialized = json.substring(1, json.length() - 1);
+    }
+    return serialized;
+  }
+
+  /**
+   * Adds the fields to an object serialized elsewhere.
+   * @param json A serialized JSON object.
+   * @return The object with the shared fields added to it.
+   */
+  String spliceInto(String json) {
+    String members = getMembers();
+    if (members.isEmpty()) {
+      return json;
+    }
+    String body = json.substring(0, json.length() - 1);
+    String separator = body.length() > 1 ? "," : "";
+    return body + separator + members + "}";
+  }
+}
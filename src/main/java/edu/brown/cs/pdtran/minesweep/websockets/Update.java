@@ -1,6 +1,7 @@
 package edu.brown.cs.pdtran.minesweep.websockets;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -16,6 +17,11 @@ public class Update {
   UpdateType updateType;
   JsonElement data;
   List<String> usersToUpdate;
+  Supplier<byte[]> encoder;
+  byte[] binary;
+  SharedPayload shared;
+  String message;
+  int boardVersion = -1;
 
   /**
    * Constructs an update to be send out.
@@ -31,15 +37,97 @@ public class Update {
     this.usersToUpdate = usersToUpdate;
   }
 
+  /**
+   * Constructs an update that also has a binary form, for players who
+   * asked for the binary protocol. The frame is only encoded once one of
+   * them is sent the update.
+   * @param updateType An enum representing the type of update.
+   * @param data The JSON data to be carried by the update.
+   * @param encoder Encodes the update as a BinaryProtocol frame, or gives
+   *        null if it has none.
+   * @param usersToUpdate The List of user IDs who need to receive the
+   *        update.
+   */
+  public Update(UpdateType updateType, JsonElement data,
+      Supplier<byte[]> encoder, List<String> usersToUpdate) {
+    this(updateType, data, usersToUpdate);
+    this.encoder = encoder;
+  }
+
+  /**
+   * Constructs an update whose data is partly shared with other updates.
+   * @param updateType An enum representing the type of update.
+   * @param data The JSON data that is the update's own.
+   * @param shared Fields that are added to data when it is sent, and are
+   *        serialized only once across every update that shares them.
+   * @param encoder Encodes the update as a BinaryProtocol frame, or gives
+   *        null if it has none.
+   * @param usersToUpdate The List of user IDs who need to receive the
+   *        update.
+   */
+  public Update(UpdateType updateType, JsonObject data,
+      SharedPayload shared, Supplier<byte[]> encoder,
+      List<String> usersToUpdate) {
+    this(updateType, data, encoder, usersToUpdate);
+    this.shared = shared;
+  }
+
   /**
    * Retrieves the message corresponding a an update to be sent.
    * @return The message as a string to be added, which is a JSON.
    */
   public String getMessage() {
-    JsonObject message = new JsonObject();
-    message.addProperty("updateType", updateType.toString());
-    message.add("data", data);
-    return message.toString();
+    if (message == null) {
+      if (shared == null) {
+        JsonObject messageJson = new JsonObject();
+        messageJson.addProperty("updateType", updateType.toString());
+        messageJson.add("data", data);
+        message = messageJson.toString();
+      } else {
+        message = "{\"updateType\":\"" + updateType + "\",\"data\":"
+            + shared.spliceInto(data.toString()) + "}";
+      }
+    }
+    return message;
+  }
+
+  /**
+   * Retrieves the binary form of the update, if it has one. It is encoded
+   * the first time it is asked for and kept for every later recipient.
+   * @return The BinaryProtocol frame, or null to send the JSON message.
+   */
+  public synchronized byte[] getBinaryMessage() {
+    if (encoder != null) {
+      binary = encoder.get();
+      encoder = null;
+    }
+    return binary;
+  }
+
+  /**
+   * Gets the type of the update.
+   * @return The UpdateType.
+   */
+  public UpdateType getUpdateType() {
+    return updateType;
+  }
+
+  /**
+   * Sets the version of the team's board that a BOARD_UPDATE or
+   * BOARD_DELTA brings the client to, so that a queued update is only
+   * replaced by one at least as new.
+   * @param version The version of the team's view of the board.
+   */
+  public void setBoardVersion(int version) {
+    this.boardVersion = version;
+  }
+
+  /**
+   * Gets the version of the team's board the update brings the client to.
+   * @return The version, or -1 if the update holds no board.
+   */
+  public int getBoardVersion() {
+    return boardVersion;
   }
 
   /**
@@ -59,6 +59,21 @@ flagImage.src = "/images/flag.png";
 var server_ip = location.hostname;
 
 var socket = new WebSocket("ws://" + server_ip + ":7777");
+socket.binaryType = "arraybuffer";
+
+// board and delta updates come as binary frames when the browser can
+// read them; see BinaryProtocol for the layout
+var USE_BINARY = typeof DataView !== "undefined";
+var BOARD_TYPES = ["DEFAULT", "RECTANGULAR", "TRIANGULAR", "HEXAGONAL"];
+var MOVE_TYPES = ["CHECK", "FLAG"];
+var BINARY_MOVE = 1;
+var BINARY_RESYNC = 2;
+var BINARY_INIT_BOARD = 1;
+var BINARY_BOARD_UPDATE = 2;
+var BINARY_BOARD_DELTA = 3;
+var HIDDEN = 13;
+var FLAGGED = 14;
+var MINE = 15;
 
 $('#teams').hide();
 
@@ -70,7 +85,8 @@ socket.onopen = function(event) {
             minesweepId: $.cookie("minesweepId"),
             minesweepId: $.cookie("minesweepId"),
             minesweepRoomId: $.cookie("minesweepRoomId"),
-            minesweepName: $.cookie("minesweepName")
+            minesweepName: $.cookie("minesweepName"),
+            protocol: USE_BINARY ? "BINARY" : "JSON"
         };
         socket.send(JSON.stringify(sendData));
     });
@@ -78,6 +94,10 @@ socket.onopen = function(event) {
 }
 
 socket.onmessage = function(event) {
+    if (event.data instanceof ArrayBuffer) {
+        onBinaryMessage(new DataView(event.data));
+        return;
+    }
     var responseJson = JSON.parse(event.data);
 
     var updateType = responseJson.updateType;
@@ -91,12 +111,7 @@ socket.onmessage = function(event) {
             $.cookie("minesweepTeamId", responseJson.data);
         });
     } else if (updateType === "INIT_BOARD") {
-        init();
-        globalData = responseJson.data;
-        drawBoard();
-        $("#board").show();
-        $("#teams").hide();
-
+        initBoard(responseJson.data);
     } else if (updateType === "INIT_INFO") {
         $("#infoBox").show();
         drawInfo(responseJson);
@@ -106,8 +121,9 @@ socket.onmessage = function(event) {
 
     // Begin game, i.e. draw game board
     else if (updateType === "BOARD_UPDATE") {
-        globalData = responseJson.data;
-        drawBoard();
+        updateBoard(responseJson.data);
+    } else if (updateType === "BOARD_DELTA") {
+        applyDelta(responseJson.data);
     } else if (updateType === "VICTORY") {
         win();
     } else if (updateType === "DEFEAT") {
@@ -120,6 +136,223 @@ socket.onmessage = function(event) {
     }
 }
 
+function initBoard(data) {
+    init();
+    globalData = data;
+    drawBoard();
+    $("#board").show();
+    $("#teams").hide();
+}
+
+function updateBoard(data) {
+    // colors are only resent once some cell has been recolored
+    if (data.colors === undefined && globalData !== undefined) {
+        data.colors = globalData.colors;
+    }
+    globalData = data;
+    resyncing = false;
+    drawBoard();
+}
+
+function onBinaryMessage(view) {
+    var kind = view.getUint8(0);
+    if (kind === BINARY_INIT_BOARD) {
+        initBoard(decodeBoard(view));
+    } else if (kind === BINARY_BOARD_UPDATE) {
+        updateBoard(decodeBoard(view));
+    } else if (kind === BINARY_BOARD_DELTA && globalData !== undefined) {
+        applyDelta(decodeDelta(view, globalData.board.width));
+    }
+}
+
+function decodeTile(cell, width, nibble) {
+    return {
+        row: Math.floor(cell / width),
+        column: cell % width,
+        isBomb: nibble === MINE,
+        visited: nibble < HIDDEN || nibble === MINE,
+        adjacentBombs: nibble < HIDDEN ? nibble : 0
+    };
+}
+
+function readName(view, offset) {
+    var length = view.getUint8(offset);
+    var name = "";
+    for (var i = 0; i < length; i++) {
+        name += String.fromCharCode(view.getUint8(offset + 1 + i));
+    }
+    return name;
+}
+
+function decodeBoard(view) {
+    var version = view.getInt32(1);
+    var type = BOARD_TYPES[view.getUint8(5)];
+    var width = view.getInt32(6);
+    var height = view.getInt32(10);
+    var bombCount = view.getInt32(14);
+    var offset = 18;
+    var cells = width * height;
+
+    var tiles = [];
+    var flags = [];
+    var colors = [];
+    for (var x = 0; x < width; x++) {
+        flags.push(new Array(height));
+        colors.push(new Array(height));
+    }
+    for (var cell = 0; cell < cells; cell++) {
+        var packed = view.getUint8(offset + (cell >> 1));
+        var nibble = (cell & 1) === 0 ? packed >> 4 : packed & 15;
+        tiles.push(decodeTile(cell, width, nibble));
+        flags[cell % width][Math.floor(cell / width)] = nibble === FLAGGED;
+    }
+    offset += (cells + 1) >> 1;
+
+    var palette = [];
+    var paletteSize = view.getUint8(offset);
+    offset++;
+    for (var i = 0; i < paletteSize; i++) {
+        palette.push(readName(view, offset));
+        offset += 1 + view.getUint8(offset);
+    }
+    if (paletteSize === 0) {
+        colors = undefined;
+    }
+    var cell = 0;
+    while (colors !== undefined && cell < cells) {
+        var run = view.getUint16(offset);
+        var color = palette[view.getUint8(offset + 2)];
+        offset += 3;
+        for (var i = 0; i < run; i++, cell++) {
+            colors[cell % width][Math.floor(cell / width)] = color;
+        }
+    }
+
+    return {
+        board: {
+            width: width,
+            height: height,
+            bombCount: bombCount,
+            type: type,
+            tiles: tiles
+        },
+        flags: flags,
+        colors: colors,
+        version: version
+    };
+}
+
+function decodeDelta(view, width) {
+    var delta = {
+        version: view.getInt32(1),
+        tiles: [],
+        flags: [],
+        colors: []
+    };
+    var offset = 5;
+    var count = view.getInt32(offset);
+    offset += 4;
+    for (var i = 0; i < count; i++, offset += 5) {
+        var cell = view.getInt32(offset);
+        delta.tiles.push(decodeTile(cell, width, view.getUint8(offset + 4)));
+    }
+    count = view.getInt32(offset);
+    offset += 4;
+    for (var i = 0; i < count; i++, offset += 5) {
+        var cell = view.getInt32(offset);
+        delta.flags.push({
+            row: Math.floor(cell / width),
+            column: cell % width,
+            flagged: view.getUint8(offset + 4) === 1
+        });
+    }
+    count = view.getUint8(offset);
+    offset++;
+    for (var i = 0; i < count; i++) {
+        var cell = view.getInt32(offset);
+        delta.colors.push({
+            row: Math.floor(cell / width),
+            column: cell % width,
+            color: readName(view, offset + 4)
+        });
+        offset += 5 + view.getUint8(offset + 4);
+    }
+    return delta;
+}
+
+function sendMove(row, column, moveType) {
+    if (USE_BINARY) {
+        var view = new DataView(new ArrayBuffer(10));
+        view.setUint8(0, BINARY_MOVE);
+        view.setUint8(1, MOVE_TYPES.indexOf(moveType));
+        view.setInt32(2, row);
+        view.setInt32(6, column);
+        socket.send(view.buffer);
+        return;
+    }
+    $.getScript("../js/js.cookie.js", function() {
+        var sendData = {
+            requestType: "MAKE_MOVE",
+            minesweepId: $.cookie("minesweepId"),
+            minesweepRoomId: $.cookie("minesweepRoomId"),
+            minesweepTeamId: $.cookie("minesweepTeamId"),
+            row: row,
+            col: column,
+            moveType: moveType
+        };
+        socket.send(JSON.stringify(sendData));
+    });
+}
+
+function sendResync() {
+    if (USE_BINARY) {
+        socket.send(new Uint8Array([BINARY_RESYNC]).buffer);
+        return;
+    }
+    $.getScript("../js/js.cookie.js", function() {
+        var sendData = {
+            requestType: "RESYNC",
+            minesweepId: $.cookie("minesweepId"),
+            minesweepRoomId: $.cookie("minesweepRoomId"),
+            minesweepTeamId: $.cookie("minesweepTeamId")
+        };
+        socket.send(JSON.stringify(sendData));
+    });
+}
+
+var resyncing = false;
+
+// apply the cells changed by one move, skipping any already in a newer
+// snapshot, or ask for the whole board again if a change was missed
+function applyDelta(delta) {
+    if (globalData === undefined || resyncing) {
+        return;
+    }
+    if (delta.version <= globalData.version) {
+        return;
+    }
+    if (delta.version !== globalData.version + 1) {
+        resyncing = true;
+        sendResync();
+        return;
+    }
+
+    var board = globalData.board;
+    $.each(delta.tiles, function(i, tile) {
+        board.tiles[tile.row * board.width + tile.column] = tile;
+    });
+    $.each(delta.flags, function(i, flag) {
+        globalData.flags[flag.column][flag.row] = flag.flagged;
+    });
+    if (delta.colors !== undefined) {
+        $.each(delta.colors, function(i, color) {
+            globalData.colors[color.column][color.row] = color.color;
+        });
+    }
+    globalData.version = delta.version;
+    drawBoard();
+}
+
 var timer;
 
 function drawInfo(responseJson) {
@@ -746,18 +979,7 @@ function click(clickType) {
 
         if (!isFlag(flags, row, column) || clickType === "FLAG") {
 
-            $.getScript("../js/js.cookie.js", function() {
-                var sendData = {
-                    requestType: "MAKE_MOVE",
-                    minesweepId: $.cookie("minesweepId"),
-                    minesweepRoomId: $.cookie("minesweepRoomId"),
-                    minesweepTeamId: $.cookie("minesweepTeamId"),
-                    row: row,
-                    col: column,
-                    moveType: clickType
-                };
-                socket.send(JSON.stringify(sendData));
-            });
+            sendMove(row, column, clickType);
         }
 
     } else if (board.type == "TRIANGULAR") {
@@ -805,18 +1027,7 @@ function click(clickType) {
                 var column = estimate;
                 if (!isFlag(flags, row, column) || clickType === "FLAG") {
 
-                    $.getScript("../js/js.cookie.js", function() {
-                        var sendData = {
-                            requestType: "MAKE_MOVE",
-                            minesweepId: $.cookie("minesweepId"),
-                            minesweepRoomId: $.cookie("minesweepRoomId"),
-                            minesweepTeamId: $.cookie("minesweepTeamId"),
-                            row: row,
-                            col: column,
-                            moveType: clickType
-                        };
-                        socket.send(JSON.stringify(sendData));
-                    });
+                    sendMove(row, column, clickType);
                 }
             }
 
@@ -830,18 +1041,7 @@ function click(clickType) {
             }
             if (!isFlag(flags, row, column) || clickType === "FLAG") {
 
-                $.getScript("../js/js.cookie.js", function() {
-                    var sendData = {
-                        requestType: "MAKE_MOVE",
-                        minesweepId: $.cookie("minesweepId"),
-                        minesweepRoomId: $.cookie("minesweepRoomId"),
-                        minesweepTeamId: $.cookie("minesweepTeamId"),
-                        row: row,
-                        col: column,
-                        moveType: clickType
-                    };
-                    socket.send(JSON.stringify(sendData));
-                });
+                sendMove(row, column, clickType);
             }
         }
     } else if (board.type == "HEXAGONAL") {
@@ -858,18 +1058,7 @@ function click(clickType) {
                 var row = tile.row;
                 var column = tile.column;
                 if (!isFlag(flags, row, column) || clickType === "FLAG") {
-                    $.getScript("../js/js.cookie.js", function() {
-                        var sendData = {
-                            requestType: "MAKE_MOVE",
-                            minesweepId: $.cookie("minesweepId"),
-                            minesweepRoomId: $.cookie("minesweepRoomId"),
-                            minesweepTeamId: $.cookie("minesweepTeamId"),
-                            row: row,
-                            col: column,
-                            moveType: clickType
-                        };
-                        socket.send(JSON.stringify(sendData));
-                    });
+                    sendMove(row, column, clickType);
                     return false;
                 }
             }
@@ -897,18 +1086,7 @@ function click(clickType) {
 
         if (!isFlag(flags, row, column) || clickType === "FLAG") {
 
-            $.getScript("../js/js.cookie.js", function() {
-                var sendData = {
-                    requestType: "MAKE_MOVE",
-                    minesweepId: $.cookie("minesweepId"),
-                    minesweepRoomId: $.cookie("minesweepRoomId"),
-                    minesweepTeamId: $.cookie("minesweepTeamId"),
-                    row: row,
-                    col: column,
-                    moveType: clickType
-                };
-                socket.send(JSON.stringify(sendData));
-            });
+            sendMove(row, column, clickType);
         }
     }
 }
@@ -8,7 +8,10 @@ import org.junit.Test;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import com.google.gson.JsonArray;
 import edu.brown.cs.pdtran.minesweep.tile.Tile;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.MoveResponse;
 
 public class BoardTest {
 
@@ -179,6 +182,202 @@ public class BoardTest {
     }
   }
 
+  @Test
+  public void cloneIsIndependent() {
+    DefaultBoard board =
+        new DefaultBoard(Arrays.copyOf(dumbBoard, dumbBoard.length));
+    DefaultBoard board2 = board.clone();
+    board2.makeMove(0, 0);
+    assertTrue(board2.getTile(0, 0).hasBeenVisited());
+    assertFalse(board.getTile(0, 0).hasBeenVisited());
+  }
+
+  @Test
+  public void seededBoardsMatch() {
+    assertTrue(new DefaultBoard(16, 16, 40, 42L).equals(
+        new DefaultBoard(16, 16, 40, 42L)));
+    RectangularBoard board = new RectangularBoard(16, 16, 40, 42L);
+    RectangularBoard board2 = new RectangularBoard(16, 16, 40, 42L);
+    assertTrue(board.equals(board2));
+    for (int row = 0; row < board.getHeight(); row++) {
+      for (int col = 0; col < board.getWidth(); col++) {
+        assertTrue(board.getTile(row, col).getColumn() == board2.getTile(
+            row, col).getColumn());
+      }
+    }
+  }
+
+  @Test
+  public void fullBoardGenerates() {
+    DefaultBoard board = new RectangularBoard(4, 4, 16, 7L);
+    for (int row = 0; row < board.getHeight(); row++) {
+      for (int col = 0; col < board.getWidth(); col++) {
+        assertTrue(board.getTile(row, col).isBomb());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void tooManyBombs() {
+    new DefaultBoard(4, 4, 17, 7L);
+  }
+
+  @Test
+  public void isolatedMineRevealsOnlyItself() {
+    Tile[][] grid = new Tile[5][5];
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        boolean mine = i == 2 && j == 2;
+        boolean touching = !mine && Math.abs(i - 2) <= 1
+            && Math.abs(j - 2) <= 1;
+        grid[i][j] = new Tile(mine, touching ? 1 : 0, false, i, j);
+      }
+    }
+    DefaultBoard board = new DefaultBoard(grid);
+    assertTrue(board.makeMove(2, 2) == MoveResponse.MINE);
+    assertTrue(Arrays.equals(new int[] {2 * 5 + 2},
+        board.getLastRevealed()));
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        assertTrue(board.getTile(i, j).hasBeenVisited() == (i == 2
+            && j == 2));
+      }
+    }
+  }
+
+  @Test
+  public void noGuessBoardIsSolvable() {
+    Board board =
+        BoardFactory.makeBoard(BoardType.DEFAULT, 9, 9, 10, 3L, true);
+    assertTrue(board.equals(BoardFactory.makeBoard(BoardType.DEFAULT, 9, 9,
+        10, 3L, true)));
+    DefaultBoard fresh = new DefaultBoard(9, 9, 10,
+        ((DefaultBoard) board).getSeed());
+    int opening = -1;
+    for (int cell = 0; cell < 81 && opening < 0; cell++) {
+      Tile tile = board.getTile(cell / 9, cell % 9);
+      if (tile.hasBeenVisited() && tile.getAdjacentBombs() == 0) {
+        opening = cell;
+      }
+    }
+    assertTrue(opening >= 0);
+    assertTrue(NoGuessSolver.isSolvable(fresh, opening));
+  }
+
+  @Test
+  public void noGuessFallbackIsCountedApart() {
+    long boards = NoGuessGenerator.getBoardsGenerated();
+    long fallbacks = NoGuessGenerator.getFallbacks();
+    Board board = BoardFactory.makeBoard(BoardType.DEFAULT, 9, 9, 10, 3L,
+        true, 0);
+    assertTrue(board.equals(BoardFactory.makeBoard(BoardType.DEFAULT, 9, 9,
+        10, 3L)));
+    assertTrue(NoGuessGenerator.getFallbacks() == fallbacks + 1);
+    assertTrue(NoGuessGenerator.getBoardsGenerated() == boards);
+  }
+
+  @Test
+  public void fiftyFiftyIsNotSolvable() {
+    Tile[][] grid = new Tile[2][3];
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        grid[i][j] = new Tile(i == 0 && j == 0, j == 1 ? 1 : 0, false, i, j);
+      }
+    }
+    DefaultBoard board = new DefaultBoard(grid);
+    assertFalse(NoGuessSolver.isSolvable(board, 2));
+  }
+
+  @Test
+  public void mergedCellsShareTile() {
+    Tile[][] links = new Tile[10][10];
+    links[2][2] = dumbBoard[2][3];
+    links[2][3] = dumbBoard[2][3];
+    RectangularBoard board =
+        new RectangularBoard(Arrays.copyOf(dumbBoard, dumbBoard.length),
+            links);
+    assertTrue(board.getTile(2, 3).getRow() == 2);
+    assertTrue(board.getTile(2, 3).getColumn() == 2);
+    assertTrue(board.getTile(2, 2).getColumn() == 2);
+    NeighborTable table = board.getNeighborTable();
+    int cell = 2 * 10 + 2;
+    assertTrue(table.degree(cell) == 10);
+    assertTrue(table.degree(2 * 10 + 3) == 10);
+    for (int k = table.start(cell); k < table.end(cell); k++) {
+      assertFalse(table.get(k) == cell || table.get(k) == cell + 1);
+    }
+  }
+
+  @Test
+  public void clonesShareLayout() {
+    DefaultBoard board =
+        new DefaultBoard(Arrays.copyOf(dumbBoard, dumbBoard.length));
+    DefaultBoard board2 = board.clone();
+    board2.makeMove(0, 0);
+    assertTrue(board.sharesLayoutWith(board2));
+    board2.setTile(new Tile(true, 0, false, 0, 1), 0, 1);
+    assertFalse(board.sharesLayoutWith(board2));
+    assertTrue(board2.getTile(0, 1).isBomb());
+    assertFalse(board.getTile(0, 1).isBomb());
+  }
+
+  @Test
+  public void setTileRoundTrip() {
+    DefaultBoard board =
+        new DefaultBoard(Arrays.copyOf(dumbBoard, dumbBoard.length));
+    board.setTile(new Tile(true, 7, true, 3, 4), 3, 4);
+    Tile tile = board.getTile(3, 4);
+    assertTrue(tile.isBomb());
+    assertTrue(tile.hasBeenVisited());
+    assertTrue(tile.getAdjacentBombs() == 7);
+    assertFalse(board.getTile(4, 3).isBomb());
+  }
+
+  @Test
+  public void neighborTableIsShared() {
+    DefaultBoard board = new DefaultBoard();
+    DefaultBoard board2 = new DefaultBoard();
+    assertTrue(board.getNeighborTable() == board2.getNeighborTable());
+    NeighborTable table = board.getNeighborTable();
+    assertTrue(table.degree(0) == 3);
+    assertTrue(table.degree(board.getWidth() + 1) == 8);
+    assertTrue(board.getAdjacentTiles(1, 1).size() == 8);
+  }
+
+  @Test
+  public void floodReportsRevealedCells() {
+    DefaultBoard board =
+        new DefaultBoard(Arrays.copyOf(dumbBoard, dumbBoard.length));
+    board.setTile(new Tile(true, 0, false, 9, 9), 9, 9);
+    board.setTile(new Tile(false, 1, false, 8, 9), 8, 9);
+    board.setTile(new Tile(false, 1, false, 9, 8), 9, 8);
+    board.setTile(new Tile(false, 1, false, 8, 8), 8, 8);
+    assertTrue(board.makeMove(0, 0) == MoveResponse.NOT_MINE);
+    assertTrue(board.getLastRevealed().length == 99);
+    assertFalse(board.getTile(9, 9).hasBeenVisited());
+    assertTrue(board.makeMove(0, 0) == MoveResponse.INVALID);
+    assertTrue(board.getLastRevealed().length == 0);
+    assertTrue(board.isWinningBoard());
+    assertFalse(board.isLosingBoard());
+    assertTrue(board.makeMove(9, 9) == MoveResponse.MINE);
+    assertTrue(board.getLastRevealed()[0] == 99);
+    assertTrue(board.isLosingBoard());
+  }
+
+  @Test
+  public void cellsMatchFullJson() {
+    DefaultBoard board = new DefaultBoard(8, 8, 10, 5L);
+    board.makeMove(3, 3);
+    int[] cells = board.getLastRevealed();
+    JsonArray tiles =
+        board.toJson().getAsJsonObject().getAsJsonArray("tiles");
+    JsonArray changed = board.cellsToJson(cells);
+    assertTrue(changed.size() == cells.length);
+    for (int i = 0; i < cells.length; i++) {
+      assertTrue(changed.get(i).equals(tiles.get(cells[i])));
+    }
+  }
+
   private void checkInvalidMove(DefaultBoard board) {
     board.makeMove(-1, -1);
     board.makeMove(board.getWidth() * 2, board.getHeight() * 2);
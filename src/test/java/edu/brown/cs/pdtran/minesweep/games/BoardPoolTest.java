@@ -0,0 +1,127 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.BoardFactory;
+import edu.brown.cs.pdtran.minesweep.setup.GameSpecs;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.GameMode;
+
+public class BoardPoolTest {
+
+  private static final int[] DIMS = {9, 9};
+  private static final int DIFFICULTY = 4;
+  private static final int[] SMALL_DIMS = {4, 4};
+  private static final int TOO_HARD = 40;
+  private static final long WAIT_MILLIS = 10000;
+  private static final long POLL_MILLIS = 5;
+
+  private BoardPool pool;
+
+  @Before
+  public void setup() {
+    pool = new BoardPool(2, 8);
+  }
+
+  @After
+  public void teardown() {
+    pool.shutdown();
+  }
+
+  private static GameSpecs specs() {
+    return new GameSpecs(GameMode.CLASSIC, BoardType.DEFAULT, 1, 1, 1, 1,
+        DIMS, DIFFICULTY);
+  }
+
+  private static void assertSeeded(List<Board> boards, GameSpecs specs) {
+    for (int i = 0; i < boards.size(); i++) {
+      assertTrue(boards.get(i).equals(BoardFactory.makeBoard(
+          specs.getBoardType(), DIMS[0], DIMS[1], specs.getNumMines(),
+          specs.getSeed() + i, false)));
+    }
+  }
+
+  private void awaitPooled(int boards) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+    while (pool.getPooledBoards() < boards
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(POLL_MILLIS);
+    }
+    assertTrue(pool.getPooledBoards() >= boards);
+  }
+
+  @Test
+  /**
+   * Verifies that a game with nothing pooled generates its own boards from
+   * its seed and counts as a miss.
+   */
+  public void missTest() {
+    GameSpecs specs = specs();
+    long seed = specs.getSeed();
+    List<Board> boards = pool.take(specs, 1);
+    assertEquals(1, boards.size());
+    assertEquals(seed, specs.getSeed());
+    assertSeeded(boards, specs);
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+  }
+
+  @Test
+  /**
+   * Verifies that a warmed key is filled in the background and that taking
+   * a pooled set records the seed it was generated from.
+   */
+  public void hitTest() throws InterruptedException {
+    pool.start();
+    pool.warm(specs());
+    awaitPooled(2);
+    assertEquals(1, pool.getPooledKeys());
+
+    GameSpecs specs = specs();
+    List<Board> boards = pool.take(specs, 1);
+    assertEquals(1, pool.getHits());
+    assertEquals(0, pool.getMisses());
+    assertSeeded(boards, specs);
+  }
+
+  @Test
+  /**
+   * Verifies that a game with a given seed never takes a pooled set.
+   */
+  public void fixedSeedTest() throws InterruptedException {
+    pool.start();
+    pool.warm(specs());
+    awaitPooled(2);
+
+    GameSpecs specs = new GameSpecs(GameMode.CLASSIC, BoardType.DEFAULT, 1,
+        1, 1, 1, DIMS, DIFFICULTY, 42L);
+    List<Board> boards = pool.take(specs, 1);
+    assertEquals(42L, specs.getSeed());
+    assertSeeded(boards, specs);
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+  }
+
+  @Test
+  /**
+   * Verifies that a key whose boards cannot be generated neither stops the
+   * worker nor keeps its place in the pool.
+   */
+  public void failureTest() throws InterruptedException {
+    pool.start();
+    // More mines than cells, which the board refuses.
+    pool.warm(new GameSpecs(GameMode.CLASSIC, BoardType.DEFAULT, 1, 1, 1,
+        1, SMALL_DIMS, TOO_HARD));
+    pool.warm(specs());
+    awaitPooled(2);
+    assertEquals(1, pool.getPooledKeys());
+  }
+}
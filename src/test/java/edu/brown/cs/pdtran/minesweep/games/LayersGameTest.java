@@ -0,0 +1,138 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.move.CheckTile;
+import edu.brown.cs.pdtran.minesweep.player.PlayerTeam;
+import edu.brown.cs.pdtran.minesweep.setup.GameSpecs;
+import edu.brown.cs.pdtran.minesweep.setup.Room;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.GameMode;
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+import edu.brown.cs.pdtran.minesweep.websockets.Update;
+
+public class LayersGameTest {
+
+  private static final int SIZE = 5;
+  private static final int DIFFICULTY = 4;
+  private static final int LIVES = 3;
+  private static final long SEED = 7L;
+
+  private LayersGame game;
+  private String teamId;
+  private PlayerTeam team;
+  private int version;
+
+  @Before
+  public void setup() {
+    GameSpecs specs = new GameSpecs(GameMode.LAYERS, BoardType.DEFAULT, 1,
+        1, 1, LIVES, new int[] {SIZE, SIZE}, DIFFICULTY, SEED);
+    Room room = new Room("host", "room", specs);
+    game = new LayersGame(room, new BoardPool());
+    teamId = room.getTeams().keySet().iterator().next();
+    team = game.getTeams().get(teamId);
+    version = team.getBoardVersion();
+  }
+
+  private static JsonObject data(Update update) {
+    return new JsonParser().parse(update.getMessage()).getAsJsonObject()
+        .getAsJsonObject("data");
+  }
+
+  private static int version(Update update) {
+    return data(update).get("version").getAsInt();
+  }
+
+  /**
+   * Checks every safe cell of the team's current board, checking the
+   * version of each board update the moves send.
+   * @return True if the game was won.
+   */
+  private boolean clearBoard() {
+    Board board = team.getCurrentBoard();
+    for (int row = 0; row < SIZE; row++) {
+      for (int col = 0; col < SIZE; col++) {
+        if (board.getTile(row, col).isBomb()
+            || board.getTile(row, col).hasBeenVisited()) {
+          continue;
+        }
+        for (Update update : game.makeMove(teamId,
+            new CheckTile(col, row))) {
+          if (update.getUpdateType() == UpdateType.BOARD_DELTA) {
+            assertEquals(version + 1, version(update));
+            assertTrue(data(update).getAsJsonArray("tiles").size() > 0);
+            version = version(update);
+          } else if (update.getUpdateType() == UpdateType.BOARD_UPDATE) {
+            assertTrue(version(update) > version);
+            assertTrue(team.getCurrentBoard() != board);
+            version = version(update);
+            return false;
+          } else if (update.getUpdateType() == UpdateType.VICTORY) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  @Test
+  /**
+   * Verifies that each move's BOARD_DELTA is one version on from the last,
+   * and that a new layer is sent whole.
+   */
+  public void deltaVersionTest() {
+    Board first = team.getCurrentBoard();
+    assertTrue(!clearBoard());
+    assertTrue(team.getCurrentBoard() != first);
+    assertEquals(version, team.getBoardVersion());
+  }
+
+  @Test
+  /**
+   * Verifies that a resync mid-game sends the current board at the
+   * team's current version.
+   */
+  public void resyncTest() {
+    clearBoard();
+    List<String> users = team.getHumans();
+    Update resync = game.getBoardSnapshot(teamId, UpdateType.BOARD_UPDATE,
+        users);
+    assertEquals(team.getBoardVersion(), version(resync));
+    assertEquals(SIZE * SIZE, data(resync).getAsJsonObject("board")
+        .getAsJsonArray("tiles").size());
+  }
+
+  @Test
+  /**
+   * Verifies that once the last layer is cleared, the last board stays
+   * current, so it can still be resynced and its reveals read.
+   */
+  public void finishedResyncTest() {
+    boolean won = false;
+    for (int layer = 0; layer < LayersGame.LAYERS_COUNT && !won;
+        layer++) {
+      won = clearBoard();
+    }
+    assertTrue(won);
+    Board last = team.getCurrentBoard();
+    assertTrue(last.isWinningBoard());
+    assertTrue(game.getBoard(teamId) == last);
+
+    Update resync = game.getBoardSnapshot(teamId, UpdateType.BOARD_UPDATE,
+        team.getHumans());
+    assertEquals(team.getBoardVersion(), version(resync));
+    assertNotNull(resync.getBinaryMessage());
+    assertNotNull(team.getRevealsSince(last, 0));
+  }
+}
@@ -0,0 +1,218 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.move.CheckTile;
+import edu.brown.cs.pdtran.minesweep.player.PlayerTeam;
+import edu.brown.cs.pdtran.minesweep.setup.GameSpecs;
+import edu.brown.cs.pdtran.minesweep.setup.HumanGamer;
+import edu.brown.cs.pdtran.minesweep.setup.Room;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.GameMode;
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+import edu.brown.cs.pdtran.minesweep.websockets.Update;
+
+public class TerritoryGameTest {
+
+  private static final int SIZE = 9;
+  private static final int DIFFICULTY = 4;
+  private static final int LIVES = 3;
+  private static final long SEED = 11L;
+  private static final int MAX_COLORS = 255;
+  private static final long WAIT_SECONDS = 10;
+
+  private TerritoryGame game;
+  private String teamId;
+  private String otherId;
+  private List<String[]> sent;
+  private Map<String, ExecutorService> mailboxes;
+
+  @Before
+  public void setup() throws Exception {
+    GameSpecs specs = new GameSpecs(GameMode.TERRITORY, BoardType.DEFAULT,
+        1, 2, 1, LIVES, new int[] {SIZE, SIZE}, DIFFICULTY, SEED);
+    Room room = new Room("host", "room", specs);
+    for (String id : room.getTeams().keySet()) {
+      room.addHuman(id, "user" + id, new HumanGamer("user" + id));
+    }
+    sent = Collections.synchronizedList(new ArrayList<>());
+    // Records which thread sent each update and to whom.
+    game = new TerritoryGame(room, (updates) -> {
+      for (Update update : updates) {
+        sent.add(new String[] {Thread.currentThread().getName(),
+            update.getUsersToUpdate().get(0)});
+      }
+    }, new BoardPool());
+    List<String> ids = new ArrayList<>(game.getTeams().keySet());
+    teamId = ids.get(0);
+    otherId = ids.get(1);
+    mailboxes = new HashMap<>();
+  }
+
+  @After
+  public void teardown() {
+    for (ExecutorService mailbox : mailboxes.values()) {
+      mailbox.shutdownNow();
+    }
+  }
+
+  private static String colorAt(Update update, int x, int y) {
+    JsonArray colors = new JsonParser().parse(update.getMessage())
+        .getAsJsonObject().getAsJsonObject("data")
+        .getAsJsonArray("colors");
+    return colors.get(x).getAsJsonArray().get(y).getAsString();
+  }
+
+  @Test
+  /**
+   * Verifies that recoloring a cell does not change the colors held by a
+   * snapshot taken before it, even one not yet serialized.
+   */
+  public void snapshotColorsTest() {
+    Update before = game.getBoardSnapshot(teamId, UpdateType.INIT_BOARD,
+        game.getTeams().get(teamId).getHumans());
+    game.setColor(1, 2, "Red");
+    Update after = game.getBoardSnapshot(teamId, UpdateType.INIT_BOARD,
+        game.getTeams().get(teamId).getHumans());
+    assertEquals("WHITE", colorAt(before, 1, 2));
+    assertEquals("Red", colorAt(after, 1, 2));
+    assertEquals("WHITE", colorAt(after, 2, 1));
+  }
+
+  @Test
+  /**
+   * Verifies that a cell keeps its color when the game has more colors
+   * than fit in a signed byte, and that a game refuses more colors than
+   * fit in an unsigned one.
+   */
+  public void manyColorsTest() {
+    for (int i = 1; i < MAX_COLORS; i++) {
+      int x = i % SIZE;
+      int y = i / SIZE % SIZE;
+      game.setColor(x, y, "Color" + i);
+      assertEquals("Color" + i, game.getColor(x, y));
+    }
+    String kept = game.getColor(0, 0);
+    boolean refused = false;
+    try {
+      game.setColor(0, 0, "OneTooMany");
+    } catch (IllegalStateException e) {
+      refused = true;
+    }
+    assertTrue(refused);
+    assertEquals(kept, game.getColor(0, 0));
+  }
+
+  @Test
+  /**
+   * Verifies that when two teams check the same cell, only the first claims
+   * it, and the other team is told of the reveal as a change it did not
+   * make.
+   */
+  public void sameCellTest() {
+    Board board = game.getBoard(teamId);
+    int x = 0;
+    while (board.getTile(0, x).isBomb()) {
+      x++;
+    }
+    assertTrue(!game.makeMove(teamId, new CheckTile(x, 0)).isEmpty());
+    assertTrue(game.makeMove(otherId, new CheckTile(x, 0)).isEmpty());
+    assertEquals(TerritoryGame.COLOR_CHOICES[0], game.getColor(x, 0));
+
+    PlayerTeam team = game.getTeams().get(teamId);
+    PlayerTeam other = game.getTeams().get(otherId);
+    assertEquals(team.getBoardVersion(), other.getBoardVersion());
+    assertTrue(Arrays.equals(team.getRevealsSince(board, 0),
+        other.getRevealsSince(board, 0)));
+    assertEquals(1, sent.size());
+    assertEquals("user" + otherId, sent.get(0)[1]);
+  }
+
+  /**
+   * Waits until every task posted to the mailboxes so far has run.
+   */
+  private void drain() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(mailboxes.size());
+    for (ExecutorService mailbox : mailboxes.values()) {
+      mailbox.execute(latch::countDown);
+    }
+    assertTrue(latch.await(WAIT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  /**
+   * Verifies that when two teams race through every safe cell from
+   * opposite ends, each cell is claimed and logged once, both teams see
+   * every reveal, and each team's view changes only on its own mailbox.
+   */
+  public void claimRaceTest() throws InterruptedException {
+    for (String id : game.getTeams().keySet()) {
+      mailboxes.put(id, Executors.newSingleThreadExecutor(
+          (task) -> new Thread(task, "user" + id)));
+    }
+    game.setMailboxes(mailboxes::get);
+
+    Board board = game.getBoard(teamId);
+    List<Integer> safe = new ArrayList<>();
+    for (int cell = 0; cell < SIZE * SIZE; cell++) {
+      if (!board.getTile(cell / SIZE, cell % SIZE).isBomb()) {
+        safe.add(cell);
+      }
+    }
+    List<Integer> reversed = new ArrayList<>(safe);
+    Collections.reverse(reversed);
+    for (int i = 0; i < safe.size(); i++) {
+      int mine = safe.get(i);
+      int theirs = reversed.get(i);
+      mailboxes.get(teamId).execute(() -> game.makeMove(teamId,
+          new CheckTile(mine % SIZE, mine / SIZE)));
+      mailboxes.get(otherId).execute(() -> game.makeMove(otherId,
+          new CheckTile(theirs % SIZE, theirs / SIZE)));
+    }
+    // Once for the moves, and once for the changes they posted.
+    drain();
+    drain();
+
+    assertTrue(board.isWinningBoard());
+    for (String[] update : sent) {
+      assertEquals(update[0], update[1]);
+    }
+    PlayerTeam team = game.getTeams().get(teamId);
+    PlayerTeam other = game.getTeams().get(otherId);
+    assertEquals(team.getBoardVersion(), other.getBoardVersion());
+    for (PlayerTeam each : Arrays.asList(team, other)) {
+      int[] log = each.getRevealsSince(board, 0);
+      Arrays.sort(log);
+      assertEquals(safe.size(), log.length);
+      for (int i = 0; i < log.length; i++) {
+        assertEquals((int) safe.get(i), log[i]);
+      }
+    }
+    int claimed = 0;
+    for (int cell = 0; cell < SIZE * SIZE; cell++) {
+      if (!"WHITE".equals(game.getColor(cell % SIZE, cell / SIZE))) {
+        claimed++;
+      }
+    }
+    assertEquals(team.getBoardVersion(), claimed);
+  }
+}
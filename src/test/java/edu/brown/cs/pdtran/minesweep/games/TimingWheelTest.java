@@ -0,0 +1,103 @@
+package edu.brown.cs.pdtran.minesweep.games;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+  private TimingWheel wheel;
+
+  @Before
+  public void setUp() {
+    // Four 5ms slots, so a 60ms timeout is three turns of the wheel away.
+    wheel = new TimingWheel(5, 4);
+  }
+
+  @After
+  public void tearDown() {
+    wheel.shutdown();
+  }
+
+  @Test
+  /**
+   * Verifies that timeouts run in the order of their deadlines and never
+   * before them, including ones due several turns of the wheel away.
+   */
+  public void scheduleTest() throws InterruptedException {
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    long[] elapsed = new long[2];
+    CountDownLatch done = new CountDownLatch(2);
+    long start = System.nanoTime();
+    wheel.schedule(() -> {
+      elapsed[1] = System.nanoTime() - start;
+      order.add(1);
+      done.countDown();
+    }, 60);
+    wheel.schedule(() -> {
+      elapsed[0] = System.nanoTime() - start;
+      order.add(0);
+      done.countDown();
+    }, 20);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(0, (int) order.get(0));
+    assertEquals(1, (int) order.get(1));
+    assertTrue(elapsed[0] >= TimeUnit.MILLISECONDS.toNanos(20));
+    assertTrue(elapsed[1] >= TimeUnit.MILLISECONDS.toNanos(60));
+  }
+
+  @Test
+  /**
+   * Verifies that a rescheduled timeout runs at its new deadline, and can
+   * be scheduled again once it has run.
+   */
+  public void rescheduleTest() throws InterruptedException {
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch first = new CountDownLatch(1);
+    CountDownLatch second = new CountDownLatch(2);
+    TimingWheel.Timeout timeout = wheel.schedule(() -> {
+      runs.incrementAndGet();
+      first.countDown();
+      second.countDown();
+    }, 60000);
+    assertTrue(timeout.getRemainingMillis() > 60);
+
+    assertTrue(wheel.reschedule(timeout, 20));
+    assertTrue(first.await(10, TimeUnit.SECONDS));
+    assertTrue(timeout.getRemainingMillis() <= 0);
+
+    assertTrue(wheel.reschedule(timeout, 20));
+    assertTrue(second.await(10, TimeUnit.SECONDS));
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  /**
+   * Verifies that a cancelled timeout never runs and cannot be
+   * rescheduled, while others in its slot still run.
+   */
+  public void cancelTest() throws InterruptedException {
+    AtomicInteger cancelledRuns = new AtomicInteger();
+    CountDownLatch later = new CountDownLatch(1);
+    TimingWheel.Timeout timeout =
+        wheel.schedule(cancelledRuns::incrementAndGet, 20);
+    // A whole turn of the wheel later, so it shares the slot.
+    wheel.schedule(later::countDown, 40);
+    wheel.cancel(timeout);
+    assertTrue(timeout.isCancelled());
+    assertFalse(wheel.reschedule(timeout, 20));
+
+    assertTrue(later.await(10, TimeUnit.SECONDS));
+    assertEquals(0, cancelledRuns.get());
+  }
+}
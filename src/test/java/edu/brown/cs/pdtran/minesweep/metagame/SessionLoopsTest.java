@@ -0,0 +1,89 @@
+package edu.brown.cs.pdtran.minesweep.metagame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionLoopsTest {
+  private SessionLoops loops;
+
+  @Before
+  public void setUp() {
+    loops = new SessionLoops(3);
+  }
+
+  @After
+  public void tearDown() {
+    loops.shutdown();
+  }
+
+  @Test
+  /**
+   * Verifies that each session's tasks run in the order they were
+   * submitted, all on one thread, while sessions share the loops.
+   */
+  public void orderTest() throws InterruptedException {
+    List<List<Integer>> runs = new ArrayList<>();
+    List<Set<String>> threads = new ArrayList<>();
+    for (int s = 0; s < 8; s++) {
+      runs.add(new ArrayList<>());
+      threads.add(new HashSet<>());
+    }
+    CountDownLatch done = new CountDownLatch(8 * 500);
+    for (int i = 0; i < 500; i++) {
+      for (int s = 0; s < 8; s++) {
+        int session = s;
+        int task = i;
+        // Lists for a session are only touched on its loop.
+        loops.execute("session" + s, () -> {
+          runs.get(session).add(task);
+          threads.get(session).add(Thread.currentThread().getName());
+          done.countDown();
+        });
+      }
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    for (int s = 0; s < 8; s++) {
+      assertEquals(500, runs.get(s).size());
+      for (int i = 0; i < 500; i++) {
+        assertEquals(i, (int) runs.get(s).get(i));
+      }
+      assertEquals(1, threads.get(s).size());
+    }
+  }
+
+  @Test
+  /**
+   * Verifies that a team's mailbox keeps its tasks in order, and that a
+   * task that throws does not stop the tasks after it.
+   */
+  public void teamMailboxTest() throws InterruptedException {
+    Executor mailbox = loops.mailbox("session", "team");
+    List<Integer> run = new ArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    mailbox.execute(() -> run.add(0));
+    mailbox.execute(() -> {
+      throw new IllegalStateException("Thrown on purpose by a test.");
+    });
+    mailbox.execute(() -> run.add(1));
+    loops.mailbox("session", "team").execute(() -> {
+      run.add(2);
+      done.countDown();
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(0, (int) run.get(0));
+    assertEquals(1, (int) run.get(1));
+    assertEquals(2, (int) run.get(2));
+  }
+}
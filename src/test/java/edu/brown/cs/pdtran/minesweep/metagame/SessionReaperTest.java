@@ -0,0 +1,194 @@
+package edu.brown.cs.pdtran.minesweep.metagame;
+
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.games.BoardPool;
+import edu.brown.cs.pdtran.minesweep.games.Game;
+import edu.brown.cs.pdtran.minesweep.games.GameResult;
+import edu.brown.cs.pdtran.minesweep.move.CheckTile;
+import edu.brown.cs.pdtran.minesweep.move.Move;
+import edu.brown.cs.pdtran.minesweep.setup.GameSpecs;
+import edu.brown.cs.pdtran.minesweep.setup.Room;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.GameMode;
+import edu.brown.cs.pdtran.minesweep.websockets.MoveHandler;
+
+public class SessionReaperTest {
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private RequestHandler handler;
+
+  @Before
+  public void setUp() throws Exception {
+    handler = new RequestHandler(new BoardPool(), false);
+  }
+
+  @After
+  public void tearDown() {
+    handler.shutdown();
+  }
+
+  /**
+   * Makes a room for a game on a board with no mines, which the first
+   * check wins.
+   */
+  private String addRoom() {
+    GameSpecs specs = new GameSpecs(GameMode.CLASSIC, BoardType.DEFAULT, 1,
+        1, 1, 1, new int[] {3, 3}, 0);
+    return handler.addRoom(new Room("host", "room", specs));
+  }
+
+  private String startGame() {
+    String id = addRoom();
+    handler.startGame((updates) -> { }, id, "host", new MoveHandler() {
+      @Override
+      public void makeMove(String sessionId, String teamId, Move m) {
+      }
+
+      @Override
+      public void playTurn(String sessionId, String teamId,
+          Supplier<Move> turn) {
+      }
+    });
+    return id;
+  }
+
+  // The task drain submits counts as a request, so it uses the session.
+  private void drain(String id) throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    handler.execute(id, done::countDown);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  private static void await(Supplier<Integer> count, int expected)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis()
+        + TimeUnit.SECONDS.toMillis(10);
+    while (count.get() != expected
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(expected, (int) count.get());
+  }
+
+  @Test
+  /**
+   * Verifies that idle rooms are evicted, and rooms still in use are not.
+   */
+  public void idleRoomTest() throws InterruptedException {
+    addRoom();
+    addRoom();
+    assertEquals(0, handler.reapRooms(Long.MAX_VALUE));
+    Thread.sleep(5);
+    assertEquals(2, handler.reapRooms(IDLE_NANOS));
+    await(handler::getRoomCount, 0);
+    assertTrue(handler.getSessions().isEmpty());
+  }
+
+  @Test
+  /**
+   * Verifies that a room used after it was queued for eviction, but before
+   * its loop got to it, is kept.
+   */
+  public void touchedRoomTest() throws Exception {
+    String id = addRoom();
+    CountDownLatch gate = new CountDownLatch(1);
+    handler.execute(id, () -> {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    // Long enough that the loop checks again well within it of the touch.
+    long idle = TimeUnit.MILLISECONDS.toNanos(200);
+    Thread.sleep(250);
+    assertEquals(1, handler.reapRooms(idle));
+    // Submitting a request for the room counts as using it.
+    handler.execute(id, () -> { });
+    gate.countDown();
+    drain(id);
+    assertEquals(1, handler.getRoomCount());
+  }
+
+  @Test
+  /**
+   * Verifies that a game that has ended is evicted after the finished
+   * delay and one still being played only once it is idle, that each
+   * leaves its result, and that results expire.
+   */
+  public void gameTest() throws Exception {
+    String finished = startGame();
+    String playing = startGame();
+    Game game = handler.getGame(finished);
+    String teamId = game.getTeams().keySet().iterator().next();
+    handler.execute(finished,
+        () -> handler.makeMove(finished, teamId, new CheckTile(0, 0)));
+    drain(finished);
+    assertTrue(game.isOver());
+
+    Thread.sleep(5);
+    assertEquals(1, handler.reapGames(Long.MAX_VALUE, IDLE_NANOS));
+    await(handler::getGameCount, 1);
+    List<Entry<String, GameResult>> results = handler.getResults();
+    assertEquals(1, results.size());
+    assertEquals(finished, results.get(0).getKey());
+    assertFalse(results.get(0).getValue().toJson().toString().isEmpty());
+
+    Thread.sleep(5);
+    assertEquals(1, handler.reapGames(IDLE_NANOS, Long.MAX_VALUE));
+    await(handler::getGameCount, 0);
+    assertEquals(2, handler.getResults().size());
+
+    assertEquals(0, handler.reapResults(Long.MAX_VALUE));
+    assertEquals(2, handler.reapResults(-1));
+    assertTrue(handler.getResults().isEmpty());
+  }
+
+  @Test
+  /**
+   * Verifies that a move played on a team's mailbox, as an AI's turns
+   * are, keeps a game from being evicted as idle.
+   */
+  public void moveTouchTest() throws Exception {
+    String id = startGame();
+    String teamId =
+        handler.getGame(id).getTeams().keySet().iterator().next();
+    long idle = TimeUnit.MILLISECONDS.toNanos(200);
+    Thread.sleep(250);
+    handler.executeMove(id, teamId, () -> { });
+    assertEquals(0, handler.reapGames(idle, Long.MAX_VALUE));
+  }
+
+  @Test
+  /**
+   * Verifies that user ids are dropped once they have gone without a
+   * connection for too long, and only connected users count as live.
+   */
+  public void userTest() throws InterruptedException {
+    handler.getUserId();
+    String connected = handler.getUserId();
+    handler.userConnected(connected);
+    assertEquals(1, handler.getUserCount());
+    Thread.sleep(5);
+    assertEquals(1, handler.reapUsers(IDLE_NANOS));
+
+    handler.userDisconnected(connected);
+    assertEquals(0, handler.getUserCount());
+    assertEquals(0, handler.reapUsers(Long.MAX_VALUE));
+    Thread.sleep(5);
+    assertEquals(1, handler.reapUsers(IDLE_NANOS));
+  }
+}
@@ -0,0 +1,101 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.DefaultBoard;
+import edu.brown.cs.pdtran.minesweep.move.Move;
+import edu.brown.cs.pdtran.minesweep.setup.AIGamer;
+import edu.brown.cs.pdtran.minesweep.setup.TeamFormation;
+import edu.brown.cs.pdtran.minesweep.types.AiDifficulty;
+import edu.brown.cs.pdtran.minesweep.websockets.MoveHandler;
+
+public class AIRunnableTest {
+  private ScheduledThreadPoolExecutor scheduler;
+  private List<Supplier<Move>> turns;
+  private AIPlayer ai;
+  private AIRunnable runnable;
+
+  @Before
+  public void setUp() {
+    scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true);
+    turns = new ArrayList<>();
+    // Turns are recorded rather than played.
+    MoveHandler handler = new MoveHandler() {
+      @Override
+      public void makeMove(String sessionId, String teamId, Move m) {
+      }
+
+      @Override
+      public void playTurn(String sessionId, String teamId,
+          Supplier<Move> turn) {
+        turns.add(turn);
+      }
+    };
+    TeamFormation tf = new TeamFormation("team");
+    tf.addAIGamer("ai", new AIGamer(AiDifficulty.EASY));
+    List<Board> boards = new ArrayList<>();
+    boards.add(new DefaultBoard(8, 8, 10, 2));
+    PlayerTeam team = new PlayerTeam(tf, 1, boards);
+    ai = team.getAis().get(0);
+    ai.beginPlay();
+    runnable = new AIRunnable("session", team, "team", ai, handler);
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  /**
+   * Verifies that cancelling an AI drops its scheduled turn, and that a
+   * turn that fires anyway takes no move and schedules no other.
+   */
+  public void cancelTest() {
+    runnable.start(scheduler);
+    assertEquals(1, scheduler.getQueue().size());
+    runnable.cancel();
+    assertTrue(scheduler.getQueue().isEmpty());
+
+    runnable.run();
+    assertTrue(turns.isEmpty());
+    assertTrue(scheduler.getQueue().isEmpty());
+  }
+
+  @Test
+  /**
+   * Verifies that a turn waiting on the session's loop when the AI is
+   * cancelled chooses no move.
+   */
+  public void cancelWaitingTurnTest() {
+    runnable.start(scheduler);
+    runnable.run();
+    assertEquals(1, turns.size());
+    runnable.cancel();
+    assertEquals(null, turns.get(0).get());
+  }
+
+  @Test
+  /**
+   * Verifies that an AI that can no longer play takes no more turns.
+   */
+  public void endPlayTest() {
+    runnable.start(scheduler);
+    ai.endPlay();
+    runnable.run();
+    assertTrue(turns.isEmpty());
+    assertEquals(1, scheduler.getQueue().size());
+  }
+}
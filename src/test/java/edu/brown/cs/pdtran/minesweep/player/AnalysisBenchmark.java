@@ -0,0 +1,133 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.DefaultBoard;
+import edu.brown.cs.pdtran.minesweep.move.CheckTile;
+import edu.brown.cs.pdtran.minesweep.setup.TeamFormation;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+
+/**
+ * Compares the cost per move of analysing a board by scanning it with a
+ * new FrontierSolver, as the AI used to, against keeping a FrontierModel
+ * up to date from the team's reveals and solving it with one solver.
+ * <p>
+ * Each game is played by checking the safest cell the analysis finds. A
+ * mine that is hit is swapped for a random safe cell, so games run until
+ * the board is cleared. Each size is played twice and the second game,
+ * after the JIT has warmed up, is reported. This is not a unit test; run
+ * it by hand with the test classpath, passing the board sizes to play,
+ * such as "32,64,128".
+ * @author Clayton Sanford
+ */
+public final class AnalysisBenchmark {
+
+  private static final int[] DEFAULT_SIZES = {32, 64, 128};
+  private static final int DENSITY_PERCENT = 15;
+  private static final int PERCENT = 100;
+  private static final int ROUNDS = 2;
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  private AnalysisBenchmark() {
+  }
+
+  /**
+   * Plays a game on each board size and prints the mean time per move of
+   * both analyses.
+   * @param args The board sizes, separated by commas.
+   */
+  public static void main(String[] args) {
+    int[] sizes = DEFAULT_SIZES;
+    if (args.length > 0) {
+      String[] parts = args[0].split(",");
+      sizes = new int[parts.length];
+      for (int i = 0; i < parts.length; i++) {
+        sizes[i] = Integer.parseInt(parts[i].trim());
+      }
+    }
+    for (int size : sizes) {
+      for (int round = 1; round <= ROUNDS; round++) {
+        long[] totals = play(size);
+        if (round == ROUNDS) {
+          System.out.printf("%dx%d: %d moves, scan %.3f ms/move, "
+              + "incremental %.3f ms/move%n", size, size, totals[0],
+              totals[1] / NANOS_PER_MILLI / totals[0],
+              totals[2] / NANOS_PER_MILLI / totals[0]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Plays one game.
+   * @return The number of moves and the nanoseconds spent by each
+   *         analysis.
+   */
+  private static long[] play(int size) {
+    Random random = new Random(size);
+    Board board = new DefaultBoard(size, size,
+        size * size * DENSITY_PERCENT / PERCENT, size);
+    List<Board> boards = new ArrayList<>();
+    boards.add(board);
+    PlayerTeam team = new PlayerTeam(new TeamFormation("team"), 1, boards);
+    FrontierModel model = new FrontierModel(team);
+    FrontierSolver solver = new FrontierSolver();
+    long[] totals = new long[] {0, 0, 0};
+    while (!board.isWinningBoard()) {
+      long start = System.nanoTime();
+      new FrontierSolver().solve(board);
+      long scanned = System.nanoTime();
+      model.sync();
+      FrontierSolver.Result result = model.solve(solver);
+      long solved = System.nanoTime();
+      totals[0]++;
+      totals[1] += scanned - start;
+      totals[2] += solved - scanned;
+
+      int cell = safest(result, model, random, size);
+      if (board.getTile(cell / size, cell % size).isBomb()) {
+        cell = randomSafe(board, random, size);
+      }
+      team.makeMove(new CheckTile(cell % size, cell / size));
+    }
+    return totals;
+  }
+
+  private static int safest(FrontierSolver.Result result,
+      FrontierModel model, Random random, int size) {
+    int[] cells = result.getCells();
+    double[] probabilities = result.getProbabilities();
+    int best = -1;
+    double lowest = result.getInteriorProbability();
+    if (Double.isNaN(lowest)) {
+      lowest = 1;
+    }
+    for (int i = 0; i < cells.length; i++) {
+      if (probabilities[i] < lowest) {
+        lowest = probabilities[i];
+        best = cells[i];
+      }
+    }
+    if (best >= 0) {
+      return best;
+    }
+    int cell;
+    do {
+      cell = random.nextInt(size * size);
+    } while (!model.isHidden(cell));
+    return cell;
+  }
+
+  private static int randomSafe(Board board, Random random, int size) {
+    while (true) {
+      int cell = random.nextInt(size * size);
+      Tile tile = board.getTile(cell / size, cell % size);
+      if (!tile.isBomb() && !tile.hasBeenVisited()) {
+        return cell;
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.DefaultBoard;
+import edu.brown.cs.pdtran.minesweep.games.DummyBoardData;
+import edu.brown.cs.pdtran.minesweep.move.CheckTile;
+import edu.brown.cs.pdtran.minesweep.setup.AIGamer;
+import edu.brown.cs.pdtran.minesweep.setup.TeamFormation;
+import edu.brown.cs.pdtran.minesweep.types.AiDifficulty;
+
+public class FrontierModelTest {
+
+  private static void assertSameModel(FrontierModel expected,
+      FrontierModel actual) {
+    assertEquals(new ArrayList<>(expected.getConstraints()),
+        new ArrayList<>(actual.getConstraints()));
+    for (int cell : expected.getConstraints()) {
+      assertTrue(Arrays.equals(expected.getHiddenAround(cell),
+          actual.getHiddenAround(cell)));
+      assertEquals(expected.getMinesAround(cell),
+          actual.getMinesAround(cell));
+    }
+    assertEquals(expected.getHiddenCount(), actual.getHiddenCount());
+    assertEquals(expected.getMinesLeft(), actual.getMinesLeft());
+  }
+
+  @Test
+  /**
+   * Plays out a board and verifies that the model kept up from the team's
+   * reveals always matches one built by scanning the board.
+   */
+  public void incrementalMatchesScanTest() {
+    int size = 16;
+    Board board = new DefaultBoard(size, size, 40, 1);
+    List<Board> boards = new ArrayList<>();
+    boards.add(board);
+    PlayerTeam team = new PlayerTeam(new TeamFormation("team"), 1, boards);
+    FrontierModel incremental = new FrontierModel(team);
+    int checked = 0;
+    for (int cell = 0; cell < size * size && !board.isGameOver(); cell++) {
+      int row = cell / size;
+      int col = cell % size;
+      if (board.getTile(row, col).isBomb()
+          || board.getTile(row, col).hasBeenVisited()) {
+        continue;
+      }
+      team.makeMove(new CheckTile(col, row));
+      incremental.sync();
+      FrontierModel scanned =
+          new FrontierModel(new DummyBoardData(board));
+      scanned.sync();
+      assertSameModel(scanned, incremental);
+      checked++;
+    }
+    assertTrue(checked > 0);
+  }
+
+  @Test
+  /**
+   * Verifies that a team built on a board with cells already revealed,
+   * like the opening of a no-guess board, passes them on to its model.
+   */
+  public void preRevealedTest() {
+    int size = 16;
+    Board board = new DefaultBoard(size, size, 40, 1);
+    int cell = 0;
+    while (board.getTile(cell / size, cell % size).isBomb()) {
+      cell++;
+    }
+    board.makeMove(cell / size, cell % size);
+    List<Board> boards = new ArrayList<>();
+    boards.add(board);
+    PlayerTeam team = new PlayerTeam(new TeamFormation("team"), 1, boards);
+    FrontierModel model = new FrontierModel(team);
+    model.sync();
+    FrontierModel scanned = new FrontierModel(new DummyBoardData(board));
+    scanned.sync();
+    assertTrue(model.getHiddenCount() < size * size);
+    assertSameModel(scanned, model);
+  }
+
+  @Test
+  /**
+   * Verifies that a sync with nothing revealed reports no reveals.
+   */
+  public void noChangeTest() {
+    List<Board> boards = new ArrayList<>();
+    boards.add(new DefaultBoard(8, 8, 10, 2));
+    PlayerTeam team = new PlayerTeam(new TeamFormation("team"), 1, boards);
+    FrontierModel model = new FrontierModel(team);
+    model.sync();
+    team.makeMove(new CheckTile(0, 0));
+    assertTrue(model.sync().length > 0);
+    assertEquals(0, model.sync().length);
+  }
+
+  @Test
+  /**
+   * Verifies that a team's AIs can follow its board from the moment they
+   * are made.
+   */
+  public void teamWithAiTest() {
+    TeamFormation tf = new TeamFormation("team");
+    tf.addAIGamer("ai", new AIGamer(AiDifficulty.HARD));
+    List<Board> boards = new ArrayList<>();
+    boards.add(new DefaultBoard(8, 8, 10, 2));
+    PlayerTeam team = new PlayerTeam(tf, 1, boards);
+    assertEquals(1, team.getAis().size());
+  }
+}
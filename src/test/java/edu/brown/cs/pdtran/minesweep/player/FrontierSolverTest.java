@@ -0,0 +1,115 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.board.DefaultBoard;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+
+public class FrontierSolverTest {
+
+  private static final double DELTA = 1e-9;
+
+  private static double probabilityOf(FrontierSolver.Result result,
+      int cell) {
+    int[] cells = result.getCells();
+    for (int i = 0; i < cells.length; i++) {
+      if (cells[i] == cell) {
+        return result.getProbabilities()[i];
+      }
+    }
+    throw new AssertionError("Cell " + cell + " is not on the frontier");
+  }
+
+  @Test
+  /**
+   * Verifies that the mines left on the board decide between solutions
+   * with different numbers of mines.
+   */
+  public void globalCountTest() {
+    int[][] cells = { {1, 2, 3}, {3, 4, 5}};
+    int[] mines = {1, 1};
+    FrontierSolver solver = new FrontierSolver();
+
+    FrontierSolver.Result one = solver.solve(cells, mines, 5, 1);
+    assertTrue(one.isExact());
+    assertEquals(1, probabilityOf(one, 3), DELTA);
+    assertEquals(0, probabilityOf(one, 1), DELTA);
+    assertEquals(0, probabilityOf(one, 5), DELTA);
+
+    FrontierSolver.Result two = solver.solve(cells, mines, 5, 2);
+    assertEquals(0, probabilityOf(two, 3), DELTA);
+    assertEquals(.5, probabilityOf(two, 1), DELTA);
+    assertEquals(.5, probabilityOf(two, 4), DELTA);
+  }
+
+  @Test
+  /**
+   * Verifies that hidden tiles off the frontier are weighed by the number
+   * of ways to place the remaining mines among them.
+   */
+  public void interiorTest() {
+    int[][] cells = { {1, 2}};
+    int[] mines = {1};
+    FrontierSolver.Result result =
+        new FrontierSolver().solve(cells, mines, 12, 2);
+    assertEquals(.5, probabilityOf(result, 1), DELTA);
+    assertEquals(.1, result.getInteriorProbability(), DELTA);
+  }
+
+  @Test
+  /**
+   * Verifies that a component too big to enumerate falls back to an
+   * estimate.
+   */
+  public void fallbackTest() {
+    int[][] cells = { {1, 2, 3}};
+    int[] mines = {1};
+    FrontierSolver.Result result =
+        new FrontierSolver(50, 2).solve(cells, mines, 3, 1);
+    assertTrue(!result.isExact());
+    assertEquals(1.0 / 3, probabilityOf(result, 2), DELTA);
+  }
+
+  @Test
+  /**
+   * Using a partially-solved board, verifies that the constraints read
+   * from the board find the only mine.
+   */
+  public void boardTest() {
+    Tile[][] tiles =
+      { {new Tile(true, 0, false, 0, 0), new Tile(false, 1, false, 0, 1),
+        new Tile(false, 0, false, 0, 2)},
+        {new Tile(false, 1, true, 1, 0), new Tile(false, 1, true, 1, 1),
+          new Tile(false, 0, true, 1, 2)}};
+    FrontierSolver.Result result =
+        new FrontierSolver().solve(new DefaultBoard(tiles));
+    assertTrue(result.isExact());
+    assertEquals(1, probabilityOf(result, 0), DELTA);
+    assertEquals(0, probabilityOf(result, 1), DELTA);
+    assertEquals(0, probabilityOf(result, 2), DELTA);
+  }
+
+  @Test
+  /**
+   * Verifies that a solver reusing the components of its last solve gives
+   * the same probabilities as a new one when some of them change.
+   */
+  public void reuseTest() {
+    FrontierSolver solver = new FrontierSolver();
+    solver.solve(new int[][] { {1, 2, 3}, {7, 8}}, new int[] {1, 1}, 20, 4);
+    int[][] cells = { {1, 2, 3}, {7, 9}};
+    int[] mines = {1, 1};
+    FrontierSolver.Result reused = solver.solve(cells, mines, 19, 3);
+    FrontierSolver.Result fresh =
+        new FrontierSolver().solve(cells, mines, 19, 3);
+    for (int cell : fresh.getCells()) {
+      assertEquals(probabilityOf(fresh, cell), probabilityOf(reused, cell),
+          DELTA);
+    }
+    assertEquals(fresh.getInteriorProbability(),
+        reused.getInteriorProbability(), DELTA);
+  }
+}
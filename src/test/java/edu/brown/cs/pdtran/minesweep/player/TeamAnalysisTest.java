@@ -0,0 +1,99 @@
+package edu.brown.cs.pdtran.minesweep.player;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.board.Board;
+import edu.brown.cs.pdtran.minesweep.board.DefaultBoard;
+import edu.brown.cs.pdtran.minesweep.move.CheckTile;
+import edu.brown.cs.pdtran.minesweep.move.Move;
+import edu.brown.cs.pdtran.minesweep.setup.AIGamer;
+import edu.brown.cs.pdtran.minesweep.setup.TeamFormation;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+import edu.brown.cs.pdtran.minesweep.types.AiDifficulty;
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
+
+public class TeamAnalysisTest {
+
+  private static final int WIDTH = 16;
+  private static final int TURNS = 10;
+
+  private static PlayerTeam teamOf(Board board, int ais) {
+    TeamFormation tf = new TeamFormation("team");
+    for (int i = 0; i < ais; i++) {
+      tf.addAIGamer("ai" + i, new AIGamer(AiDifficulty.HARD));
+    }
+    List<Board> boards = new ArrayList<>();
+    boards.add(board);
+    return new PlayerTeam(tf, 1, boards);
+  }
+
+  @Test
+  /**
+   * Verifies that the possibilities are only worked out again once the
+   * board changes.
+   */
+  public void sharedTest() {
+    PlayerTeam team = teamOf(new DefaultBoard(8, 8, 10, 2), 0);
+    TeamAnalysis analysis = team.getAnalysis();
+    team.makeMove(new CheckTile(0, 0));
+    TeamAnalysis.Possibilities first = analysis.analyze(true);
+    assertTrue(first == analysis.analyze(true));
+    assertTrue(first != analysis.analyze(false));
+
+    Board board = team.getCurrentBoard();
+    for (int cell = 0; cell < board.getWidth() * board.getHeight(); cell++) {
+      Tile tile = board.getTile(cell / board.getWidth(),
+          cell % board.getWidth());
+      if (!tile.isBomb() && !tile.hasBeenVisited()) {
+        team.makeMove(new CheckTile(tile.getColumn(), tile.getRow()));
+        break;
+      }
+    }
+    assertTrue(first != analysis.analyze(true));
+  }
+
+  @Test
+  /**
+   * Verifies that a reserved tile cannot be reserved again until the board
+   * changes.
+   */
+  public void reserveTest() {
+    PlayerTeam team = teamOf(new DefaultBoard(8, 8, 10, 2), 0);
+    TeamAnalysis analysis = team.getAnalysis();
+    analysis.analyze(true);
+    Tile tile = team.getCurrentBoard().getTile(0, 0);
+    assertTrue(analysis.reserve(tile));
+    assertTrue(analysis.isReserved(tile));
+    assertTrue(!analysis.reserve(tile));
+    team.makeMove(new CheckTile(0, 0));
+    analysis.analyze(true);
+    assertTrue(!analysis.isReserved(tile));
+  }
+
+  @Test
+  /**
+   * Verifies that teammates choosing from the same possibilities, with no
+   * move made in between, never check the same tile.
+   */
+  public void teammatesTest() {
+    PlayerTeam team = teamOf(new DefaultBoard(WIDTH, WIDTH, 40, 1), 2);
+    team.makeMove(new CheckTile(0, 0));
+    List<AIPlayer> ais = team.getAis();
+    assertEquals(2, ais.size());
+    Set<Integer> checked = new HashSet<>();
+    for (int turn = 0; turn < TURNS; turn++) {
+      Move move = ais.get(turn % ais.size()).getMove(team);
+      if (move.getMoveType() == MoveType.CHECK) {
+        assertTrue(checked.add(move.getYCoord() * WIDTH + move.getXCoord()));
+      }
+    }
+  }
+}
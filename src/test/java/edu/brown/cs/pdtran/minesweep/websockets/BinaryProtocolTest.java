@@ -0,0 +1,225 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonPrimitive;
+import edu.brown.cs.pdtran.minesweep.board.DefaultBoard;
+import edu.brown.cs.pdtran.minesweep.tile.Tile;
+import edu.brown.cs.pdtran.minesweep.types.BoardType;
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+
+public class BinaryProtocolTest {
+
+  private static final int WIDTH = 3;
+  private static final int HEIGHT = 2;
+  private static final int VERSION = 7;
+  private static final int CENTER = 4;
+  private static final int HIDDEN = 13;
+  private static final int FLAGGED = 14;
+  private static final int MINE = 15;
+  private static final int LOW_NIBBLE = 0xF;
+  private static final int NIBBLE = 4;
+  private static final byte BOARD_UPDATE = 2;
+  private static final byte BOARD_DELTA = 3;
+
+  private DefaultBoard board;
+  private boolean[][] flags;
+
+  /**
+   * Makes a board with a mine in the top-left corner, that and two other
+   * cells visited, and a flag on the cell right of the mine.
+   */
+  @Before
+  public void setup() {
+    Tile[][] grid = new Tile[HEIGHT][WIDTH];
+    for (int row = 0; row < HEIGHT; row++) {
+      for (int col = 0; col < WIDTH; col++) {
+        boolean mine = row == 0 && col == 0;
+        int adjacent = !mine && row < 2 && col < 2 ? 1 : 0;
+        boolean visited = mine || col == 2 && row == 0
+            || col == 1 && row == 1;
+        grid[row][col] = new Tile(mine, adjacent, visited, row, col);
+      }
+    }
+    board = new DefaultBoard(grid);
+    flags = new boolean[WIDTH][HEIGHT];
+    flags[1][0] = true;
+  }
+
+  private static String getName(ByteBuffer buffer) {
+    byte[] name = new byte[buffer.get()];
+    buffer.get(name);
+    return new String(name, StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  /**
+   * Verifies that a whole board decodes back to its header, the nibble of
+   * every cell and the color of every cell.
+   */
+  public void boardTest() {
+    List<String> palette = Arrays.asList("WHITE", "RED");
+    byte[] owners = {0, 0, 1, 1, 1, 0};
+    byte[] frame = BinaryProtocol.encodeBoard(UpdateType.BOARD_UPDATE,
+        BoardType.DEFAULT, VERSION, board, flags,
+        BinaryProtocol.encodeColors(palette, owners));
+
+    ByteBuffer buffer = ByteBuffer.wrap(frame);
+    assertEquals(BOARD_UPDATE, buffer.get());
+    assertEquals(VERSION, buffer.getInt());
+    assertEquals(BoardType.DEFAULT.ordinal(), buffer.get());
+    assertEquals(WIDTH, buffer.getInt());
+    assertEquals(HEIGHT, buffer.getInt());
+    assertEquals(1, buffer.getInt());
+
+    int[] nibbles = new int[WIDTH * HEIGHT];
+    for (int cell = 0; cell < nibbles.length; cell += 2) {
+      int pair = buffer.get();
+      nibbles[cell] = pair >> NIBBLE & LOW_NIBBLE;
+      nibbles[cell + 1] = pair & LOW_NIBBLE;
+    }
+    assertArrayEquals(new int[] {MINE, FLAGGED, 0, HIDDEN, 1, HIDDEN},
+        nibbles);
+
+    int colors = buffer.get();
+    assertEquals(palette.size(), colors);
+    for (int i = 0; i < colors; i++) {
+      assertEquals(palette.get(i), getName(buffer));
+    }
+    byte[] decoded = new byte[owners.length];
+    int cell = 0;
+    while (buffer.hasRemaining()) {
+      int run = buffer.getShort();
+      byte owner = buffer.get();
+      Arrays.fill(decoded, cell, cell + run, owner);
+      cell += run;
+    }
+    assertArrayEquals(owners, decoded);
+  }
+
+  @Test
+  /**
+   * Verifies that a board sent without its colors ends with an empty
+   * color count.
+   */
+  public void boardWithoutColorsTest() {
+    byte[] frame = BinaryProtocol.encodeBoard(UpdateType.INIT_BOARD,
+        BoardType.DEFAULT, VERSION, board, flags, null);
+    assertEquals(0, frame[frame.length - 1]);
+    assertEquals(1, frame[0]);
+  }
+
+  @Test
+  /**
+   * Verifies that a delta decodes back to its version, tiles, flags and
+   * recolored cell.
+   */
+  public void deltaTest() {
+    byte[] frame = BinaryProtocol.encodeDelta(BoardType.DEFAULT, VERSION,
+        board, flags, new int[] {2, CENTER}, new int[] {1}, 2, "RED");
+
+    ByteBuffer buffer = ByteBuffer.wrap(frame);
+    assertEquals(BOARD_DELTA, buffer.get());
+    assertEquals(VERSION, buffer.getInt());
+    assertEquals(2, buffer.getInt());
+    assertEquals(2, buffer.getInt());
+    assertEquals(0, buffer.get());
+    assertEquals(CENTER, buffer.getInt());
+    assertEquals(1, buffer.get());
+    assertEquals(1, buffer.getInt());
+    assertEquals(1, buffer.getInt());
+    assertEquals(1, buffer.get());
+    assertEquals(1, buffer.get());
+    assertEquals(2, buffer.getInt());
+    assertEquals("RED", getName(buffer));
+    assertFalse(buffer.hasRemaining());
+  }
+
+  @Test
+  /**
+   * Verifies that a delta with no recolored cell ends with an empty color
+   * count, and that rectangular boards have no binary form.
+   */
+  public void plainDeltaTest() {
+    byte[] frame = BinaryProtocol.encodeDelta(BoardType.DEFAULT, VERSION,
+        board, flags, new int[0], new int[0], -1, null);
+    // The kind, the version, two empty counts and no colors.
+    assertEquals(1 + Integer.BYTES * (1 + 2) + 1, frame.length);
+    assertEquals(0, frame[frame.length - 1]);
+    assertEquals(null, BinaryProtocol.encodeDelta(BoardType.RECTANGULAR,
+        VERSION, board, flags, new int[0], new int[0], -1, null));
+    assertEquals(null, BinaryProtocol.encodeBoard(UpdateType.BOARD_UPDATE,
+        BoardType.RECTANGULAR, VERSION, board, flags, null));
+  }
+
+  @Test
+  /**
+   * Verifies that a client's move frame decodes back to its move type,
+   * row and column.
+   */
+  public void moveTest() {
+    for (MoveType type : MoveType.values()) {
+      ByteBuffer buffer = ByteBuffer.allocate(BinaryProtocol.MOVE_LENGTH);
+      buffer.put(BinaryProtocol.MAKE_MOVE);
+      buffer.put((byte) type.ordinal());
+      buffer.putInt(HEIGHT);
+      buffer.putInt(WIDTH);
+      buffer.flip();
+      assertEquals(BinaryProtocol.MAKE_MOVE, buffer.get());
+      assertEquals(type, BinaryProtocol.moveType(buffer.get()));
+      assertEquals(HEIGHT, buffer.getInt());
+      assertEquals(WIDTH, buffer.getInt());
+      assertFalse(buffer.hasRemaining());
+    }
+  }
+
+  @Test
+  /**
+   * Verifies that a move type byte past the last MoveType, read either
+   * way round, is refused.
+   */
+  public void badMoveTypeTest() {
+    for (byte code : new byte[] {(byte) MoveType.values().length, -1}) {
+      try {
+        BinaryProtocol.moveType(code);
+        fail("Move type " + code + " should be refused.");
+      } catch (IllegalArgumentException e) {
+        // An unknown move type is refused rather than indexed.
+      }
+    }
+  }
+
+  @Test
+  /**
+   * Verifies that an update's binary frame is encoded only when it is
+   * first asked for, and only once.
+   */
+  public void lazyEncodingTest() {
+    AtomicInteger encodings = new AtomicInteger();
+    byte[] frame = {BOARD_DELTA};
+    Update update = new Update(UpdateType.BOARD_DELTA,
+        new JsonPrimitive(VERSION), () -> {
+          encodings.incrementAndGet();
+          return frame;
+        }, Arrays.asList("user"));
+    assertTrue(update.getMessage().contains("BOARD_DELTA"));
+    assertEquals(0, encodings.get());
+    assertTrue(update.getBinaryMessage() == frame);
+    assertTrue(update.getBinaryMessage() == frame);
+    assertEquals(1, encodings.get());
+  }
+}
@@ -0,0 +1,77 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
+import edu.brown.cs.pdtran.minesweep.types.RequestType;
+
+public class ClientRequestTest {
+
+  private static boolean refuses(String message) {
+    try {
+      ClientRequest.parse(message).getRequestType();
+      return false;
+    } catch (IOException | IllegalArgumentException
+        | IllegalStateException e) {
+      return true;
+    }
+  }
+
+  @Test
+  /**
+   * Verifies that a move reads back every field, skipping fields requests
+   * do not use, whether numbers are sent as numbers or as strings.
+   */
+  public void moveTest() throws IOException {
+    ClientRequest request = ClientRequest.parse("{\"requestType\":"
+        + "\"MAKE_MOVE\",\"minesweepId\":\"user\",\"minesweepRoomId\":"
+        + "\"room\",\"minesweepTeamId\":\"team\",\"moveType\":\"FLAG\","
+        + "\"extra\":{\"nested\":[1,2]},\"row\":3,\"col\":\"5\"}");
+    assertEquals(RequestType.MAKE_MOVE, request.getRequestType());
+    assertEquals("user", request.getUserId());
+    assertEquals("room", request.getSessionId());
+    assertEquals("team", request.getTeamId());
+    assertEquals(MoveType.FLAG, request.getMoveType());
+    assertEquals(3, request.getRow());
+    assertEquals(5, request.getCol());
+    assertFalse(request.wantsBinary());
+  }
+
+  @Test
+  /**
+   * Verifies that the binary protocol is asked for by name, and that null
+   * fields read as missing.
+   */
+  public void initializeTest() throws IOException {
+    ClientRequest request = ClientRequest.parse("{\"requestType\":"
+        + "\"INITIALIZE\",\"protocol\":\"BINARY\",\"minesweepName\":null}");
+    assertEquals(RequestType.INITIALIZE, request.getRequestType());
+    assertTrue(request.wantsBinary());
+    try {
+      request.getName();
+      fail("A null field should read as missing.");
+    } catch (IllegalArgumentException e) {
+      // A missing field is refused when it is read.
+    }
+  }
+
+  @Test
+  /**
+   * Verifies that unknown types, missing types and messages that are not
+   * JSON objects are refused.
+   */
+  public void badRequestTest() {
+    assertTrue(refuses("{\"requestType\":\"NOT_A_REQUEST\"}"));
+    assertTrue(refuses("{\"minesweepId\":\"user\"}"));
+    assertTrue(refuses("[\"MAKE_MOVE\"]"));
+    assertTrue(refuses("{\"requestType\":\"MAKE_MOVE\",\"moveType\":"
+        + "\"JUMP\"}"));
+  }
+}
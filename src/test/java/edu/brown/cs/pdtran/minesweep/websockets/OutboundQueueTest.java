@@ -0,0 +1,156 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.Framedata;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.brown.cs.pdtran.minesweep.types.UpdateType;
+
+public class OutboundQueueTest {
+  private List<Framedata> written;
+  private boolean buffered;
+  private OutboundQueue queue;
+
+  @Before
+  public void setUp() {
+    written = new ArrayList<>();
+    buffered = false;
+    // The connection is still writing earlier frames while buffered is set.
+    WebSocket conn = (WebSocket) Proxy.newProxyInstance(
+        WebSocket.class.getClassLoader(), new Class<?>[] {WebSocket.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("hasBufferedData")) {
+            return buffered;
+          } else if (method.getName().equals("sendFrame")) {
+            written.add((Framedata) args[0]);
+          }
+          return null;
+        });
+    queue = new OutboundQueue(conn, 2);
+  }
+
+  private static Framedata frame() {
+    return (Framedata) Proxy.newProxyInstance(
+        Framedata.class.getClassLoader(), new Class<?>[] {Framedata.class},
+        (proxy, method, args) -> method.getName().equals("equals")
+            ? proxy == args[0] : null);
+  }
+
+  @Test
+  /**
+   * Verifies that a newer INFO_UPDATE replaces a queued one, and a
+   * BOARD_UPDATE replaces queued board updates and deltas, but nothing
+   * replaces other updates.
+   */
+  public void coalesceTest() {
+    buffered = true;
+    Framedata delta = frame();
+    Framedata info = frame();
+    Framedata newerInfo = frame();
+    Framedata victory = frame();
+    Framedata board = frame();
+    assertEquals(0, queue.offer(UpdateType.BOARD_DELTA, 1, delta));
+    assertEquals(0, queue.offer(UpdateType.INFO_UPDATE, -1, info));
+    assertEquals(1, queue.offer(UpdateType.INFO_UPDATE, -1, newerInfo));
+    assertEquals(0, queue.offer(UpdateType.VICTORY, -1, victory));
+    assertEquals(1, queue.offer(UpdateType.BOARD_UPDATE, 1, board));
+
+    buffered = false;
+    assertTrue(queue.flush(0, 100));
+    assertEquals(Arrays.asList(newerInfo, victory, board), written);
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  /**
+   * Verifies that a BOARD_UPDATE keeps queued deltas newer than its own
+   * version, which it does not include.
+   */
+  public void newerDeltaTest() {
+    buffered = true;
+    Framedata older = frame();
+    Framedata newer = frame();
+    Framedata board = frame();
+    assertEquals(0, queue.offer(UpdateType.BOARD_DELTA, 1, older));
+    assertEquals(0, queue.offer(UpdateType.BOARD_DELTA, 3, newer));
+    assertEquals(1, queue.offer(UpdateType.BOARD_UPDATE, 2, board));
+
+    buffered = false;
+    assertTrue(queue.flush(0, 100));
+    assertEquals(Arrays.asList(newer, board), written);
+  }
+
+  @Test
+  /**
+   * Verifies that frames wait while the connection is still writing, and
+   * that a full queue drops new frames.
+   */
+  public void dropTest() {
+    buffered = true;
+    for (int i = 0; i < 4; i++) {
+      assertEquals(0, queue.offer(UpdateType.BOARD_DELTA, i, frame()));
+    }
+    assertTrue(queue.flush(0, 100));
+    assertTrue(written.isEmpty());
+    assertEquals(-1, queue.offer(UpdateType.BOARD_DELTA, 4, frame()));
+    assertEquals(4, queue.size());
+  }
+
+  @Test
+  /**
+   * Verifies that a full queue still takes VICTORY, DEFEAT and ERROR
+   * frames, evicting a queued INFO_UPDATE for one if it can.
+   */
+  public void mustSendTest() {
+    buffered = true;
+    queue.offer(UpdateType.INFO_UPDATE, -1, frame());
+    for (int i = 1; i < 4; i++) {
+      queue.offer(UpdateType.BOARD_DELTA, i, frame());
+    }
+    Framedata victory = frame();
+    Framedata error = frame();
+    assertEquals(1, queue.offer(UpdateType.VICTORY, -1, victory));
+    assertEquals(4, queue.size());
+    assertEquals(0, queue.offer(UpdateType.ERROR, -1, error));
+    assertEquals(5, queue.size());
+
+    buffered = false;
+    assertTrue(queue.flush(0, 100));
+    assertTrue(written.contains(victory));
+    assertTrue(written.contains(error));
+  }
+
+  @Test
+  /**
+   * Verifies that a client over budget for longer than the grace period
+   * is to be disconnected, and one that catches up in time is not.
+   */
+  public void disconnectTest() {
+    buffered = true;
+    for (int i = 0; i < 3; i++) {
+      queue.offer(UpdateType.BOARD_DELTA, i, frame());
+    }
+    assertTrue(queue.flush(0, 100));
+    assertTrue(queue.flush(100, 100));
+    assertFalse(queue.flush(101, 100));
+
+    buffered = false;
+    assertTrue(queue.flush(102, 100));
+    buffered = true;
+    for (int i = 0; i < 3; i++) {
+      queue.offer(UpdateType.BOARD_DELTA, i, frame());
+    }
+    // Catching up resets how long the client has been over budget.
+    assertTrue(queue.flush(200, 100));
+  }
+}
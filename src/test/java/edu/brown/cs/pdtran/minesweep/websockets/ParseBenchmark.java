@@ -0,0 +1,116 @@
+package edu.brown.cs.pdtran.minesweep.websockets;
+
+import java.io.IOException;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import edu.brown.cs.pdtran.minesweep.types.MoveType;
+import edu.brown.cs.pdtran.minesweep.types.RequestType;
+
+/**
+ * Compares the throughput of parsing MAKE_MOVE requests into a JsonObject
+ * tree and reading fields off it with Enum.valueOf, as GameServer used to,
+ * against parsing them with ClientRequest's streaming reader.
+ * <p>
+ * Each parser is run for several rounds over the same messages, and the
+ * last round, after the JIT has warmed up, is reported. This is not a unit
+ * test; run it by hand with the test classpath, passing the number of
+ * messages per round, such as "2000000".
+ * @author Clayton Sanford
+ */
+public final class ParseBenchmark {
+
+  private static final int DEFAULT_MESSAGES = 2000000;
+  private static final int DISTINCT = 64;
+  private static final int ROUNDS = 3;
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private ParseBenchmark() {
+  }
+
+  /**
+   * Parses the messages with both parsers and prints how many messages
+   * each handled per second.
+   * @param args The number of messages per round.
+   * @throws IOException Thrown if a message cannot be parsed.
+   */
+  public static void main(String[] args) throws IOException {
+    int count = DEFAULT_MESSAGES;
+    if (args.length > 0) {
+      count = Integer.parseInt(args[0].trim());
+    }
+    String[] messages = new String[DISTINCT];
+    for (int i = 0; i < DISTINCT; i++) {
+      messages[i] = "{\"requestType\":\"MAKE_MOVE\",\"minesweepId\":\"user"
+          + i + "\",\"minesweepRoomId\":\"room\",\"minesweepTeamId\":"
+          + "\"team\",\"moveType\":\"CHECK\",\"row\":" + (i % 8)
+          + ",\"col\":" + (i / 8) + "}";
+    }
+    long tree = 0;
+    long streaming = 0;
+    for (int round = 1; round <= ROUNDS; round++) {
+      tree = parseTrees(messages, count);
+      streaming = parseStreaming(messages, count);
+    }
+    System.out.printf("%d messages: tree %.0f messages/s, "
+        + "streaming %.0f messages/s%n", count,
+        count * NANOS_PER_SECOND / tree,
+        count * NANOS_PER_SECOND / streaming);
+  }
+
+  /**
+   * Parses messages the way GameServer did before ClientRequest.
+   * @return The nanoseconds spent.
+   */
+  private static long parseTrees(String[] messages, int count) {
+    JsonParser parser = new JsonParser();
+    long sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      JsonObject json =
+          parser.parse(messages[i % DISTINCT]).getAsJsonObject();
+      sink += json.get("minesweepId").getAsString().length();
+      sink += json.get("minesweepRoomId").getAsString().length();
+      sink += RequestType.valueOf(json.get("requestType").getAsString())
+          .ordinal();
+      sink += json.get("minesweepTeamId").getAsString().length();
+      sink += MoveType.valueOf(json.get("moveType").getAsString())
+          .ordinal();
+      sink += json.get("row").getAsInt() + json.get("col").getAsInt();
+    }
+    long elapsed = System.nanoTime() - start;
+    consume(sink);
+    return elapsed;
+  }
+
+  /**
+   * Parses messages with ClientRequest.
+   * @return The nanoseconds spent.
+   */
+  private static long parseStreaming(String[] messages, int count)
+      throws IOException {
+    long sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      ClientRequest request = ClientRequest.parse(messages[i % DISTINCT]);
+      sink += request.getUserId().length();
+      sink += request.getSessionId().length();
+      sink += request.getRequestType().ordinal();
+      sink += request.getTeamId().length();
+      sink += request.getMoveType().ordinal();
+      sink += request.getRow() + request.getCol();
+    }
+    long elapsed = System.nanoTime() - start;
+    consume(sink);
+    return elapsed;
+  }
+
+  /**
+   * Uses what was read, so the JIT cannot drop the parsing.
+   */
+  private static void consume(long sink) {
+    if (sink == Long.MIN_VALUE) {
+      System.out.println(sink);
+    }
+  }
+}